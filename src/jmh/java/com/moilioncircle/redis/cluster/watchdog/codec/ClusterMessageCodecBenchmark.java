@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import com.moilioncircle.redis.cluster.watchdog.Version;
+import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
+import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessageDataGossip;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_FAIL;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_PING;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_PONG;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_PUBLISH;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_UPDATE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterState.CLUSTER_OK;
+
+/**
+ * Encodes and decodes single cluster bus frames through the {@link ClusterMessageEncoder} and
+ * {@link ClusterMessageDecoder} in an {@link EmbeddedChannel}, without metrics or capture.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec} runs it with the GC profiler, other JMH options go to
+ * {@code -Djmh.args="ClusterMessageCodecBenchmark -prof gc -p message=PING:100"}. A decoded frame is written
+ * in {@code chunks} slices, so more than one chunk exercises the partial frame path of the decoder.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClusterMessageCodecBenchmark {
+
+    @State(Scope.Thread)
+    public static class EncodeState {
+
+        @Param({"PROTOCOL_V0", "PROTOCOL_V1"})
+        public String version;
+
+        @Param({"PING:0", "PING:3", "PING:10", "PING:100", "PONG:0", "PONG:3", "PONG:10", "PONG:100", "FAIL", "UPDATE", "PUBLISH"})
+        public String message;
+
+        protected ClusterMessage hdr;
+        protected EmbeddedChannel channel;
+
+        @Setup
+        public void setup() {
+            hdr = newMessage(Version.valueOf(version), message);
+            channel = new EmbeddedChannel(new ClusterMessageEncoder(), new ClusterMessageDecoder());
+        }
+
+        @TearDown
+        public void tearDown() {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DecodeState extends EncodeState {
+
+        @Param({"1", "4"})
+        public int chunks;
+
+        protected byte[] frame;
+
+        @Override
+        @Setup
+        public void setup() {
+            super.setup();
+            channel.writeOutbound(hdr); ByteBuf buf = channel.readOutbound();
+            try { frame = ByteBufUtil.getBytes(buf); } finally { buf.release(); }
+        }
+    }
+
+    @Benchmark
+    public Object encode(EncodeState state) {
+        state.channel.writeOutbound(state.hdr);
+        ByteBuf buf = state.channel.readOutbound();
+        int length = buf.readableBytes(); buf.release(); return length;
+    }
+
+    @Benchmark
+    public Object decode(DecodeState state) {
+        byte[] frame = state.frame; int step = (frame.length + state.chunks - 1) / state.chunks;
+        for (int offset = 0; offset < frame.length; offset += step) {
+            state.channel.writeInbound(Unpooled.wrappedBuffer(frame, offset, Math.min(step, frame.length - offset)));
+        }
+        return state.channel.readInbound();
+    }
+
+    protected static ClusterMessage newMessage(Version version, String message) {
+        ClusterMessage hdr = new ClusterMessage();
+        hdr.signature = "RCmb"; hdr.version = version; hdr.state = CLUSTER_OK;
+        hdr.name = name(0); hdr.ip = "127.0.0.1"; hdr.port = 7000; hdr.busPort = 17000;
+        hdr.currentEpoch = 12; hdr.configEpoch = 7; hdr.offset = 1024;
+        for (int i = 0; i < hdr.slots.length; i += 3) hdr.slots[i] = (byte) 0xFF;
+        String[] args = message.split(":");
+        switch (args[0]) {
+            case "PING":
+            case "PONG":
+                hdr.type = args[0].equals("PING") ? CLUSTERMSG_TYPE_PING : CLUSTERMSG_TYPE_PONG;
+                hdr.count = Integer.parseInt(args[1]);
+                for (int i = 0; i < hdr.count; i++) {
+                    ClusterMessageDataGossip gossip = new ClusterMessageDataGossip();
+                    gossip.name = name(i + 1); gossip.ip = "127.0.0.1"; gossip.port = 7001 + i; gossip.busPort = 17001 + i;
+                    gossip.pingTime = 1500000000000L; gossip.pongTime = 1500000001000L; hdr.data.gossips.add(gossip);
+                }
+                break;
+            case "FAIL":
+                hdr.type = CLUSTERMSG_TYPE_FAIL; hdr.data.fail.name = name(1);
+                break;
+            case "UPDATE":
+                hdr.type = CLUSTERMSG_TYPE_UPDATE; hdr.data.config.name = name(1); hdr.data.config.configEpoch = 8;
+                System.arraycopy(hdr.slots, 0, hdr.data.config.slots, 0, hdr.slots.length);
+                break;
+            case "PUBLISH":
+                hdr.type = CLUSTERMSG_TYPE_PUBLISH; hdr.data.publish.channelLength = 2; hdr.data.publish.messageLength = 6;
+                hdr.data.publish.bulkData = "chhello!".getBytes();
+                break;
+            default:
+                throw new IllegalArgumentException(message);
+        }
+        return hdr;
+    }
+
+    protected static String name(int index) {
+        return String.format("%040x", index + 0xabcdefL);
+    }
+}
@@ -17,7 +17,10 @@
 package com.moilioncircle.redis.cluster.watchdog;
 
 import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandKeySpec;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsExporter;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
 import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
 
 /**
@@ -49,6 +52,11 @@ public abstract class AbstractClusterWatchdog implements ClusterWatchdog {
         return managers.addCommandHandler(name, handler);
     }
 
+    @Override
+    public CommandHandler addCommandHandler(String name, CommandHandler handler, CommandKeySpec spec) {
+        return managers.addCommandHandler(name, handler, spec);
+    }
+
     @Override
     public ClusterNodeListener setClusterNodeListener(ClusterNodeListener clusterNodeListener) {
         return managers.setClusterNodeListener(clusterNodeListener);
@@ -68,4 +76,24 @@ public abstract class AbstractClusterWatchdog implements ClusterWatchdog {
     public ClusterConfigListener setClusterConfigListener(ClusterConfigListener clusterConfigListener) {
         return managers.setClusterConfigListener(clusterConfigListener);
     }
+
+    @Override
+    public ClusterFailoverListener setClusterFailoverListener(ClusterFailoverListener clusterFailoverListener) {
+        return managers.setClusterFailoverListener(clusterFailoverListener);
+    }
+
+    @Override
+    public void addMetricsExporter(MetricsExporter exporter) {
+        managers.addMetricsExporter(exporter);
+    }
+
+    @Override
+    public MetricsRegistry getMetricsRegistry() {
+        return managers.metrics.registry;
+    }
+
+    @Override
+    public ClusterTopology topology() {
+        return managers.topology;
+    }
 }
@@ -20,8 +20,10 @@ import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterState;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
 
@@ -53,6 +55,30 @@ public class ClusterConfigInfo {
         return info;
     }
 
+    /**
+     * Compares {@code state} to {@code previous} in place before taking a new snapshot.
+     *
+     * @return {@code previous} itself if nothing changed since it was taken.
+     */
+    public static ClusterConfigInfo valueOf(ClusterState state, ClusterConfigInfo previous) {
+        if (previous != null && isSnapshotOf(previous, state)) return previous;
+        return valueOf(state);
+    }
+
+    private static boolean isSnapshotOf(ClusterConfigInfo info, ClusterState state) {
+        if (info.currentEpoch != state.currentEpoch || info.lastVoteEpoch != state.lastVoteEpoch) return false;
+        if (info.nodes.size() != state.nodes.size()) return false;
+        Iterator<ClusterNodeInfo> it = info.nodes.values().iterator();
+        for (ClusterNode node : state.nodes.values()) {
+            if (!it.next().isSnapshotOf(node, state.myself)) return false;
+        }
+        for (int i = 0; i < CLUSTER_SLOTS; i++) {
+            if (!Objects.equals(info.migrating[i], state.migrating[i] == null ? null : state.migrating[i].name)) return false;
+            if (!Objects.equals(info.importing[i], state.importing[i] == null ? null : state.importing[i].name)) return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -16,6 +16,8 @@
 
 package com.moilioncircle.redis.cluster.watchdog;
 
+import com.moilioncircle.redis.cluster.watchdog.util.CachedClock;
+import com.moilioncircle.redis.cluster.watchdog.util.Clock;
 import com.moilioncircle.redis.cluster.watchdog.util.net.NetworkConfiguration;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,6 +35,10 @@ public class ClusterConfiguration {
 
     private String clusterAnnounceIp;
     private String clusterConfigFile;
+    private String clusterSlotTableFile;
+    private String busCaptureFile;
+    private long busCaptureMaxBytes = 64L * 1024 * 1024;
+    private int busCaptureMaxFiles = 4;
     private int clusterAnnounceBusPort;
     private int clusterAnnouncePort = 6379;
     private volatile boolean verbose = false;
@@ -41,7 +47,22 @@ public class ClusterConfiguration {
     private volatile int clusterMigrationBarrier = 1;
     private volatile long clusterNodeTimeout = 15000;
     private volatile boolean clusterFullCoverage = true;
+    private volatile long protoMaxBulkLen = 512L * 1024 * 1024;
+    private volatile int protoMaxMultiBulkLen = 1024 * 1024;
+    private int commandThreads = 0;
+    private int commandQueueSize = 1024;
+    private int restoreThreads = 4;
+    private volatile boolean latencyTracking = false;
+    private volatile long slowlogLogSlowerThan = 10000;
+    private volatile int slowlogMaxLen = 128;
+    private volatile long latencyMonitorThreshold = 0;
+    private int metricsPort = 0;
+    private volatile long stallThreshold = 500;
+    private volatile int stallLogMaxLen = 32;
+    private volatile int failoverTimelineMaxLen = 16;
+    private String metricsBindAddress = "127.0.0.1";
     private NetworkConfiguration networkConfiguration = NetworkConfiguration.defaultSetting();
+    private Clock clock = new CachedClock();
 
     private ClusterConfiguration() {
     }
@@ -81,6 +102,14 @@ public class ClusterConfiguration {
         return clusterConfigFile;
     }
 
+    /**
+     * @return the file the slot table is exported into, or null if the export is disabled.
+     * @see ClusterSlotTable
+     */
+    public String getClusterSlotTableFile() {
+        return clusterSlotTableFile;
+    }
+
     public int getClusterAnnounceBusPort() {
         return clusterAnnounceBusPort;
     }
@@ -93,6 +122,108 @@ public class ClusterConfiguration {
         return clusterMigrationBarrier;
     }
 
+    public long getProtoMaxBulkLen() {
+        return protoMaxBulkLen;
+    }
+
+    public int getProtoMaxMultiBulkLen() {
+        return protoMaxMultiBulkLen;
+    }
+
+    /**
+     * @return the number of threads user command handlers run on, 0 to run them on the I/O threads.
+     */
+    public int getCommandThreads() {
+        return commandThreads;
+    }
+
+    /**
+     * @return the number of threads streamed RESTORE values are consumed on, further restores wait for one.
+     */
+    public int getRestoreThreads() {
+        return restoreThreads;
+    }
+
+    /**
+     * @return the number of pipelined commands queued per connection before it stops reading.
+     */
+    public int getCommandQueueSize() {
+        return commandQueueSize;
+    }
+
+    /**
+     * @return true if the latency percentiles of every command are recorded, off by default.
+     */
+    public boolean isLatencyTracking() {
+        return latencyTracking;
+    }
+
+    /**
+     * @return the execution time in microseconds above which a command is logged in the slowlog, negative to disable it.
+     */
+    public long getSlowlogLogSlowerThan() {
+        return slowlogLogSlowerThan;
+    }
+
+    public int getSlowlogMaxLen() {
+        return slowlogMaxLen;
+    }
+
+    /**
+     * @return the latency in milliseconds above which the latency monitor records an event, 0 to disable it.
+     */
+    public long getLatencyMonitorThreshold() {
+        return latencyMonitorThreshold;
+    }
+
+    /**
+     * @return the local HTTP port serving the metrics in the OpenMetrics text format, 0 to disable it.
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public String getMetricsBindAddress() {
+        return metricsBindAddress;
+    }
+
+    /**
+     * @return the duration in milliseconds above which a state thread task is logged as a stall, 0 to disable it.
+     */
+    public long getStallThreshold() {
+        return stallThreshold;
+    }
+
+    public int getStallLogMaxLen() {
+        return stallLogMaxLen;
+    }
+
+    public int getFailoverTimelineMaxLen() {
+        return failoverTimelineMaxLen;
+    }
+
+    /**
+     * @return the file every raw cluster bus frame is appended to, or null if the capture is disabled.
+     */
+    public String getBusCaptureFile() {
+        return busCaptureFile;
+    }
+
+    public long getBusCaptureMaxBytes() {
+        return busCaptureMaxBytes;
+    }
+
+    public int getBusCaptureMaxFiles() {
+        return busCaptureMaxFiles;
+    }
+
+    /**
+     * @return the clock of the cluster logic, a {@link CachedClock} by default.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
     public NetworkConfiguration getNetworkConfiguration() {
         return networkConfiguration;
     }
@@ -130,6 +261,11 @@ public class ClusterConfiguration {
         return this;
     }
 
+    public ClusterConfiguration setClusterSlotTableFile(String clusterSlotTableFile) {
+        this.clusterSlotTableFile = clusterSlotTableFile;
+        return this;
+    }
+
     public ClusterConfiguration setClusterAnnouncePort(int clusterAnnouncePort) {
         this.clusterAnnouncePort = clusterAnnouncePort;
         return this;
@@ -150,6 +286,96 @@ public class ClusterConfiguration {
         return this;
     }
 
+    public ClusterConfiguration setProtoMaxBulkLen(long protoMaxBulkLen) {
+        this.protoMaxBulkLen = protoMaxBulkLen;
+        return this;
+    }
+
+    public ClusterConfiguration setProtoMaxMultiBulkLen(int protoMaxMultiBulkLen) {
+        this.protoMaxMultiBulkLen = protoMaxMultiBulkLen;
+        return this;
+    }
+
+    public ClusterConfiguration setRestoreThreads(int restoreThreads) {
+        this.restoreThreads = restoreThreads;
+        return this;
+    }
+
+    public ClusterConfiguration setCommandThreads(int commandThreads) {
+        this.commandThreads = commandThreads;
+        return this;
+    }
+
+    public ClusterConfiguration setCommandQueueSize(int commandQueueSize) {
+        this.commandQueueSize = commandQueueSize;
+        return this;
+    }
+
+    public ClusterConfiguration setLatencyTracking(boolean latencyTracking) {
+        this.latencyTracking = latencyTracking;
+        return this;
+    }
+
+    public ClusterConfiguration setSlowlogLogSlowerThan(long slowlogLogSlowerThan) {
+        this.slowlogLogSlowerThan = slowlogLogSlowerThan;
+        return this;
+    }
+
+    public ClusterConfiguration setSlowlogMaxLen(int slowlogMaxLen) {
+        this.slowlogMaxLen = slowlogMaxLen;
+        return this;
+    }
+
+    public ClusterConfiguration setLatencyMonitorThreshold(long latencyMonitorThreshold) {
+        this.latencyMonitorThreshold = latencyMonitorThreshold;
+        return this;
+    }
+
+    public ClusterConfiguration setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+        return this;
+    }
+
+    public ClusterConfiguration setMetricsBindAddress(String metricsBindAddress) {
+        this.metricsBindAddress = metricsBindAddress;
+        return this;
+    }
+
+    public ClusterConfiguration setStallThreshold(long stallThreshold) {
+        this.stallThreshold = stallThreshold;
+        return this;
+    }
+
+    public ClusterConfiguration setStallLogMaxLen(int stallLogMaxLen) {
+        this.stallLogMaxLen = stallLogMaxLen;
+        return this;
+    }
+
+    public ClusterConfiguration setFailoverTimelineMaxLen(int failoverTimelineMaxLen) {
+        this.failoverTimelineMaxLen = failoverTimelineMaxLen;
+        return this;
+    }
+
+    public ClusterConfiguration setBusCaptureFile(String busCaptureFile) {
+        this.busCaptureFile = busCaptureFile;
+        return this;
+    }
+
+    public ClusterConfiguration setBusCaptureMaxBytes(long busCaptureMaxBytes) {
+        this.busCaptureMaxBytes = busCaptureMaxBytes;
+        return this;
+    }
+
+    public ClusterConfiguration setBusCaptureMaxFiles(int busCaptureMaxFiles) {
+        this.busCaptureMaxFiles = busCaptureMaxFiles;
+        return this;
+    }
+
+    public ClusterConfiguration setClock(Clock clock) {
+        this.clock = clock;
+        return this;
+    }
+
     public ClusterConfiguration setNetworkConfiguration(NetworkConfiguration networkConfiguration) {
         this.networkConfiguration = networkConfiguration;
         return this;
@@ -193,6 +419,62 @@ public class ClusterConfiguration {
             throw new ClusterConfigurationException("illegal clusterNodeTimeout: " + clusterNodeTimeout);
         }
 
+        if (protoMaxBulkLen < 1 || protoMaxBulkLen > Integer.MAX_VALUE - 8) {
+            throw new ClusterConfigurationException("illegal protoMaxBulkLen: " + protoMaxBulkLen);
+        }
+
+        if (protoMaxMultiBulkLen < 1) {
+            throw new ClusterConfigurationException("illegal protoMaxMultiBulkLen: " + protoMaxMultiBulkLen);
+        }
+
+        if (restoreThreads <= 0) {
+            throw new ClusterConfigurationException("illegal restoreThreads: " + restoreThreads);
+        }
+
+        if (commandThreads < 0) {
+            throw new ClusterConfigurationException("illegal commandThreads: " + commandThreads);
+        }
+
+        if (commandQueueSize < 1) {
+            throw new ClusterConfigurationException("illegal commandQueueSize: " + commandQueueSize);
+        }
+
+        if (slowlogMaxLen < 0) {
+            throw new ClusterConfigurationException("illegal slowlogMaxLen: " + slowlogMaxLen);
+        }
+
+        if (latencyMonitorThreshold < 0) {
+            throw new ClusterConfigurationException("illegal latencyMonitorThreshold: " + latencyMonitorThreshold);
+        }
+
+        if (stallThreshold < 0) {
+            throw new ClusterConfigurationException("illegal stallThreshold: " + stallThreshold);
+        }
+
+        if (stallLogMaxLen < 0) {
+            throw new ClusterConfigurationException("illegal stallLogMaxLen: " + stallLogMaxLen);
+        }
+
+        if (failoverTimelineMaxLen < 0) {
+            throw new ClusterConfigurationException("illegal failoverTimelineMaxLen: " + failoverTimelineMaxLen);
+        }
+
+        if (busCaptureMaxBytes < 1) {
+            throw new ClusterConfigurationException("illegal busCaptureMaxBytes: " + busCaptureMaxBytes);
+        }
+
+        if (busCaptureMaxFiles < 1) {
+            throw new ClusterConfigurationException("illegal busCaptureMaxFiles: " + busCaptureMaxFiles);
+        }
+
+        if (clock == null) {
+            throw new ClusterConfigurationException("illegal clock: null");
+        }
+
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new ClusterConfigurationException("illegal metricsPort: " + metricsPort);
+        }
+
         return this;
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+
+/**
+ * Snapshot of the statistics of one cluster bus link, round trip times are in microseconds.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterLinkInfo {
+
+    private String node; private boolean inbound;
+    private long createTime; private long pendingBytes;
+    private long bytesSent; private long bytesReceived;
+    private long messagesSent; private long messagesReceived;
+    private long rtt; private long rttEwma; private long rttP99;
+
+    public static ClusterLinkInfo valueOf(ClusterLink link) {
+        ClusterLinkInfo n = new ClusterLinkInfo();
+        ClusterNode node = link.node;
+        n.node = node != null ? node.name : link.sender; n.inbound = link.inbound;
+        n.createTime = link.createTime; n.pendingBytes = link.fd == null ? 0L : link.fd.getPendingBytes();
+        n.bytesSent = link.bytesSent; n.bytesReceived = link.bytesReceived;
+        n.messagesSent = link.messagesSent; n.messagesReceived = link.messagesReceived;
+        n.rtt = link.rtt; n.rttEwma = link.rttEwma; n.rttP99 = link.rtts.percentile(99);
+        return n;
+    }
+
+    /**
+     * @return the name of the peer, or null if an inbound link did not receive a message yet.
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return true if the peer connected to this node, redis calls it a {@code from} link.
+     */
+    public boolean isInbound() {
+        return inbound;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived;
+    }
+
+    /**
+     * @return the last ping to pong round trip time, 0 if no pong was received on this link.
+     */
+    public long getRtt() {
+        return rtt;
+    }
+
+    public long getRttEwma() {
+        return rttEwma;
+    }
+
+    public long getRttP99() {
+        return rttP99;
+    }
+
+    @Override
+    public String toString() {
+        return "Link:[" +
+                "node='" + node + '\'' + ", inbound=" + inbound + ", createTime=" + createTime +
+                ", pendingBytes=" + pendingBytes + ", bytesSent=" + bytesSent + ", bytesReceived=" + bytesReceived +
+                ", messagesSent=" + messagesSent + ", messagesReceived=" + messagesReceived +
+                ", rtt=" + rtt + ", rttEwma=" + rttEwma + ']';
+    }
+}
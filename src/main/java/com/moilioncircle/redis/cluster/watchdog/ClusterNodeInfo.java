@@ -67,6 +67,17 @@ public class ClusterNodeInfo {
         return result;
     }
 
+    /**
+     * @return true if this snapshot still describes {@code node}, ping and pong times included.
+     */
+    boolean isSnapshotOf(ClusterNode node, ClusterNode myself) {
+        if (configEpoch != node.configEpoch || flags != node.flags || port != node.port || busPort != node.busPort) return false;
+        if (pingTime != node.pingTime || pongTime != node.pongTime || !name.equals(node.name)) return false;
+        if (!Objects.equals(ip, node.ip) || !Objects.equals(master, node.master == null ? null : node.master.name)) return false;
+        if (!link.equals(node.link != null || Objects.equals(node, myself) ? "connected" : "disconnected")) return false;
+        return Arrays.equals(slots, node.slots);
+    }
+
     public static ClusterNodeInfo valueOf(ClusterNode myself) {
         return valueOf(myself, myself);
     }
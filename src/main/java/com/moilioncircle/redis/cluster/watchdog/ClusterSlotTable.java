@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import javax.annotation.concurrent.Immutable;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NAME_LEN;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine.calcSlot;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * The slot to node table exported into {@link ClusterConfiguration#getClusterSlotTableFile()}.
+ * <p>
+ * Layout, all integers big endian:
+ * <pre>
+ * offset  size          field
+ * 0       4             magic 0x52435754 ("RCWT")
+ * 4       4             layout version, 1
+ * 8       8             sequence, odd while the writer updates the file
+ * 16      8             topology version, restarts with the watchdog
+ * 24      4             node count
+ * 28      4             node table capacity
+ * 32      2 * 16384     slot owners, index into the node table or -1 if unassigned
+ * 32800   128 * n       node table, each entry:
+ *                         0   40  name
+ *                         40  2   ip length, 42 46 ip
+ *                         88  4   port
+ *                         92  4   bus port
+ *                         96  4   flags
+ *                         100 2   master index or -1
+ * </pre>
+ * Readers load the sequence, copy the table, then load the sequence again and retry if it changed
+ * or was odd. Unlike the topology version the sequence keeps growing across restarts.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@Immutable
+public class ClusterSlotTable {
+
+    public static final int MAGIC = 0x52435754;
+    public static final int LAYOUT_VERSION = 1;
+    public static final int OFFSET_SEQUENCE = 8;
+    public static final int OFFSET_VERSION = 16;
+    public static final int OFFSET_NODES = 24;
+    public static final int OFFSET_CAPACITY = 28;
+    public static final int OFFSET_OWNERS = 32;
+    public static final int OFFSET_TABLE = OFFSET_OWNERS + 2 * CLUSTER_SLOTS;
+    public static final int ENTRY_SIZE = 128;
+    public static final int ENTRY_IP = 40;
+    public static final int ENTRY_IP_LEN = 46;
+    public static final int ENTRY_PORT = 88;
+    public static final int ENTRY_BUS_PORT = 92;
+    public static final int ENTRY_FLAGS = 96;
+    public static final int ENTRY_MASTER = 100;
+    public static final int CAPACITY = 4096;
+    public static final int SIZE = OFFSET_TABLE + ENTRY_SIZE * CAPACITY;
+
+    private final long sequence;
+    private final long version;
+    private final short[] owners;
+    private final ClusterNodeInfo[] table;
+    private final List<List<ClusterNodeInfo>> replicas;
+
+    private ClusterSlotTable(long sequence, long version, short[] owners, ClusterNodeInfo[] table) {
+        this.table = table;
+        this.owners = owners;
+        this.version = version;
+        this.sequence = sequence;
+        this.replicas = ClusterTopology.newReplicas(table);
+    }
+
+    /**
+     * Copies the table out of {@code buffer}, the caller checks the sequence around this call.
+     *
+     * @return the table, or null if the buffer does not hold a table.
+     */
+    static ClusterSlotTable valueOf(ByteBuffer buffer, long sequence) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != LAYOUT_VERSION) return null;
+        int count = buffer.getInt(OFFSET_NODES);
+        if (count < 0 || count > buffer.getInt(OFFSET_CAPACITY)) return null;
+        short[] owners = new short[CLUSTER_SLOTS];
+        for (int i = 0; i < CLUSTER_SLOTS; i++) {
+            short owner = buffer.getShort(OFFSET_OWNERS + 2 * i);
+            owners[i] = owner < count ? owner : -1;
+        }
+        ClusterNodeInfo[] table = new ClusterNodeInfo[count];
+        short[] masters = new short[count];
+        for (int i = 0; i < count; i++) {
+            int entry = OFFSET_TABLE + ENTRY_SIZE * i;
+            ClusterNodeInfo node = table[i] = new ClusterNodeInfo();
+            node.setName(getString(buffer, entry, CLUSTER_NAME_LEN));
+            int len = Math.min(buffer.getShort(entry + ENTRY_IP), ENTRY_IP_LEN);
+            node.setIp(getString(buffer, entry + ENTRY_IP + 2, Math.max(len, 0)));
+            node.setPort(buffer.getInt(entry + ENTRY_PORT));
+            node.setBusPort(buffer.getInt(entry + ENTRY_BUS_PORT));
+            node.setFlags(buffer.getInt(entry + ENTRY_FLAGS));
+            masters[i] = buffer.getShort(entry + ENTRY_MASTER);
+        }
+        for (int i = 0; i < count; i++) {
+            if (masters[i] >= 0 && masters[i] < count) table[i].setMaster(table[masters[i]].getName());
+        }
+        return new ClusterSlotTable(sequence, buffer.getLong(OFFSET_VERSION), owners, table);
+    }
+
+    private static String getString(ByteBuffer buffer, int offset, int len) {
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) bytes[i] = buffer.get(offset + i);
+        return new String(bytes, US_ASCII);
+    }
+
+    public int keyToSlot(byte[] key) {
+        return calcSlot(key);
+    }
+
+    /**
+     * @return the master serving {@code slot}, or null if the slot is unassigned.
+     */
+    public ClusterNodeInfo getMaster(int slot) {
+        int owner = owners[slot];
+        return owner < 0 ? null : table[owner];
+    }
+
+    public ClusterNodeInfo getMaster(byte[] key) {
+        return getMaster(calcSlot(key));
+    }
+
+    public List<ClusterNodeInfo> getReplicas(int slot) {
+        int owner = owners[slot];
+        return owner < 0 ? Collections.emptyList() : replicas.get(owner);
+    }
+
+    public List<ClusterNodeInfo> getReplicas(byte[] key) {
+        return getReplicas(calcSlot(key));
+    }
+
+    /**
+     *
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
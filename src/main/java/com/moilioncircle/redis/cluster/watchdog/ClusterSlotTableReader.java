@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_SEQUENCE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.SIZE;
+import static com.moilioncircle.redis.cluster.watchdog.util.concurrent.Fences.loadFence;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * Reads the {@link ClusterSlotTable} another process exported, without syscalls once the file is mapped.
+ * A file shorter than the table, not exported yet, is mapped again on the next read.
+ * <p>
+ * {@link #close()} leaves the mapping to the garbage collector, a read still in progress on another
+ * thread completes safely.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class ClusterSlotTableReader implements Closeable {
+
+    public static final int MAX_RETRIES = 1024;
+
+    private final String file;
+    private volatile boolean closed;
+    private volatile MappedByteBuffer buffer;
+    private volatile ClusterSlotTable table;
+
+    public ClusterSlotTableReader(String file) throws IOException {
+        this.file = file; this.buffer = map(file);
+    }
+
+    /**
+     * Cheap enough to be called per request, the table is only copied when the sequence changed.
+     * If the writer stays in the middle of an update for {@link #MAX_RETRIES} attempts, the last table
+     * read is returned instead of waiting for it.
+     *
+     * @return the latest table, or null if the writer has not exported one yet or the reader is closed.
+     */
+    public ClusterSlotTable read() {
+        MappedByteBuffer buffer = this.buffer;
+        if (buffer == null) return null;
+        if (buffer.capacity() < SIZE && (buffer = remap()) == null) return null;
+        ClusterSlotTable table = this.table;
+        for (int retries = 0; retries < MAX_RETRIES; retries++) {
+            long sequence = buffer.getLong(OFFSET_SEQUENCE); loadFence();
+            if (table != null && table.getSequence() == sequence) return table;
+            if ((sequence & 1) != 0) { if (retries > 64) Thread.yield(); continue; }
+            ClusterSlotTable next = ClusterSlotTable.valueOf(buffer, sequence);
+            loadFence();
+            if (buffer.getLong(OFFSET_SEQUENCE) != sequence) continue;
+            if (next != null) this.table = next; return next;
+        }
+        return table;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closed = true; this.buffer = null; this.table = null;
+    }
+
+    /**
+     * @return the new mapping, or null if the file is still shorter than the table.
+     */
+    protected synchronized MappedByteBuffer remap() {
+        if (closed) return null;
+        try {
+            MappedByteBuffer buffer = map(file); this.buffer = buffer;
+            return buffer.capacity() < SIZE ? null : buffer;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    protected static MappedByteBuffer map(String file) throws IOException {
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            FileChannel channel = f.getChannel();
+            return channel.map(READ_ONLY, 0, Math.min(channel.size(), SIZE));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeFailed;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsSlave;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodePFailed;
+import static com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine.calcSlot;
+
+/**
+ * Immutable view of the cluster, published by the state thread after every task.
+ * <p>
+ * The version only changes when the cluster config or state changed, the message counters
+ * and ping/pong times are refreshed without bumping it. Snapshots of the same version share
+ * one {@link #cached(String, Supplier) cache} of derived values such as encoded replies.
+ * <p>
+ * Slot lookups are O(1) through a {@code short[16384]} index into the node table, so the
+ * embedding application may route requests with {@link #getMaster(byte[])} on its request path
+ * and compare {@link #getVersion()} to skip refresh work. The returned nodes must not be modified.
+ * <p>
+ * {@link #getLinks()} snapshots the live statistics of the bus links when it is called.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@Immutable
+public class ClusterTopology {
+
+    private final long version;
+    private final String myself;
+    private final long myEpoch;
+    private final int size;
+    private final ClusterState state;
+    private final ClusterConfigInfo config;
+    private final long[] messagesSent;
+    private final long[] messagesReceived;
+    private final int slotsAssigned, slotsOk, slotsPFail, slotsFail;
+    private final Map<String, Object> cache;
+    private final short[] owners;
+    private final ClusterNodeInfo[] table;
+    private final List<List<ClusterNodeInfo>> replicas;
+    private final ClusterLink[] links;
+
+    private ClusterTopology(long version, ClusterConfigInfo config, com.moilioncircle.redis.cluster.watchdog.state.ClusterState cluster, ClusterLink[] links, ClusterTopology previous) {
+        this.links = links;
+        this.config = config;
+        this.version = version;
+        this.size = cluster.size;
+        this.state = cluster.state;
+        this.myself = cluster.myself.name;
+        this.messagesSent = cluster.messagesSent.clone();
+        this.messagesReceived = cluster.messagesReceived.clone();
+        ClusterNode myself = cluster.myself;
+        if (nodeIsSlave(myself) && myself.master != null) this.myEpoch = myself.master.configEpoch;
+        else this.myEpoch = myself.configEpoch;
+
+        if (previous != null && previous.version == version) {
+            this.cache = previous.cache;
+            this.owners = previous.owners; this.table = previous.table; this.replicas = previous.replicas;
+            this.slotsAssigned = previous.slotsAssigned; this.slotsOk = previous.slotsOk;
+            this.slotsPFail = previous.slotsPFail; this.slotsFail = previous.slotsFail; return;
+        }
+        this.cache = new ConcurrentHashMap<>();
+        this.table = config.getNodes().values().toArray(new ClusterNodeInfo[0]);
+        this.replicas = newReplicas(table);
+        Map<String, Short> index = new HashMap<>();
+        for (short i = 0; i < table.length; i++) index.put(table[i].getName(), i);
+
+        this.owners = new short[CLUSTER_SLOTS]; Arrays.fill(owners, (short) -1);
+        int assigned = 0, normal = 0, fail = 0, pFail = 0;
+        for (int j = 0; j < CLUSTER_SLOTS; j++) {
+            ClusterNode node = cluster.slots[j];
+            if (node == null) continue; assigned++;
+            Short owner = index.get(node.name); if (owner != null) owners[j] = owner;
+            if (nodeFailed(node)) fail++; else if (nodePFailed(node)) pFail++; else normal++;
+        }
+        this.slotsAssigned = assigned; this.slotsOk = normal; this.slotsPFail = pFail; this.slotsFail = fail;
+    }
+
+    /**
+     * Must be called on the state thread.
+     *
+     * @param links    the live bus links, the array is not copied
+     * @param previous the last published topology, or null
+     */
+    public static ClusterTopology valueOf(ClusterConfigInfo config, com.moilioncircle.redis.cluster.watchdog.state.ClusterState cluster, ClusterLink[] links, ClusterTopology previous) {
+        if (previous == null) return new ClusterTopology(1L, config, cluster, links, null);
+        boolean changed = previous.state != cluster.state || !previous.config.equals(config);
+        return new ClusterTopology(changed ? previous.version + 1 : previous.version, config, cluster, links, previous);
+    }
+
+    /**
+     * Groups the nodes of {@code table} by master in one pass, shared with {@link ClusterSlotTable}.
+     *
+     * @return the unmodifiable replica lists, by index into {@code table}.
+     */
+    static List<List<ClusterNodeInfo>> newReplicas(ClusterNodeInfo[] table) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < table.length; i++) index.put(table[i].getName(), i);
+        List<List<ClusterNodeInfo>> replicas = new ArrayList<>(Collections.nCopies(table.length, Collections.<ClusterNodeInfo>emptyList()));
+        for (ClusterNodeInfo node : table) {
+            Integer master = node.getMaster() == null ? null : index.get(node.getMaster());
+            if (master == null) continue;
+            if (replicas.get(master).isEmpty()) replicas.set(master, new ArrayList<>());
+            replicas.get(master).add(node);
+        }
+        for (int i = 0; i < table.length; i++) {
+            if (!replicas.get(i).isEmpty()) replicas.set(i, Collections.unmodifiableList(replicas.get(i)));
+        }
+        return replicas;
+    }
+
+    /**
+     * @return the slot of {@code key}, honouring hash tags.
+     */
+    public int keyToSlot(byte[] key) {
+        return calcSlot(key);
+    }
+
+    /**
+     * @return the master serving {@code slot}, or null if the slot is unassigned.
+     */
+    public ClusterNodeInfo getMaster(int slot) {
+        int owner = owners[slot];
+        return owner < 0 ? null : table[owner];
+    }
+
+    public ClusterNodeInfo getMaster(byte[] key) {
+        return getMaster(calcSlot(key));
+    }
+
+    /**
+     * @return the replicas of the master serving {@code slot}, empty if the slot is unassigned.
+     */
+    public List<ClusterNodeInfo> getReplicas(int slot) {
+        int owner = owners[slot];
+        return owner < 0 ? Collections.emptyList() : replicas.get(owner);
+    }
+
+    public List<ClusterNodeInfo> getReplicas(byte[] key) {
+        return getReplicas(calcSlot(key));
+    }
+
+    /**
+     * @return the statistics of the bus links, read when this method is called.
+     */
+    public List<ClusterLinkInfo> getLinks() {
+        List<ClusterLinkInfo> list = new ArrayList<>(links.length);
+        for (ClusterLink link : links) list.add(ClusterLinkInfo.valueOf(link));
+        return list;
+    }
+
+    /**
+     * Computes a value once per version, concurrent callers wait for the same computation.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T cached(String key, Supplier<T> supplier) {
+        return (T) cache.computeIfAbsent(key, k -> supplier.get());
+    }
+
+    /**
+     *
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getMyself() {
+        return myself;
+    }
+
+    public long getMyEpoch() {
+        return myEpoch;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public ClusterState getState() {
+        return state;
+    }
+
+    public ClusterConfigInfo getConfig() {
+        return config;
+    }
+
+    public long getMessagesSent(int type) {
+        return messagesSent[type];
+    }
+
+    public long getMessagesReceived(int type) {
+        return messagesReceived[type];
+    }
+
+    public int getSlotsAssigned() {
+        return slotsAssigned;
+    }
+
+    public int getSlotsOk() {
+        return slotsOk;
+    }
+
+    public int getSlotsPFail() {
+        return slotsPFail;
+    }
+
+    public int getSlotsFail() {
+        return slotsFail;
+    }
+}
@@ -17,6 +17,9 @@
 package com.moilioncircle.redis.cluster.watchdog;
 
 import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandKeySpec;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsExporter;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
 import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
 
 /**
@@ -31,6 +34,12 @@ public interface ClusterWatchdog extends Resourcable {
 
     CommandHandler addCommandHandler(String name, CommandHandler handler);
 
+    /**
+     * Registers a command that is routed by the slot of its keys, requests for slots this node
+     * does not serve are redirected with {@code -MOVED} or {@code -ASK}.
+     */
+    CommandHandler addCommandHandler(String name, CommandHandler handler, CommandKeySpec spec);
+
     ClusterNodeListener setClusterNodeListener(ClusterNodeListener clusterNodeListener);
 
     ReplicationListener setReplicationListener(ReplicationListener replicationListener);
@@ -38,4 +47,23 @@ public interface ClusterWatchdog extends Resourcable {
     ClusterStateListener setClusterStateListener(ClusterStateListener clusterStateListener);
 
     ClusterConfigListener setClusterConfigListener(ClusterConfigListener clusterConfigListener);
+
+    ClusterFailoverListener setClusterFailoverListener(ClusterFailoverListener clusterFailoverListener);
+
+    /**
+     * Must be called before {@link #start()}, the exporter is started with the {@link #getMetricsRegistry() registry}.
+     */
+    void addMetricsExporter(MetricsExporter exporter);
+
+    /**
+     * @return the registry of the built-in metrics, the embedding application may register its own.
+     */
+    MetricsRegistry getMetricsRegistry();
+
+    /**
+     * Lock free, may be called on the request path of the embedding application.
+     *
+     * @return the latest published view of the cluster, or null before the watchdog started.
+     */
+    ClusterTopology topology();
 }
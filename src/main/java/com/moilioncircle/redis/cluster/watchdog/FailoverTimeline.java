@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timestamped phases of one failure of a node, from the first unanswered ping to the promotion of a replica
+ * or the recovery of the node. Times are unix milliseconds as seen by this node.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class FailoverTimeline {
+
+    public static final String PING_UNANSWERED = "ping-unanswered";
+    public static final String PFAIL = "pfail";
+    public static final String FAIL_QUORUM = "fail-quorum";
+    public static final String FAIL_SENT = "fail-sent";
+    public static final String FAIL_RECEIVED = "fail-received";
+    public static final String ELECTION_SCHEDULED = "election-scheduled";
+    public static final String RANK_UPDATED = "rank-updated";
+    public static final String ELECTION_STARTED = "election-started";
+    public static final String AUTH_ACK = "auth-ack";
+    public static final String PROMOTED = "promoted";
+    public static final String SLOTS_TAKEN_OVER = "slots-taken-over";
+    public static final String RECOVERED = "recovered";
+    public static final String DELETED = "deleted";
+
+    private final long id;
+    private final String node;
+    private final List<Event> events;
+
+    public FailoverTimeline(long id, String node, List<Event> events) {
+        this.id = id; this.node = node; this.events = Collections.unmodifiableList(events);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public long getStartTime() {
+        return events.get(0).getTime();
+    }
+
+    /**
+     * @return the milliseconds from the first to the last event.
+     */
+    public long getDuration() {
+        return events.get(events.size() - 1).getTime() - getStartTime();
+    }
+
+    @Override
+    public String toString() {
+        return "Timeline:[" + "node='" + node + '\'' + ", duration=" + getDuration() + ", events=" + events + ']';
+    }
+
+    public static class Event {
+        private final String phase;
+        private final long time;
+        private final String detail;
+
+        public Event(String phase, long time, String detail) {
+            this.phase = phase; this.time = time; this.detail = detail;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return extra data of the phase such as the rank or the number of votes, or null.
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public String toString() {
+            return phase + "@" + time + (detail == null ? "" : "(" + detail + ")");
+        }
+    }
+}
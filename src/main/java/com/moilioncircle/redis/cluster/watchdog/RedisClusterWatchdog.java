@@ -39,9 +39,10 @@ public class RedisClusterWatchdog extends AbstractClusterWatchdog {
 
     @Override
     public void start() {
+        // the first topology is published by the gossip, before clients are accepted.
         Resourcable.startQuietly(managers);
-        Resourcable.startQuietly(server);
         Resourcable.startQuietly(gossip);
+        Resourcable.startQuietly(server);
     }
 
     @Override
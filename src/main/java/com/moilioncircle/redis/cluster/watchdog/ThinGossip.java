@@ -16,6 +16,7 @@
 
 package com.moilioncircle.redis.cluster.watchdog;
 
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture;
 import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageDecoder;
 import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageEncoder;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
@@ -31,6 +32,7 @@ import com.moilioncircle.redis.cluster.watchdog.util.net.transport.TransportList
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -40,7 +42,6 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 
-import static com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo.valueOf;
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_MEET;
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_PING;
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
@@ -74,6 +75,7 @@ public class ThinGossip implements Resourcable {
     private ClusterConfiguration configuration;
     private volatile NioBootstrapImpl<RCmbMessage> acceptor;
     private volatile NioBootstrapImpl<RCmbMessage> initiator;
+    private volatile ClusterBusCapture capture;
 
     public ThinGossip(ClusterManagers managers) {
         this.managers = managers;
@@ -82,11 +84,18 @@ public class ThinGossip implements Resourcable {
 
     @Override
     public void start() {
+        String file = configuration.getBusCaptureFile();
+        if (file != null) {
+            try {
+                capture = new ClusterBusCapture(file, configuration.getBusCaptureMaxBytes(), configuration.getBusCaptureMaxFiles());
+            } catch (IOException e) {
+                logger.error("open bus capture failed. file: " + file, e);
+            }
+        }
         this.clusterInit();
         managers.cron.scheduleAtFixedRate(() -> {
-            ClusterConfigInfo previous = valueOf(managers.server.cluster);
-            clusterCron(); ClusterConfigInfo next = valueOf(managers.server.cluster);
-            if (!previous.equals(next)) managers.config.submit(() -> managers.configs.clusterSaveConfig(next));
+            long start = System.nanoTime(); managers.clock.tick(); managers.stalls.tick(); managers.stalls.begin("cron");
+            try { managers.stats.sample(); clusterCron(); } finally { managers.publish(); managers.stalls.end(); managers.metrics.cron.recordSince(start); }
         }, 0, 100, TimeUnit.MILLISECONDS);
     }
 
@@ -118,15 +127,47 @@ public class ThinGossip implements Resourcable {
         } catch (TimeoutException e) {
             logger.error("stop timeout error", e);
         }
+
+        ClusterBusCapture capture = this.capture;
+        if (capture != null) capture.close();
     }
 
+    /**
+     * Loads the cluster state and publishes the first {@link ClusterManagers#topology} on the state thread,
+     * then binds the cluster bus.
+     */
     public void clusterInit() {
-        managers.server.cluster = new ClusterState();
         int port = configuration.getClusterAnnouncePort();
         String address = configuration.getClusterAnnounceIp();
         int busPort = configuration.getClusterAnnounceBusPort();
+        try {
+            managers.cron.submit(() -> clusterLoad(port, busPort)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); return;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new UnsupportedOperationException(e.getCause());
+        }
+
+        acceptor = new NioBootstrapImpl<>(true, configuration.getNetworkConfiguration());
+        acceptor.setEncoder(() -> new ClusterMessageEncoder(managers.metrics.registry, managers.metrics.encode, capture));
+        acceptor.setTrafficCounter(managers.stats.bus);
+        acceptor.setDecoder(() -> new ClusterMessageDecoder(managers.metrics.registry, managers.metrics.decode, capture)); acceptor.setup();
+        acceptor.setTransportListener(new AcceptorTransportListener());
+
+        try {
+            acceptor.connect(address, busPort).get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            else throw new UnsupportedOperationException(e.getCause());
+        }
+    }
 
-        if (!managers.configs.clusterLoadConfig()) {
+    protected void clusterLoad(int port, int busPort) {
+        managers.clock.tick(); // the cached clock is stale until the first cron tick
+        managers.server.cluster = new ClusterState();
+        boolean save = !managers.configs.clusterLoadConfig();
+        if (save) {
             int flags = CLUSTER_NODE_MYSELF | CLUSTER_NODE_MASTER;
             managers.server.myself = managers.nodes.createClusterNode(null, flags);
             //
@@ -135,30 +176,21 @@ public class ThinGossip implements Resourcable {
             logger.info("No cluster configuration found, I'm " + name);
             managers.nodes.clusterAddNode(this.managers.server.myself);
             managers.notifyNodeAdded(ClusterNodeInfo.valueOf(managers.server.myself));
+        }
+        ClusterNode myself = managers.server.myself;
+        save |= myself.port != port || myself.busPort != busPort;
+        myself.port = port; myself.busPort = busPort;
+        if (save) {
             ClusterConfigInfo next = ClusterConfigInfo.valueOf(managers.server.cluster);
             managers.config.submit(() -> this.managers.configs.clusterSaveConfig(next));
         }
-
-        acceptor = new NioBootstrapImpl<>();
-        acceptor.setEncoder(ClusterMessageEncoder::new);
-        acceptor.setDecoder(ClusterMessageDecoder::new); acceptor.setup();
-        acceptor.setTransportListener(new AcceptorTransportListener());
-
-        try {
-            acceptor.connect(address, busPort).get();
-        } catch (InterruptedException | ExecutionException e) {
-            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
-            else throw new UnsupportedOperationException(e.getCause());
-        }
-
-        managers.server.myself.port = port;
-        managers.server.myself.busPort = busPort;
+        managers.publish();
     }
 
     public void clusterCron() {
         try {
             managers.server.iteration++;
-            long now = System.currentTimeMillis();
+            long now = managers.clock.currentTimeMillis();
             ClusterNode myself = managers.server.myself;
             long nodeTimeout = configuration.getClusterNodeTimeout();
 
@@ -182,8 +214,9 @@ public class ThinGossip implements Resourcable {
                 if (initiator == null) {
                     initiator = new NioBootstrapImpl<>(false, configuration.getNetworkConfiguration());
                     //
-                    initiator.setEncoder(ClusterMessageEncoder::new);
-                    initiator.setDecoder(ClusterMessageDecoder::new); initiator.setup();
+                    initiator.setEncoder(() -> new ClusterMessageEncoder(managers.metrics.registry, managers.metrics.encode, capture));
+                    initiator.setTrafficCounter(managers.stats.bus);
+                    initiator.setDecoder(() -> new ClusterMessageDecoder(managers.metrics.registry, managers.metrics.decode, capture)); initiator.setup();
                 }
 
                 final ClusterLink link = managers.connections.createClusterLink(node);
@@ -194,9 +227,10 @@ public class ThinGossip implements Resourcable {
                     link.fd = new DefaultSession<>(initiator.getTransport());
                 } catch (InterruptedException | ExecutionException e) {
                     if (e instanceof InterruptedException) Thread.currentThread().interrupt();
-                    if (node.pingTime == 0) node.pingTime = System.currentTimeMillis(); continue;
+                    managers.connections.freeClusterLink(link);
+                    if (node.pingTime == 0) node.pingTime = managers.clock.tick(); continue;
                 }
-                node.link = link; link.createTime = System.currentTimeMillis();
+                node.link = link; link.createTime = managers.clock.tick();
                 long previousPingTime = node.pingTime; boolean meet = nodeInMeet(node.flags);
                 managers.messages.clusterSendPing(link, meet ? CLUSTERMSG_TYPE_MEET : CLUSTERMSG_TYPE_PING);
                 if (previousPingTime != 0) node.pingTime = previousPingTime; node.flags &= ~CLUSTER_NODE_MEET;
@@ -222,11 +256,9 @@ public class ThinGossip implements Resourcable {
                 }
             }
 
-            boolean update = false;
+            boolean update = false; now = managers.clock.tick();
             int maxSlaves = 0, mySlaves = 0, isolated = 0;
             for (ClusterNode node : managers.server.cluster.nodes.values()) {
-                now = System.currentTimeMillis();
-
                 if (nodeIsMyself(node.flags)) continue;
                 if (nodeWithoutAddr(node.flags)) continue;
                 if (nodeInHandshake(node.flags)) continue;
@@ -253,7 +285,7 @@ public class ThinGossip implements Resourcable {
 
                 if (now - node.pingTime > nodeTimeout && !nodePFailed(node.flags) && !nodeFailed(node.flags)) {
                     logger.debug("*** NODE " + node.name + " possibly failing");
-                    node.flags |= CLUSTER_NODE_PFAIL; update = true;
+                    node.flags |= CLUSTER_NODE_PFAIL; update = true; managers.timelines.pfail(node);
                     managers.notifyNodePFailed(ClusterNodeInfo.valueOf(node, myself));
                 }
             }
@@ -272,6 +304,7 @@ public class ThinGossip implements Resourcable {
                 if (migration) clusterHandleSlaveMigration(maxSlaves);
             }
             if (update || managers.server.cluster.state == CLUSTER_FAIL) managers.states.clusterUpdateState();
+            managers.timelines.cron();
         } catch (Throwable e) { logger.error("unexpected error ", e); }
     }
 
@@ -284,7 +317,7 @@ public class ThinGossip implements Resourcable {
         if (slaves <= this.configuration.getClusterMigrationBarrier()) return;
 
         ClusterNode target = null;
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         ClusterNode candidate = managers.server.myself;
         for (ClusterNode node : managers.server.cluster.nodes.values()) {
             boolean isolated = true;
@@ -327,13 +360,9 @@ public class ThinGossip implements Resourcable {
 
         @Override
         public void onMessage(Transport<RCmbMessage> t, RCmbMessage message) {
-            managers.cron.execute(() -> {
-                ClusterConfigInfo previous;
-                previous = valueOf(managers.server.cluster);
+            managers.execute(() -> {
                 ClusterMessage hdr = (ClusterMessage) message;
-                managers.handlers.get(hdr.type).handle(link, hdr);
-                ClusterConfigInfo next = valueOf(managers.server.cluster);
-                if (!previous.equals(next)) managers.config.submit(() -> managers.configs.clusterSaveConfig(next));
+                managers.handlers.handle(link, hdr);
             });
         }
 
@@ -354,14 +383,10 @@ public class ThinGossip implements Resourcable {
 
         @Override
         public void onMessage(Transport<RCmbMessage> t, RCmbMessage message) {
-            managers.cron.execute(() -> {
-                ClusterConfigInfo previous;
-                previous = valueOf(managers.server.cluster);
+            managers.execute(() -> {
                 ClusterMessage hdr = (ClusterMessage) message;
                 ClusterLink link = managers.server.cfd.get(t);
-                managers.handlers.get(hdr.type).handle(link, hdr);
-                ClusterConfigInfo next = valueOf(managers.server.cluster);
-                if (!previous.equals(next)) managers.config.submit(() -> managers.configs.clusterSaveConfig(next));
+                managers.handlers.handle(link, hdr);
             });
         }
 
@@ -19,6 +19,7 @@ package com.moilioncircle.redis.cluster.watchdog;
 import com.moilioncircle.redis.cluster.watchdog.codec.RedisDecoder;
 import com.moilioncircle.redis.cluster.watchdog.codec.RedisEncoder;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClientState;
 import com.moilioncircle.redis.cluster.watchdog.util.net.NioBootstrapImpl;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.TransportListener;
@@ -48,9 +49,12 @@ public class ThinServer implements Resourcable {
 
     @Override
     public void start() {
-        acceptor = new NioBootstrapImpl<>();
+        acceptor = new NioBootstrapImpl<>(true, configuration.getNetworkConfiguration());
         acceptor.setEncoder(RedisEncoder::new);
-        acceptor.setDecoder(RedisDecoder::new); acceptor.setup();
+        acceptor.setTrafficCounter(managers.stats.client);
+        long maxBulkLen = configuration.getProtoMaxBulkLen();
+        int maxMultiBulkLen = configuration.getProtoMaxMultiBulkLen();
+        acceptor.setDecoder(() -> new RedisDecoder(maxBulkLen, maxMultiBulkLen, managers.commands::isStreaming)); acceptor.setup();
         acceptor.setTransportListener(new RedisTransportListener());
         try {
             acceptor.connect(null, configuration.getClusterAnnouncePort()).get();
@@ -79,9 +83,10 @@ public class ThinServer implements Resourcable {
         }
     }
 
-    private class RedisTransportListener extends TransportListener.Adaptor<byte[][]> {
+    class RedisTransportListener extends TransportListener.Adaptor<byte[][]> {
         @Override
         public void onConnected(Transport<byte[][]> t) {
+            managers.server.clients.put(t, new ClientState(t)); managers.stats.connections.increment();
             if (configuration.isVerbose()) logger.info("[acceptor] > " + t);
         }
 
@@ -90,8 +95,14 @@ public class ThinServer implements Resourcable {
             managers.commands.handleCommand(t, message);
         }
 
+        @Override
+        public void onReadComplete(Transport<byte[][]> t) {
+            t.flush();
+        }
+
         @Override
         public void onDisconnected(Transport<byte[][]> t, Throwable cause) {
+            managers.server.clients.remove(t);
             if (configuration.isVerbose()) logger.info("[acceptor] < " + t);
         }
     }
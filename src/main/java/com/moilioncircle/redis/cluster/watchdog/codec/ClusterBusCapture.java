@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCaptureReader.Record;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Appends every raw cluster bus frame the codecs decode or encode to a capture file, see {@link ClusterBusCaptureReader}.
+ * <p>
+ * The file starts with the magic {@code RCAP} and a version, followed by one record per frame:
+ * unix time in milliseconds (8 bytes), link id (4 bytes), direction (1 byte), frame length (4 bytes) and the frame.
+ * Link ids are assigned per channel in the order the channels sent or received their first frame.
+ * <p>
+ * The event loops only copy a frame into a bounded queue, a writer thread appends the records to the file.
+ * A frame that finds the queue full is dropped and counted, the event loops never wait for the disk.
+ * <p>
+ * When a record would grow the file beyond {@code maxBytes} the file is rotated to {@code file.1}, {@code file.1}
+ * to {@code file.2} and so on, keeping at most {@code maxFiles} files. A failed write stops the capture.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class ClusterBusCapture implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(ClusterBusCapture.class);
+
+    public static final int MAGIC = 0x52434150;
+    public static final int VERSION = 1;
+    public static final byte INBOUND = 0;
+    public static final byte OUTBOUND = 1;
+
+    private static final int QUEUE_SIZE = 4096;
+    private static final int FILE_HEADER = 6;
+    private static final int RECORD_HEADER = 17;
+    private static final Record EOF = new Record(0L, 0, INBOUND, new byte[0]);
+    private static final AttributeKey<Integer> LINK = AttributeKey.valueOf("cluster.bus.capture.link");
+
+    private final File file;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger links = new AtomicInteger();
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    private volatile boolean closed;
+
+    /* owned by the writer thread */
+    private long size;
+    private DataOutputStream out;
+
+    public ClusterBusCapture(String file, long maxBytes, int maxFiles) throws IOException {
+        this.file = new File(file); this.maxBytes = maxBytes; this.maxFiles = maxFiles; open();
+        this.writer = new Thread(this::run, "bus-capture"); writer.setDaemon(true); writer.start();
+    }
+
+    /**
+     * Queues the {@code length} bytes of {@code buf} at {@code index}, called by the codecs on the event loops.
+     */
+    public void write(Channel channel, byte direction, ByteBuf buf, int index, int length) {
+        if (closed) return;
+        byte[] frame = new byte[length]; buf.getBytes(index, frame);
+        if (!queue.offer(new Record(System.currentTimeMillis(), link(channel), direction, frame))) dropped.increment();
+    }
+
+    /**
+     * @return the number of frames dropped because the writer fell behind.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes the queued records and closes the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (!writer.isAlive()) return;
+        closed = true;
+        try {
+            queue.put(EOF); writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long dropped = getDropped();
+        if (dropped > 0) logger.warn("bus capture dropped " + dropped + " frames. file: " + file);
+    }
+
+    protected void run() {
+        try {
+            for (Record record = queue.take(); record != EOF; record = queue.take()) {
+                if (out == null) continue;
+                try {
+                    append(record); if (queue.isEmpty()) out.flush();
+                } catch (IOException e) {
+                    logger.error("write bus capture failed, capture stopped. file: " + file, e); closed = true; release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            release();
+        }
+    }
+
+    protected void append(Record record) throws IOException {
+        int length = record.frame.length;
+        if (size > FILE_HEADER && size + RECORD_HEADER + length > maxBytes) { out.close(); rotate(); open(); }
+        out.writeLong(record.time); out.writeInt(record.link); out.writeByte(record.direction); out.writeInt(length);
+        out.write(record.frame); size += RECORD_HEADER + length;
+    }
+
+    protected void release() {
+        if (out == null) return;
+        try { out.close(); } catch (IOException e) { logger.error("close bus capture failed. file: " + file, e); }
+        out = null;
+    }
+
+    protected int link(Channel channel) {
+        Attribute<Integer> attribute = channel.attr(LINK);
+        Integer link = attribute.get();
+        if (link != null) return link;
+        link = links.incrementAndGet();
+        Integer previous = attribute.setIfAbsent(link);
+        return previous != null ? previous : link;
+    }
+
+    protected void open() throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        out.writeInt(MAGIC); out.writeShort(VERSION); size = FILE_HEADER;
+    }
+
+    protected void rotate() throws IOException {
+        for (int i = maxFiles - 1; i > 0; i--) {
+            File source = i == 1 ? file : new File(file.getPath() + "." + (i - 1));
+            if (source.exists()) Files.move(source.toPath(), new File(file.getPath() + "." + i).toPath(), REPLACE_EXISTING);
+        }
+    }
+}
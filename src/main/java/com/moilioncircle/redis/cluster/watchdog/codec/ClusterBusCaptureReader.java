@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.MAGIC;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.VERSION;
+
+/**
+ * Reads the records of one file written by {@link ClusterBusCapture}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@NotThreadSafe
+public class ClusterBusCaptureReader implements Closeable {
+
+    private final DataInputStream in;
+
+    public ClusterBusCaptureReader(String file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            int magic = in.readInt(), version = in.readUnsignedShort();
+            if (magic != MAGIC || version != VERSION) throw new IOException("not a bus capture: " + file);
+        } catch (IOException e) {
+            in.close(); throw e;
+        }
+    }
+
+    /**
+     * @return the next record, or null at the end of the file. A record truncated by a crash ends the file.
+     */
+    public Record next() throws IOException {
+        try {
+            long time = in.readLong(); int link = in.readInt(); byte direction = in.readByte();
+            byte[] frame = new byte[in.readInt()]; in.readFully(frame);
+            return new Record(time, link, direction, frame);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static class Record {
+        public final long time;
+        public final int link;
+        public final byte direction;
+        public final byte[] frame;
+
+        public Record(long time, int link, byte direction, byte[] frame) {
+            this.time = time; this.link = link; this.direction = direction; this.frame = frame;
+        }
+    }
+}
@@ -19,6 +19,9 @@ package com.moilioncircle.redis.cluster.watchdog.codec;
 import com.moilioncircle.redis.cluster.watchdog.Version;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessageDataGossip;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Counter;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Histogram;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -38,6 +41,9 @@ import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_
 import static com.moilioncircle.redis.cluster.watchdog.ClusterState.valueOf;
 import static com.moilioncircle.redis.cluster.watchdog.Version.PROTOCOL_V0;
 import static com.moilioncircle.redis.cluster.watchdog.Version.PROTOCOL_V1;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.INBOUND;
+import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterMetricsManager.record;
+import static com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry.label;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
@@ -45,10 +51,47 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  * @since 1.0.0
  */
 public class ClusterMessageDecoder extends ByteToMessageDecoder {
+
+    private static final String RECEIVED = "cluster_link_received_bytes";
+
+    private String link;
+    private Counter received;
+    private final Histogram[] timers;
+    private final MetricsRegistry registry;
+    private final ClusterBusCapture capture;
+
+    public ClusterMessageDecoder() {
+        this(null, null, null);
+    }
+
+    /**
+     * @param registry registry of the per link byte counters, or null
+     * @param timers   decode time per message type, or null
+     * @param capture  capture of the raw frames, or null
+     */
+    public ClusterMessageDecoder(MetricsRegistry registry, Histogram[] timers, ClusterBusCapture capture) {
+        this.registry = registry; this.timers = timers; this.capture = capture;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        long start = System.nanoTime(); int index = in.readerIndex();
         ClusterMessage msg = decode(in);
-        if (msg != null) out.add(msg);
+        if (msg == null) return; out.add(msg);
+        record(timers, msg.type, start);
+        if (capture != null) capture.write(ctx.channel(), INBOUND, in, index, in.readerIndex() - index);
+        if (registry == null) return;
+        if (received == null) {
+            link = label("link", String.valueOf(ctx.channel().remoteAddress()));
+            received = registry.counter(RECEIVED, "Bytes received on a cluster link.", link);
+        }
+        received.add(in.readerIndex() - index);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (received != null) registry.remove(RECEIVED, link);
+        super.channelInactive(ctx);
     }
 
     protected ClusterMessage decode(ByteBuf in) {
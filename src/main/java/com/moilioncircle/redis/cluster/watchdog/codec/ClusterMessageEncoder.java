@@ -19,6 +19,9 @@ package com.moilioncircle.redis.cluster.watchdog.codec;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessageDataGossip;
 import com.moilioncircle.redis.cluster.watchdog.message.RCmbMessage;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Counter;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Histogram;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -35,6 +38,9 @@ import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_NULL_NAME;
 import static com.moilioncircle.redis.cluster.watchdog.Version.PROTOCOL_V0;
 import static com.moilioncircle.redis.cluster.watchdog.Version.PROTOCOL_V1;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.OUTBOUND;
+import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterMetricsManager.record;
+import static com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry.label;
 
 /**
  * @author Leon Chen
@@ -42,36 +48,54 @@ import static com.moilioncircle.redis.cluster.watchdog.Version.PROTOCOL_V1;
  */
 public class ClusterMessageEncoder extends MessageToByteEncoder<RCmbMessage> {
 
+    private static final String SENT = "cluster_link_sent_bytes";
+
+    private String link;
+    private Counter sent;
+    private final Histogram[] timers;
+    private final MetricsRegistry registry;
+    private final ClusterBusCapture capture;
+
+    public ClusterMessageEncoder() {
+        this(null, null, null);
+    }
+
+    /**
+     * @param registry registry of the per link byte counters, or null
+     * @param timers   encode time per message type, or null
+     * @param capture  capture of the raw frames, or null
+     */
+    public ClusterMessageEncoder(MetricsRegistry registry, Histogram[] timers, ClusterBusCapture capture) {
+        this.registry = registry; this.timers = timers; this.capture = capture;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, RCmbMessage msg, ByteBuf out) throws Exception {
         if (!(msg instanceof ClusterMessage)) return;
         ClusterMessage hdr = (ClusterMessage) msg;
+        long start = System.nanoTime(); int index = out.writerIndex();
         if (hdr.version == PROTOCOL_V0) encodeMessageV0(hdr, out);
         else if (hdr.version == PROTOCOL_V1) encodeMessageV1(hdr, out);
         else throw new UnsupportedOperationException("version: " + hdr.version);
+        record(timers, hdr.type, start);
+        if (capture != null) capture.write(ctx.channel(), OUTBOUND, out, index, out.writerIndex() - index);
+        if (registry == null) return;
+        if (sent == null) {
+            link = label("link", String.valueOf(ctx.channel().remoteAddress()));
+            sent = registry.counter(SENT, "Bytes sent on a cluster link.", link);
+        }
+        sent.add(out.writerIndex() - index);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (sent != null) registry.remove(SENT, link);
+        super.handlerRemoved(ctx);
     }
 
     protected void encodeMessageV0(ClusterMessage hdr, ByteBuf out) {
         out.writeBytes(hdr.signature.getBytes());
-        switch (hdr.type) {
-            case CLUSTERMSG_TYPE_PING:
-            case CLUSTERMSG_TYPE_PONG:
-            case CLUSTERMSG_TYPE_MEET:
-                out.writeInt(2208 + hdr.count * 104);
-                break;
-            case CLUSTERMSG_TYPE_FAIL:
-                out.writeInt(2248);
-                break;
-            case CLUSTERMSG_TYPE_PUBLISH:
-                out.writeInt(2224);
-                break;
-            case CLUSTERMSG_TYPE_UPDATE:
-                out.writeInt(4304);
-                break;
-            default:
-                out.writeInt(2208);
-                break;
-        }
+        out.writeInt(length(hdr));
         out.writeShort(hdr.version.getVersion());
         out.writeBytes(new byte[2]);
         out.writeShort(hdr.type);
@@ -123,25 +147,7 @@ public class ClusterMessageEncoder extends MessageToByteEncoder<RCmbMessage> {
 
     protected void encodeMessageV1(ClusterMessage hdr, ByteBuf out) {
         out.writeBytes(hdr.signature.getBytes());
-        switch (hdr.type) {
-            case CLUSTERMSG_TYPE_PING:
-            case CLUSTERMSG_TYPE_PONG:
-            case CLUSTERMSG_TYPE_MEET:
-                out.writeInt(2256 + hdr.count * 104);
-                break;
-            case CLUSTERMSG_TYPE_FAIL:
-                out.writeInt(2296);
-                break;
-            case CLUSTERMSG_TYPE_PUBLISH:
-                out.writeInt(2272);
-                break;
-            case CLUSTERMSG_TYPE_UPDATE:
-                out.writeInt(4352);
-                break;
-            default:
-                out.writeInt(2256);
-                break;
-        }
+        out.writeInt(length(hdr));
         out.writeShort(hdr.version.getVersion());
         out.writeShort(hdr.port);
         out.writeShort(hdr.type);
@@ -192,6 +198,27 @@ public class ClusterMessageEncoder extends MessageToByteEncoder<RCmbMessage> {
         }
     }
 
+    /**
+     * @return the encoded size of the message in bytes.
+     */
+    public static int length(ClusterMessage hdr) {
+        int base = hdr.version == PROTOCOL_V0 ? 0 : 48;
+        switch (hdr.type) {
+            case CLUSTERMSG_TYPE_PING:
+            case CLUSTERMSG_TYPE_PONG:
+            case CLUSTERMSG_TYPE_MEET:
+                return base + 2208 + hdr.count * 104;
+            case CLUSTERMSG_TYPE_FAIL:
+                return base + 2248;
+            case CLUSTERMSG_TYPE_PUBLISH:
+                return base + 2224;
+            case CLUSTERMSG_TYPE_UPDATE:
+                return base + 4304;
+            default:
+                return base + 2208;
+        }
+    }
+
     public byte[] extract(String str, byte[] bytes) {
         if (str == null) return bytes;
         byte[] extracted = str.getBytes();
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+/**
+ * The request line of an HTTP/1.x request and whether the client asked to close the connection after it.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class HttpRequest {
+    public final String method;
+    public final String path;
+    public final boolean close;
+
+    public HttpRequest(String method, String path, boolean close) {
+        this.method = method; this.path = path; this.close = close;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path;
+    }
+}
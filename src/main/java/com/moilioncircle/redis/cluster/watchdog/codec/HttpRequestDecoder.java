@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Minimal HTTP/1.x request decoder for the metrics endpoint, emits an {@link HttpRequest} and only keeps the
+ * {@code Connection} header. Request bodies are not supported.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class HttpRequestDecoder extends ByteToMessageDecoder {
+
+    private static final int MAX_HEADER_SIZE = 8192;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        int end = -1;
+        for (int i = in.readerIndex() + 3; i < in.writerIndex(); i++) {
+            if (in.getByte(i) == '\n' && in.getByte(i - 1) == '\r' && in.getByte(i - 2) == '\n' && in.getByte(i - 3) == '\r') {
+                end = i + 1; break;
+            }
+        }
+        if (end < 0) {
+            if (in.readableBytes() > MAX_HEADER_SIZE) throw new TooLongFrameException("http header is larger than " + MAX_HEADER_SIZE);
+            return;
+        }
+        String request = in.toString(in.readerIndex(), end - in.readerIndex(), US_ASCII);
+        in.readerIndex(end);
+        String[] lines = request.split("\r\n");
+        String[] line = lines[0].split(" ");
+        // HTTP/1.1 keeps the connection alive unless told otherwise, HTTP/1.0 the other way around
+        boolean close = line.length < 3 || !line[2].equals("HTTP/1.1");
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon < 0 || !lines[i].substring(0, colon).trim().equalsIgnoreCase("connection")) continue;
+            String connection = lines[i].substring(colon + 1).trim();
+            if (connection.equalsIgnoreCase("close")) close = true;
+            else if (connection.equalsIgnoreCase("keep-alive")) close = false;
+        }
+        out.add(new HttpRequest(line[0], line.length > 1 ? line[1] : "/", close));
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class HttpResponse {
+    public final int status;
+    public final String reason;
+    public final String body;
+    public final boolean close;
+
+    public HttpResponse(int status, String reason, String body, boolean close) {
+        this.status = status; this.reason = reason; this.body = body; this.close = close;
+    }
+}
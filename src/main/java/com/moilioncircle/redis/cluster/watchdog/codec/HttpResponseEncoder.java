@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes an {@link HttpResponse}, the body of a {@code 200 OK} is of the given content type.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class HttpResponseEncoder extends MessageToByteEncoder<HttpResponse> {
+
+    private final String contentType;
+
+    public HttpResponseEncoder(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, HttpResponse msg, ByteBuf out) throws Exception {
+        byte[] body = msg.body.getBytes(UTF_8);
+        out.writeCharSequence("HTTP/1.1 " + msg.status + " " + msg.reason, US_ASCII);
+        out.writeCharSequence("\r\nContent-Type: " + (msg.status == 200 ? contentType : "text/plain; charset=utf-8"), US_ASCII);
+        if (msg.close) out.writeCharSequence("\r\nConnection: close", US_ASCII);
+        out.writeCharSequence("\r\nContent-Length: " + body.length + "\r\n\r\n", US_ASCII);
+        out.writeBytes(body);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.Math.min;
+
+/**
+ * A bulk that {@link RedisDecoder} hands over chunk by chunk instead of copying it into one {@code byte[]}.
+ * <p>
+ * The request is dispatched as soon as the bulk starts, with an empty marker in place of the bulk, and the
+ * stream is attached to the connection under {@link #STREAM}. The handler claims it with
+ * {@link #remove(Attribute, byte[])} and must consume it off the I/O thread.
+ * At most {@code capacity} chunks are queued; the decoder stops reading the socket until the consumer
+ * catches up, and stops decoding the next request until the stream is {@link #release() released}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class RedisBulkStream extends InputStream {
+
+    private static final byte[] EOF = new byte[0];
+    private static final byte[] ABORT = new byte[0];
+    public static final AttributeKey<RedisBulkStream> STREAM = AttributeKey.valueOf("redis-bulk-stream");
+
+    private final int capacity;
+    private final Runnable resume;
+    private final Attribute<RedisBulkStream> attr;
+    private final byte[] marker = new byte[0];
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    private int position;
+    private byte[] chunk;
+    private volatile boolean closed;
+    private volatile boolean aborted;
+    private volatile boolean released;
+
+    RedisBulkStream(int capacity, Attribute<RedisBulkStream> attr, Runnable resume) {
+        this.attr = attr;
+        this.resume = resume;
+        this.capacity = capacity;
+        attr.set(this);
+    }
+
+    /**
+     * @param attr  the {@link #STREAM} attribute of the connection
+     * @param value the bulk value of a decoded request
+     * @return the stream behind {@code value}, or null if {@code value} was decoded into memory.
+     */
+    public static RedisBulkStream remove(Attribute<RedisBulkStream> attr, byte[] value) {
+        if (value == null || value.length != 0) return null;
+        RedisBulkStream stream = attr.get();
+        if (stream == null || stream.marker != value) return null;
+        return attr.compareAndSet(stream, null) ? stream : null;
+    }
+
+    /**
+     * Blocks until the trailing arguments of the request have been decoded into the request array.
+     */
+    public void await() throws IOException {
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (aborted) throw new EOFException("connection closed");
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (chunk == EOF) return -1;
+        if (chunk == ABORT) throw new EOFException("connection closed");
+        if (chunk == null || position == chunk.length) {
+            try {
+                chunk = chunks.take(); position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (chunks.size() <= capacity / 2 && paused.compareAndSet(true, false)) resume.run();
+            if (chunk == ABORT) throw new EOFException("connection closed");
+            if (chunk == EOF) return -1;
+        }
+        int n = min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n; return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return chunk == null || chunk == EOF || chunk == ABORT ? 0 : chunk.length - position;
+    }
+
+    /**
+     * Discards the unread part of the bulk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true; chunks.clear();
+        if (paused.compareAndSet(true, false)) resume.run();
+    }
+
+    /**
+     * Closes the stream and lets the decoder continue with the next request. Called once the reply is written.
+     */
+    public void release() throws IOException {
+        if (released) return;
+        close(); released = true; attr.compareAndSet(this, null); resume.run();
+    }
+
+    /**
+     *
+     */
+    byte[] marker() {
+        return marker;
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    boolean isFull() {
+        return !closed && chunks.size() >= capacity;
+    }
+
+    boolean pause() {
+        paused.set(true);
+        if (isFull()) return true;
+        paused.set(false); return false;
+    }
+
+    void offer(byte[] chunk) {
+        if (!closed) chunks.offer(chunk);
+    }
+
+    void end() {
+        offer(EOF);
+    }
+
+    void complete() {
+        completed.countDown();
+    }
+
+    void abort() {
+        aborted = true; attr.compareAndSet(this, null);
+        chunks.offer(ABORT); completed.countDown();
+    }
+}
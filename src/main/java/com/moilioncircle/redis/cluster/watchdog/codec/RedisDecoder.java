@@ -16,97 +16,267 @@
 
 package com.moilioncircle.redis.cluster.watchdog.codec;
 
+import com.moilioncircle.redis.cluster.watchdog.util.net.ReadPauses;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.util.List;
+import java.util.function.BiPredicate;
+
+import static java.lang.Math.min;
 
 /**
+ * Resumable RESP request decoder.
+ * <p>
+ * The parse state (array length, current element, bulk length and bytes remaining) is kept
+ * across reads, so a large bulk that arrives in many TCP segments is copied once and
+ * consumed bytes are never scanned again.
+ * <p>
+ * A bulk larger than {@link #STREAM_CHUNK_SIZE} in a request accepted by the {@code streaming} predicate
+ * is not copied into memory but handed over as a {@link RedisBulkStream}.
+ *
  * @author Leon Chen
  * @since 1.0.0
  */
 public class RedisDecoder extends ByteToMessageDecoder {
 
+    public static final long PROTO_MAX_BULK_LEN = 512L * 1024 * 1024;
+    public static final int PROTO_MAX_MULTI_BULK_LEN = 1024 * 1024;
+    public static final int PROTO_INLINE_MAX_SIZE = 64 * 1024;
+    public static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    public static final int STREAM_CHUNKS = 4;
+
+    private static final int TYPE = 0;
+    private static final int MULTI_BULK_LEN = 1;
+    private static final int ELEMENT_TYPE = 2;
+    private static final int BULK_LEN = 3;
+    private static final int BULK = 4;
+    private static final int BULK_CRLF = 5;
+    private static final int LINE = 6;
+    private static final int DISCARD = 7;
+    private static final int STREAM = 8;
+    private static final int WAIT = 9;
+
+    private final long maxBulkLen;
+    private final int maxMultiBulkLen;
+    private final BiPredicate<byte[][], Integer> streaming;
+
+    private int state = TYPE;
+    private int scanned;
+    private int index;
+    private int offset;
+    private byte[] bulk;
+    private int remaining;
+    private byte[][] request;
+    private RedisBulkStream stream;
+
+    public RedisDecoder() {
+        this(PROTO_MAX_BULK_LEN, PROTO_MAX_MULTI_BULK_LEN);
+    }
+
+    public RedisDecoder(long maxBulkLen, int maxMultiBulkLen) {
+        this(maxBulkLen, maxMultiBulkLen, null);
+    }
+
+    /**
+     * @param streaming tests a partially decoded request and the index of the large bulk about to be decoded,
+     *                  returns true if that bulk may be streamed.
+     */
+    public RedisDecoder(long maxBulkLen, int maxMultiBulkLen, BiPredicate<byte[][], Integer> streaming) {
+        this.streaming = streaming;
+        this.maxBulkLen = maxBulkLen;
+        this.maxMultiBulkLen = maxMultiBulkLen;
+    }
+
+    @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        in.markReaderIndex();
+        while (in.isReadable()) {
+            switch (state) {
+                case TYPE:
+                    int c = in.readByte();
+                    if (c == '*') {
+                        state = MULTI_BULK_LEN;
+                    } else if (c == '$') {
+                        // single bulk request
+                        request = new byte[1][]; state = BULK_LEN;
+                    } else if (c == '+' || c == '-' || c == ':') {
+                        // single line request
+                        request = new byte[1][]; state = LINE;
+                    } else {
+                        state = DISCARD; ctx.close(); return;
+                    }
+                    break;
+                case MULTI_BULK_LEN:
+                    int len = readLength(ctx, in, "multibulk");
+                    if (len == -2) return; // need more bytes
+                    if (len == -3) break; // protocol error
+                    if (len > maxMultiBulkLen || len < -1) {
+                        protocolError(ctx, in, "invalid multibulk length"); break;
+                    }
+                    if (len <= 0) { reset(); break; }
+                    request = new byte[len][]; index = 0; state = ELEMENT_TYPE;
+                    break;
+                case ELEMENT_TYPE:
+                    c = in.readByte();
+                    if (c == '$') state = BULK_LEN;
+                    else if (c == '+' || c == '-' || c == ':') state = LINE;
+                    else protocolError(ctx, in, "expected '$', got '" + (char) c + "'");
+                    break;
+                case BULK_LEN:
+                    len = readLength(ctx, in, "bulk");
+                    if (len == -2) return;
+                    if (len == -3) break;
+                    if (len < -1 || len > maxBulkLen) {
+                        protocolError(ctx, in, "invalid bulk length"); break;
+                    }
+                    if (len == -1) { next(ctx, out, null); break; }
+                    if (isStreaming(len)) {
+                        stream = new RedisBulkStream(STREAM_CHUNKS, ctx.channel().attr(RedisBulkStream.STREAM), () -> ctx.executor().execute(() -> resume(ctx)));
+                        bulk = request[index] = stream.marker(); remaining = len; state = STREAM;
+                        out.add(request); break;
+                    }
+                    bulk = new byte[len]; offset = 0; state = BULK;
+                    break;
+                case BULK:
+                    int n = min(in.readableBytes(), bulk.length - offset);
+                    in.readBytes(bulk, offset, n); offset += n;
+                    if (offset == bulk.length) state = BULK_CRLF;
+                    break;
+                case STREAM:
+                    if (stream.isFull() && stream.pause()) {
+                        ReadPauses.pause(ctx.channel(), ReadPauses.STREAM); return;
+                    }
+                    n = min(min(in.readableBytes(), remaining), STREAM_CHUNK_SIZE);
+                    byte[] chunk = new byte[n]; in.readBytes(chunk); stream.offer(chunk);
+                    if ((remaining -= n) == 0) { stream.end(); state = BULK_CRLF; }
+                    break;
+                case BULK_CRLF:
+                    if (in.readableBytes() < 2) return;
+                    if (in.readByte() != '\r' || in.readByte() != '\n') {
+                        protocolError(ctx, in, "invalid bulk terminator"); break;
+                    }
+                    byte[] value = bulk; bulk = null; next(ctx, out, value);
+                    break;
+                case LINE:
+                    int eol = findEndOfLine(in);
+                    if (eol == -2) return;
+                    if (eol == -1) { protocolError(ctx, in, "too big inline request"); break; }
+                    value = new byte[eol - in.readerIndex()];
+                    in.readBytes(value); in.skipBytes(2); next(ctx, out, value);
+                    break;
+                case WAIT:
+                    return;
+                case DISCARD:
+                default:
+                    in.skipBytes(in.readableBytes());
+                    return;
+            }
+        }
+    }
+
+    protected void next(ChannelHandlerContext ctx, List<Object> out, byte[] value) {
+        request[index++] = value;
+        if (index < request.length) { state = ELEMENT_TYPE; return; }
+        if (stream == null) { out.add(request); reset(); return; }
+        // the request was dispatched when the stream started, hold the next one until the stream is released.
+        reset(); stream.complete();
+        if (stream.isReleased()) { stream = null; return; }
+        state = WAIT; ReadPauses.pause(ctx.channel(), ReadPauses.STREAM);
+    }
+
+    protected boolean isStreaming(int len) {
+        return len > STREAM_CHUNK_SIZE && streaming != null && streaming.test(request, index);
+    }
+
+    /**
+     * Called on the event loop when the consumer of {@link #stream} drained its queue or released it.
+     */
+    protected void resume(ChannelHandlerContext ctx) {
+        if (state == WAIT && !stream.isReleased()) return;
+        if (state == WAIT) { stream = null; state = TYPE; }
+        ReadPauses.resume(ctx.channel(), ReadPauses.STREAM);
+        if (!internalBuffer().isReadable()) return;
         try {
-            Object request = decode(ctx, in);
-            if (request instanceof byte[][]) out.add(request);
-            else if (request instanceof byte[]) out.add(new byte[][]{(byte[]) request});
-        } catch (Exception e) { in.resetReaderIndex(); }
+            channelRead(ctx, Unpooled.EMPTY_BUFFER);
+        } catch (Exception e) {
+            ctx.fireExceptionCaught(e);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        // do not let the decoder issue another read while the stream consumer is behind.
+        if (ctx.channel().config().isAutoRead()) super.channelReadComplete(ctx);
+        else ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (stream != null) { stream.abort(); stream = null; }
+        super.channelInactive(ctx);
     }
 
-    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) {
-        int c = in.readByte(), index, v;
-        byte[] rs;
-        switch (c) {
-            case '$':
-                //RESP Bulk Strings
-                v = (int) parseLong(in);
-                if (v == -1) return null;
-                rs = new byte[v]; in.readBytes(rs);
-                if (in.readByte() != '\r') ctx.close();
-                if (in.readByte() != '\n') ctx.close();
-                return rs;
-            case ':':
-                // RESP Integers
-                for (v = 0, index = in.readerIndex(); ; ) {
-                    while (in.readByte() != '\r') v++;
-                    if (in.readByte() != '\n') v++;
-                    else break;
-                }
-                rs = new byte[v];
-                in.getBytes(index, rs);
-                return rs;
-            case '*':
-                // RESP Arrays
-                v = (int) parseLong(in);
-                if (v == -1) return null;
-                byte[][] ary = new byte[v][];
-                for (int i = 0; i < v; i++) ary[i] = (byte[]) decode(ctx, in);
-                return ary;
-            case '+':
-                // RESP Simple Strings
-                for (v = 0, index = in.readerIndex(); ; ) {
-                    while (in.readByte() != '\r') v++;
-                    if (in.readByte() != '\n') v++;
-                    else break;
-                }
-                rs = new byte[v];
-                in.getBytes(index, rs);
-                return rs;
-            case '-':
-                // RESP Errors
-                for (v = 0, index = in.readerIndex(); ; ) {
-                    while (in.readByte() != '\r') v++;
-                    if (in.readByte() != '\n') v++;
-                    else break;
-                }
-                rs = new byte[v];
-                in.getBytes(index, rs);
-                return rs;
-            default:
-                ctx.close();
-                return null;
+    protected void reset() {
+        this.state = TYPE;
+        this.index = 0;
+        this.bulk = null;
+        this.request = null;
+    }
+
+    /**
+     * @return the parsed length, -2 if the line is incomplete, -3 if a protocol error was raised.
+     */
+    protected int readLength(ChannelHandlerContext ctx, ByteBuf in, String type) {
+        int eol = findEndOfLine(in);
+        if (eol == -2) return -2;
+        if (eol == -1) { protocolError(ctx, in, "too big " + type + " count"); return -3; }
+        long v = parseLong(in, in.readerIndex(), eol);
+        in.readerIndex(eol + 2);
+        if (v == Long.MIN_VALUE || v > Integer.MAX_VALUE) {
+            protocolError(ctx, in, "invalid " + type + " length"); return -3;
         }
+        return (int) v;
     }
 
-    public static long parseLong(ByteBuf in) {
-        long v = 0;
-        int sign = 1;
-        int read = in.readByte();
-        if (read == '-') {
-            read = in.readByte();
-            sign = -1;
+    /**
+     * Locates the next CRLF without re-scanning the bytes examined by the previous call.
+     *
+     * @return the index of '\r', -2 if more bytes are needed, -1 if the line is too long.
+     */
+    protected int findEndOfLine(ByteBuf in) {
+        int from = in.readerIndex() + scanned, to = in.writerIndex();
+        for (int i = from; i < to - 1; i++) {
+            if (in.getByte(i) != '\r' || in.getByte(i + 1) != '\n') continue;
+            scanned = 0; return i;
         }
-        do {
-            if (read == '\r' && in.readByte() == '\n') break;
-            int value = read - '0';
+        scanned = Math.max(0, to - 1 - in.readerIndex());
+        if (scanned > PROTO_INLINE_MAX_SIZE) { scanned = 0; return -1; }
+        return -2;
+    }
+
+    protected void protocolError(ChannelHandlerContext ctx, ByteBuf in, String message) {
+        if (stream != null) { stream.abort(); stream = null; }
+        reset(); state = DISCARD; in.skipBytes(in.readableBytes());
+        byte[] error = ("-ERR Protocol error: " + message + "\r\n").getBytes();
+        ctx.writeAndFlush(error).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * @return the parsed value, or {@link Long#MIN_VALUE} if the bytes are not a valid integer.
+     */
+    public static long parseLong(ByteBuf in, int from, int to) {
+        if (from >= to) return Long.MIN_VALUE;
+        long v = 0; int sign = 1, i = from;
+        if (in.getByte(i) == '-') { sign = -1; i++; }
+        if (i >= to || to - i > 18) return Long.MIN_VALUE;
+        for (; i < to; i++) {
+            int value = in.getByte(i) - '0';
             if (value >= 0 && value < 10) v = v * 10 + value;
-            else throw new NumberFormatException("Invalid character in integer");
-            read = in.readByte();
-        } while (true);
+            else return Long.MIN_VALUE;
+        }
         return v * sign;
     }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.CharsetUtil.UTF_8;
+
+/**
+ * Writes RESP replies straight into a pooled {@link ByteBuf}, which passes the {@link RedisEncoder} untouched.
+ * <p>
+ * Several replies may be appended to one builder, the buffer is handed over to the transport by
+ * {@link #write(Transport)} and must not be used afterwards. A reply written on the I/O thread is flushed at the end
+ * of the read, a reply written from any other thread is flushed at once.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@NotThreadSafe
+public class RedisReplyBuilder {
+
+    public static final ByteBuf OK = constant("+OK\r\n");
+    public static final ByteBuf PONG = constant("+PONG\r\n");
+    public static final ByteBuf ZERO = constant(":0\r\n");
+    public static final ByteBuf ONE = constant(":1\r\n");
+    public static final ByteBuf NULL_BULK = constant("$-1\r\n");
+    public static final ByteBuf NULL_ARRAY = constant("*-1\r\n");
+    public static final ByteBuf EMPTY_ARRAY = constant("*0\r\n");
+
+    /**
+     * The error replies written to a connection, the command stats count them as failed calls.
+     */
+    public static final AttributeKey<AtomicLong> ERRORS = AttributeKey.valueOf("redis-error-replies");
+
+    private static final short CRLF = ('\r' << 8) | '\n';
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes();
+
+    private final ByteBuf buf;
+
+    public RedisReplyBuilder() {
+        this(PooledByteBufAllocator.DEFAULT);
+    }
+
+    public RedisReplyBuilder(ByteBufAllocator allocator) {
+        this.buf = allocator.ioBuffer();
+    }
+
+    /**
+     * Writes a shared constant reply without copying it.
+     */
+    public static void write(Transport<byte[][]> t, ByteBuf constant) {
+        t.write(constant.duplicate(), !t.inEventLoop());
+    }
+
+    public RedisReplyBuilder status(String message) {
+        buf.writeByte('+'); buf.writeCharSequence(message, UTF_8); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder status(byte[] message) {
+        buf.writeByte('+'); buf.writeBytes(message); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder error(String message) {
+        buf.writeByte('-'); buf.writeCharSequence(message, UTF_8); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder error(byte[] message) {
+        buf.writeByte('-'); buf.writeBytes(message); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder number(long number) {
+        buf.writeByte(':'); writeLong(number); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder bulk(String message) {
+        if (message == null) return nullBulk();
+        return bulk(message.getBytes(UTF_8));
+    }
+
+    public RedisReplyBuilder bulk(byte[] message) {
+        if (message == null) return nullBulk();
+        buf.writeByte('$'); writeLong(message.length); buf.writeShort(CRLF);
+        buf.writeBytes(message); buf.writeShort(CRLF); return this;
+    }
+
+    public RedisReplyBuilder nullBulk() {
+        buf.writeBytes(NULL_BULK, NULL_BULK.readerIndex(), NULL_BULK.readableBytes()); return this;
+    }
+
+    /**
+     * Writes an array header, the {@code size} elements follow.
+     */
+    public RedisReplyBuilder array(int size) {
+        buf.writeByte('*'); writeLong(size); buf.writeShort(CRLF); return this;
+    }
+
+    /**
+     * Writes a RESP3 map header, {@code size} key value pairs follow.
+     */
+    public RedisReplyBuilder map(int size) {
+        buf.writeByte('%'); writeLong(size); buf.writeShort(CRLF); return this;
+    }
+
+    /**
+     * Appends bytes that are already RESP encoded.
+     */
+    public RedisReplyBuilder raw(byte[] bytes) {
+        buf.writeBytes(bytes); return this;
+    }
+
+    public RedisReplyBuilder raw(ByteBuf bytes) {
+        buf.writeBytes(bytes, bytes.readerIndex(), bytes.readableBytes()); return this;
+    }
+
+    public void write(Transport<byte[][]> t) {
+        if (buf.isReadable() && buf.getByte(buf.readerIndex()) == '-') errors(t).incrementAndGet();
+        t.write(buf, !t.inEventLoop());
+    }
+
+    /**
+     * @return the number of error replies written to {@code t} so far.
+     */
+    public static long getErrors(Transport<byte[][]> t) {
+        AtomicLong errors = t.attr(ERRORS).get();
+        return errors == null ? 0L : errors.get();
+    }
+
+    protected static AtomicLong errors(Transport<byte[][]> t) {
+        Attribute<AtomicLong> attr = t.attr(ERRORS);
+        AtomicLong errors = attr.get(); if (errors != null) return errors;
+        AtomicLong prev = attr.setIfAbsent(errors = new AtomicLong());
+        return prev != null ? prev : errors;
+    }
+
+    /**
+     * Copies the encoded reply out and releases the buffer, for replies that are cached and written many times.
+     */
+    public byte[] toByteArray() {
+        try { return ByteBufUtil.getBytes(buf); } finally { buf.release(); }
+    }
+
+    /**
+     * Writes a reply encoded by {@link #toByteArray()} without copying it.
+     */
+    public static void write(Transport<byte[][]> t, byte[] encoded) {
+        t.write(Unpooled.wrappedBuffer(encoded), !t.inEventLoop());
+    }
+
+    /**
+     * Releases the buffer of a reply that will not be written.
+     */
+    public void release() {
+        buf.release();
+    }
+
+    protected void writeLong(long v) {
+        if (v == Long.MIN_VALUE) { buf.writeBytes(MIN_LONG); return; }
+        if (v < 0) { buf.writeByte('-'); v = -v; }
+        if (v < 10) { buf.writeByte((int) ('0' + v)); return; }
+        int digits = 1;
+        for (long p = 10; digits < 19 && v >= p; p *= 10) digits++;
+        int index = buf.writerIndex();
+        buf.ensureWritable(digits);
+        for (int i = index + digits - 1; i >= index; i--) {
+            buf.setByte(i, (int) ('0' + v % 10)); v /= 10;
+        }
+        buf.writerIndex(index + digits);
+    }
+
+    private static ByteBuf constant(String reply) {
+        return Unpooled.unreleasableBuffer(Unpooled.directBuffer(reply.length()).writeBytes(reply.getBytes()));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A handler that completes its reply later instead of writing it to the transport.
+ * <p>
+ * {@link #handleAsync(Transport, byte[][])} is called on the thread that dispatches the command and must not
+ * block. The connection is suspended until the returned stage completes, so the replies of a pipeline keep
+ * their order whichever thread completes them. A stage completed exceptionally is answered with {@code -ERR}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public interface AsyncCommandHandler extends CommandHandler {
+
+    /**
+     * @return the reply, a null reply is written as a null bulk.
+     */
+    CompletionStage<RedisReplyBuilder> handleAsync(Transport<byte[][]> t, byte[][] rawMessage);
+
+    @Override
+    default void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        handle(t, rawMessage);
+    }
+
+    /**
+     * Only called when the handler is invoked outside the dispatcher, writes and flushes the reply
+     * once it completes without ordering it against other replies.
+     */
+    @Override
+    default void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        handleAsync(t, rawMessage).whenComplete((reply, cause) -> { write(t, reply, cause); t.flush(); });
+    }
+
+    static void write(Transport<byte[][]> t, RedisReplyBuilder reply, Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        if (cause != null) {
+            if (reply != null) reply.release();
+            new RedisReplyBuilder().error("ERR " + cause.getMessage()).write(t);
+        } else if (reply == null) {
+            RedisReplyBuilder.write(t, RedisReplyBuilder.NULL_BULK);
+        } else {
+            reply.write(t);
+        }
+    }
+
+    abstract class Adaptor extends CommandHandler.Adaptor implements AsyncCommandHandler {
+    }
+}
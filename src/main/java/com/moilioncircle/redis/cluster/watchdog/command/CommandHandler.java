@@ -17,6 +17,7 @@
 package com.moilioncircle.redis.cluster.watchdog.command;
 
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
 import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
@@ -35,6 +36,21 @@ public interface CommandHandler {
 
     void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage);
 
+    /**
+     * Entry point of the dispatcher. Handlers that only need the raw bytes override this to skip
+     * the {@code String[]} conversion, the default converts the arguments and calls the method above.
+     */
+    default void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        handle(t, toStrings(rawMessage), rawMessage);
+    }
+
+    static String[] toStrings(byte[][] rawMessage) {
+        String[] message = new String[rawMessage.length];
+        for (int i = 0; i < rawMessage.length; i++)
+            message[i] = rawMessage[i] == null ? null : new String(rawMessage[i]);
+        return message;
+    }
+
     abstract class Adaptor implements CommandHandler {
         protected StorageEngine storageEngine;
         protected ClusterConfiguration configuration;
@@ -63,34 +79,42 @@ public interface CommandHandler {
          *
          */
         protected void reply(Transport<byte[][]> t, String message) {
-            reply(t, message.getBytes());
+            if (message.equals("OK")) RedisReplyBuilder.write(t, RedisReplyBuilder.OK);
+            else if (message.equals("PONG")) RedisReplyBuilder.write(t, RedisReplyBuilder.PONG);
+            else newReply().status(message).write(t);
         }
 
         protected void reply(Transport<byte[][]> t, byte[] message) {
-            t.write("+".getBytes(), false);
-            t.write(message, false); t.write("\r\n".getBytes(), true);
+            newReply().status(message).write(t);
         }
 
         protected void replyNumber(Transport<byte[][]> t, long number) {
-            t.write((":" + number + "\r\n").getBytes(), true);
+            if (number == 0) RedisReplyBuilder.write(t, RedisReplyBuilder.ZERO);
+            else if (number == 1) RedisReplyBuilder.write(t, RedisReplyBuilder.ONE);
+            else newReply().number(number).write(t);
         }
 
         protected void replyBulk(Transport<byte[][]> t, String message) {
-            replyBulk(t, message.getBytes());
+            newReply().bulk(message).write(t);
         }
 
         protected void replyBulk(Transport<byte[][]> t, byte[] message) {
-            t.write(("$" + message.length + "\r\n").getBytes(), false);
-            t.write(message, false); t.write("\r\n".getBytes(), true);
+            newReply().bulk(message).write(t);
         }
 
         protected void replyError(Transport<byte[][]> t, String message) {
-            replyError(t, message.getBytes());
+            newReply().error(message).write(t);
         }
 
         protected void replyError(Transport<byte[][]> t, byte[] message) {
-            t.write("-".getBytes(), false);
-            t.write(message, false); t.write("\r\n".getBytes(), true);
+            newReply().error(message).write(t);
+        }
+
+        /**
+         * Starts a reply in a pooled buffer, for replies that the methods above do not cover.
+         */
+        protected RedisReplyBuilder newReply() {
+            return new RedisReplyBuilder();
         }
     }
 }
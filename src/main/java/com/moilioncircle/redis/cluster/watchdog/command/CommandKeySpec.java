@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Key positions of a command, same as the first key, last key and step of redis {@code COMMAND INFO}.
+ * A negative last key counts from the end, -1 is the last argument.
+ * <p>
+ * Commands registered with a key spec are routed: a request for a slot this node does not serve is
+ * answered with {@code -MOVED}, {@code -ASK}, {@code -CROSSSLOT} or {@code -TRYAGAIN} instead of
+ * reaching the handler.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@Immutable
+public class CommandKeySpec {
+
+    private final int firstKey;
+    private final int lastKey;
+    private final int step;
+    private final boolean readonly;
+
+    private CommandKeySpec(int firstKey, int lastKey, int step, boolean readonly) {
+        this.firstKey = firstKey;
+        this.lastKey = lastKey;
+        this.step = step;
+        this.readonly = readonly;
+    }
+
+    public static CommandKeySpec valueOf(int firstKey, int lastKey, int step) {
+        if (firstKey < 1 || step < 1 || (lastKey > 0 && lastKey < firstKey)) {
+            throw new IllegalArgumentException("illegal key spec: " + firstKey + " " + lastKey + " " + step);
+        }
+        return new CommandKeySpec(firstKey, lastKey, step, false);
+    }
+
+    /**
+     * A command with a single key at argument 1, such as {@code GET key}.
+     */
+    public static CommandKeySpec singleKey() {
+        return new CommandKeySpec(1, 1, 1, false);
+    }
+
+    /**
+     * Marks the command as read only, a replica serves it for the slots of its master to {@code READONLY} clients.
+     */
+    public CommandKeySpec readonly() {
+        return new CommandKeySpec(firstKey, lastKey, step, true);
+    }
+
+    /**
+     * @return the index of the last key in {@code argc} arguments, less than {@link #getFirstKey()} if there are no keys.
+     */
+    public int lastKey(int argc) {
+        int last = lastKey < 0 ? argc + lastKey : lastKey;
+        return Math.min(last, argc - 1);
+    }
+
+    /**
+     *
+     */
+    public int getFirstKey() {
+        return firstKey;
+    }
+
+    public int getLastKey() {
+        return lastKey;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public boolean isReadonly() {
+        return readonly;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandKeySpec[" + firstKey + ", " + lastKey + ", " + step + (readonly ? ", readonly]" : "]");
+    }
+}
@@ -16,9 +16,11 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command;
 
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
+import static java.lang.Integer.parseInt;
 import static java.lang.Long.parseLong;
 
 /**
@@ -34,20 +36,43 @@ public class ConfigCommandHandler extends AbstractCommandHandler {
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
         if (message.length == 4 && message[1] != null && message[1].equalsIgnoreCase("set")) {
-            if (message[2] == null || !message[2].equalsIgnoreCase("cluster-node-timeout")) {
-                replyError(t, "ERR wrong number of arguments for 'config' command"); return;
-            }
-            if (message[3] == null) {
+            if (message[2] == null || message[3] == null) {
                 replyError(t, "ERR wrong number of arguments for 'config' command"); return;
             }
             try {
-                long timeout = parseLong(message[3]);
-                managers.configuration.setClusterNodeTimeout(timeout); reply(t, "OK");
+                if (set(message[2].toLowerCase(), message[3])) reply(t, "OK");
+                else replyError(t, "ERR wrong number of arguments for 'config' command");
             } catch (Exception e) { replyError(t, "ERR wrong number of arguments for 'config' command"); }
         } else if (message.length == 2 && message[1] != null && message[1].equalsIgnoreCase("rewrite")) {
             reply(t, "OK");
+        } else if (message.length == 2 && message[1] != null && message[1].equalsIgnoreCase("resetstat")) {
+            managers.stats.resetCommandStats(); reply(t, "OK");
         } else {
             replyError(t, "ERR wrong number of arguments for 'config' command");
         }
     }
+
+    protected boolean set(String name, String value) {
+        ClusterConfiguration configuration = managers.configuration;
+        switch (name) {
+            case "cluster-node-timeout":
+                configuration.setClusterNodeTimeout(parseLong(value)); return true;
+            case "slowlog-log-slower-than":
+                configuration.setSlowlogLogSlowerThan(parseLong(value)); return true;
+            case "slowlog-max-len":
+                int len = parseInt(value); if (len < 0) return false;
+                configuration.setSlowlogMaxLen(len); return true;
+            case "latency-monitor-threshold":
+                long threshold = parseLong(value); if (threshold < 0) return false;
+                configuration.setLatencyMonitorThreshold(threshold); return true;
+            case "stall-threshold":
+                long stall = parseLong(value); if (stall < 0) return false;
+                configuration.setStallThreshold(stall); return true;
+            case "latency-tracking":
+                if (!value.equalsIgnoreCase("yes") && !value.equalsIgnoreCase("no")) return false;
+                configuration.setLatencyTracking(value.equalsIgnoreCase("yes")); return true;
+            default:
+                return false;
+        }
+    }
 }
@@ -18,22 +18,21 @@ package com.moilioncircle.redis.cluster.watchdog.command;
 
 import com.moilioncircle.redis.cluster.watchdog.command.cluster.ClusterCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.util.collection.CommandMap;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * @author Leon Chen
  * @since 1.0.0
  */
 public class DefaultCommandHandler extends AbstractCommandHandler {
 
-    private Map<String, CommandHandler> handlers = new ConcurrentHashMap<>();
-    public CommandHandler get(String name) { return handlers.get(name.toLowerCase()); }
+    private CommandMap<CommandHandler> handlers = new CommandMap<>();
+    public CommandHandler get(String name) { return handlers.get(name); }
+    public CommandHandler get(byte[] name) { return handlers.get(name); }
 
     public CommandHandler addCommandHandler(String name, CommandHandler handler) {
-        return handlers.put(name.toLowerCase(), handler);
+        return handlers.put(name, handler);
     }
 
     public DefaultCommandHandler(ClusterManagers managers) {
@@ -44,6 +43,11 @@ public class DefaultCommandHandler extends AbstractCommandHandler {
         addCommandHandler("dbsize", new DBSizeCommandHandler(managers));
         addCommandHandler("config", new ConfigCommandHandler(managers));
         addCommandHandler("select", new SelectCommandHandler(managers));
+        addCommandHandler("asking", new AskingCommandHandler(managers));
+        addCommandHandler("slowlog", new SlowlogCommandHandler(managers));
+        addCommandHandler("stalllog", new StalllogCommandHandler(managers));
+        addCommandHandler("failoverlog", new FailoverlogCommandHandler(managers));
+        addCommandHandler("latency", new LatencyCommandHandler(managers));
         addCommandHandler("cluster", new ClusterCommandHandler(managers));
         addCommandHandler("restore", new RestoreCommandHandler(managers));
         addCommandHandler("shutdown", new ShutdownCommandHandler(managers));
@@ -54,14 +58,19 @@ public class DefaultCommandHandler extends AbstractCommandHandler {
 
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (message.length <= 0 || message[0] == null) {
+        handle(t, rawMessage);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        if (rawMessage.length <= 0 || rawMessage[0] == null) {
             replyError(t, "ERR Unsupported COMMAND"); return;
         }
-        CommandHandler handler = get(message[0]);
+        CommandHandler handler = get(rawMessage[0]);
         if (handler == null) {
             replyError(t, "ERR Unsupported COMMAND"); return;
         }
-        handler.handle(t, message, rawMessage);
+        handler.handle(t, rawMessage);
     }
 
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.Event;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.List;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * Reads the closed failover timelines, every entry is id, node name, duration in milliseconds and the
+ * events, each event is phase, unix time, milliseconds since the start of the timeline and detail.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class FailoverlogCommandHandler extends AbstractCommandHandler {
+
+    public FailoverlogCommandHandler(ClusterManagers managers) {
+        super(managers);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        if (message.length < 2 || message[1] == null) {
+            replyError(t, "ERR wrong number of arguments for 'failoverlog' command"); return;
+        }
+        String subcommand = message[1].toLowerCase();
+        if (subcommand.equals("len") && message.length == 2) {
+            replyNumber(t, managers.timelines.getTimelinesLen());
+        } else if (subcommand.equals("reset") && message.length == 2) {
+            managers.timelines.resetTimelines(); reply(t, "OK");
+        } else if (subcommand.equals("get") && (message.length == 2 || message.length == 3)) {
+            int count = 10;
+            if (message.length == 3) {
+                try {
+                    count = parseInt(message[2]);
+                } catch (Exception e) {
+                    replyError(t, "ERR value is out of range, must be positive"); return;
+                }
+                if (count < -1) { replyError(t, "ERR count should be greater than or equal to -1"); return; }
+            }
+            List<FailoverTimeline> timelines = managers.timelines.getTimelines(count);
+            RedisReplyBuilder reply = newReply().array(timelines.size());
+            for (FailoverTimeline timeline : timelines) {
+                reply.array(4).number(timeline.getId()).bulk(timeline.getNode()).number(timeline.getDuration());
+                reply.array(timeline.getEvents().size());
+                for (Event event : timeline.getEvents()) {
+                    reply.array(4).bulk(event.getPhase()).number(event.getTime());
+                    reply.number(event.getTime() - timeline.getStartTime()).bulk(event.getDetail());
+                }
+            }
+            reply.write(t);
+        } else {
+            replyError(t, "ERR Unknown subcommand or wrong number of arguments for '" + message[1] + "'. Try FAILOVERLOG GET, LEN or RESET.");
+        }
+    }
+}
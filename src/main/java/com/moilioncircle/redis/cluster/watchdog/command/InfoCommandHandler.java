@@ -16,25 +16,194 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command;
 
+import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterCommandHandlerManager;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterStatsManager;
+import com.moilioncircle.redis.cluster.watchdog.state.CommandStats;
+import com.moilioncircle.redis.cluster.watchdog.util.LatencyHistogram;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_COUNT;
+import static java.lang.String.format;
+import static java.util.Locale.ROOT;
 
 /**
+ * Every value is read from counters kept on the hot paths, from the published {@link ClusterTopology}
+ * or from samples of the cron, nothing is scanned when INFO is called.
+ *
  * @author Leon Chen
  * @since 1.0.0
  */
 public class InfoCommandHandler extends AbstractCommandHandler {
 
+    private static final String PID = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
     public InfoCommandHandler(ClusterManagers managers) {
         super(managers);
     }
 
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (message.length == 1 || message.length == 2) {
-            replyBulk(t, "cluster_enabled:1\r\n");
+        Set<String> sections = new HashSet<>();
+        for (int i = 1; i < message.length; i++) if (message[i] != null) sections.add(message[i].toLowerCase());
+        if (sections.isEmpty()) sections.add("default");
+        boolean all = sections.contains("all") || sections.contains("everything");
+        boolean defaults = all || sections.contains("default");
+
+        StringBuilder builder = new StringBuilder();
+        if (defaults || sections.contains("server")) server(builder);
+        if (defaults || sections.contains("clients")) clients(builder);
+        if (defaults || sections.contains("memory")) memory(builder);
+        if (defaults || sections.contains("stats")) stats(builder);
+        if (defaults || sections.contains("replication")) replication(builder);
+        if (defaults || sections.contains("cluster")) cluster(builder);
+        if (all || sections.contains("commandstats")) commandstats(builder);
+        if (all || sections.contains("latencystats")) latencystats(builder);
+        if (defaults || sections.contains("keyspace")) keyspace(builder);
+        replyBulk(t, builder.toString());
+    }
+
+    protected void server(StringBuilder builder) {
+        long uptime = (System.currentTimeMillis() - managers.stats.startTime) / 1000;
+        ClusterTopology topology = managers.topology;
+        builder.append("# Server\r\n");
+        builder.append("redis_mode:cluster\r\n");
+        builder.append("os:").append(System.getProperty("os.name")).append(' ').append(System.getProperty("os.version")).append(' ').append(System.getProperty("os.arch")).append("\r\n");
+        builder.append("arch_bits:").append(System.getProperty("os.arch").contains("64") ? 64 : 32).append("\r\n");
+        builder.append("java_version:").append(System.getProperty("java.version")).append("\r\n");
+        builder.append("process_id:").append(PID).append("\r\n");
+        if (topology != null) builder.append("run_id:").append(topology.getMyself()).append("\r\n");
+        builder.append("tcp_port:").append(managers.configuration.getClusterAnnouncePort()).append("\r\n");
+        builder.append("uptime_in_seconds:").append(uptime).append("\r\n");
+        builder.append("uptime_in_days:").append(uptime / 86400).append("\r\n");
+        builder.append("hz:10\r\n");
+        builder.append("\r\n");
+    }
+
+    protected void clients(StringBuilder builder) {
+        builder.append("# Clients\r\n");
+        builder.append("connected_clients:").append(managers.server.clients.size()).append("\r\n");
+        builder.append("\r\n");
+    }
+
+    protected void memory(StringBuilder builder) {
+        Runtime runtime = Runtime.getRuntime();
+        builder.append("# Memory\r\n");
+        builder.append("used_memory_heap:").append(runtime.totalMemory() - runtime.freeMemory()).append("\r\n");
+        builder.append("total_memory_heap:").append(runtime.totalMemory()).append("\r\n");
+        builder.append("max_memory_heap:").append(runtime.maxMemory()).append("\r\n");
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            builder.append("used_memory_").append(pool.getName().replace(' ', '_')).append(':').append(pool.getMemoryUsed()).append("\r\n");
+        }
+        builder.append("used_memory_netty_direct:").append(PooledByteBufAllocator.DEFAULT.metric().usedDirectMemory()).append("\r\n");
+        builder.append("\r\n");
+    }
+
+    protected void stats(StringBuilder builder) {
+        ClusterStatsManager stats = managers.stats;
+        ClusterCommandHandlerManager commands = managers.commands;
+        builder.append("# Stats\r\n");
+        builder.append("total_connections_received:").append(stats.connections.sum()).append("\r\n");
+        builder.append("total_commands_processed:").append(stats.commandsProcessed.sum()).append("\r\n");
+        builder.append("instantaneous_ops_per_sec:").append(stats.getInstantaneousOps()).append("\r\n");
+        builder.append("total_net_input_bytes:").append(stats.client.getRead()).append("\r\n");
+        builder.append("total_net_output_bytes:").append(stats.client.getWritten()).append("\r\n");
+        builder.append("instantaneous_input_kbps:").append(format(ROOT, "%.2f", stats.getInstantaneousInput() / 1024d)).append("\r\n");
+        builder.append("instantaneous_output_kbps:").append(format(ROOT, "%.2f", stats.getInstantaneousOutput() / 1024d)).append("\r\n");
+        builder.append("cluster_bus_input_bytes:").append(stats.bus.getRead()).append("\r\n");
+        builder.append("cluster_bus_output_bytes:").append(stats.bus.getWritten()).append("\r\n");
+        ClusterTopology topology = managers.topology;
+        if (topology != null) {
+            long sent = 0, received = 0;
+            for (int i = 0; i < CLUSTERMSG_TYPE_COUNT; i++) {
+                sent += topology.getMessagesSent(i); received += topology.getMessagesReceived(i);
+            }
+            builder.append("cluster_bus_messages_sent:").append(sent).append("\r\n");
+            builder.append("cluster_bus_messages_received:").append(received).append("\r\n");
+        }
+        builder.append("command_threads:").append(managers.executors.length).append("\r\n");
+        builder.append("command_queued:").append(commands.getQueuedCommands()).append("\r\n");
+        builder.append("command_queue_waits:").append(commands.getQueueWaits()).append("\r\n");
+        builder.append("command_queue_wait_usec:").append(commands.getQueueWaitTime()).append("\r\n");
+        builder.append("\r\n");
+    }
+
+    protected void replication(StringBuilder builder) {
+        ClusterTopology topology = managers.topology;
+        builder.append("# Replication\r\n");
+        ClusterNodeInfo myself = topology == null ? null : topology.getConfig().getNodes().get(topology.getMyself());
+        ClusterNodeInfo master = myself == null || myself.getMaster() == null ? null : topology.getConfig().getNodes().get(myself.getMaster());
+        if (master == null) {
+            builder.append("role:master\r\n");
+            int slaves = topology == null ? 0 : topology.cached("info.slaves", () -> {
+                int count = 0;
+                for (ClusterNodeInfo node : topology.getConfig().getNodes().values()) {
+                    if (topology.getMyself().equals(node.getMaster())) count++;
+                }
+                return count;
+            });
+            builder.append("connected_slaves:").append(slaves).append("\r\n");
         } else {
-            replyError(t, "ERR wrong number of arguments for 'info' command");
+            String host = managers.server.masterHost;
+            builder.append("role:slave\r\n");
+            builder.append("master_host:").append(host == null ? master.getIp() : host).append("\r\n");
+            builder.append("master_port:").append(host == null ? master.getPort() : managers.server.masterPort).append("\r\n");
+            // the replication link belongs to the replication listener, this is the age of the last bus pong of the master.
+            long lag = master.getPongTime() == 0 ? -1 : (managers.clock.currentTimeMillis() - master.getPongTime()) / 1000;
+            builder.append("master_last_pong_seconds_ago:").append(lag).append("\r\n");
+            builder.append("slave_repl_offset:").append(managers.replications.replicationGetSlaveOffset()).append("\r\n");
         }
+        builder.append("\r\n");
+    }
+
+    protected void cluster(StringBuilder builder) {
+        builder.append("# Cluster\r\n");
+        builder.append("cluster_enabled:1\r\n");
+        builder.append("\r\n");
+    }
+
+    protected void commandstats(StringBuilder builder) {
+        builder.append("# Commandstats\r\n");
+        for (CommandStats stats : managers.stats.getCommandStats()) {
+            long calls = stats.calls.sum(), usec = stats.usec.sum();
+            if (calls == 0 && stats.rejected.sum() == 0) continue;
+            builder.append("cmdstat_").append(stats.name).append(":calls=").append(calls);
+            builder.append(",usec=").append(usec);
+            builder.append(",usec_per_call=").append(format(ROOT, "%.2f", calls == 0 ? 0d : (double) usec / calls));
+            builder.append(",rejected_calls=").append(stats.rejected.sum());
+            builder.append(",failed_calls=").append(stats.failed.sum()).append("\r\n");
+        }
+        builder.append("\r\n");
+    }
+
+    protected void latencystats(StringBuilder builder) {
+        builder.append("# Latencystats\r\n");
+        if (managers.configuration.isLatencyTracking()) {
+            for (CommandStats stats : managers.stats.getCommandStats()) {
+                if (stats.calls.sum() == 0) continue;
+                LatencyHistogram histogram = stats.histogram;
+                builder.append("latency_percentiles_usec_").append(stats.name);
+                builder.append(":p50=").append(histogram.percentile(50));
+                builder.append(",p99=").append(histogram.percentile(99));
+                builder.append(",p99.9=").append(histogram.percentile(99.9)).append("\r\n");
+            }
+        }
+        builder.append("\r\n");
+    }
+
+    protected void keyspace(StringBuilder builder) {
+        builder.append("# Keyspace\r\n");
+        // expires and avg_ttl would take a scan of the whole engine, they are left out
+        long keys = managers.stats.getKeys();
+        if (keys > 0) builder.append("db0:keys=").append(keys).append("\r\n");
+        builder.append("\r\n");
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.LatencyEvent;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class LatencyCommandHandler extends AbstractCommandHandler {
+
+    public LatencyCommandHandler(ClusterManagers managers) {
+        super(managers);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        if (message.length != 2 || message[1] == null) {
+            replyError(t, "ERR wrong number of arguments for 'latency' command"); return;
+        }
+        String subcommand = message[1].toLowerCase();
+        if (subcommand.equals("latest")) {
+            Collection<LatencyEvent> events = managers.stats.getLatencyEvents();
+            List<long[]> values = new ArrayList<>(); List<String> names = new ArrayList<>();
+            for (LatencyEvent event : events) {
+                synchronized (event) { values.add(new long[]{event.time, event.latest, event.max}); }
+                names.add(event.name);
+            }
+            RedisReplyBuilder reply = newReply().array(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                long[] v = values.get(i);
+                reply.array(4).bulk(names.get(i)).number(v[0]).number(v[1]).number(v[2]);
+            }
+            reply.write(t);
+        } else if (subcommand.equals("reset")) {
+            int size = managers.stats.getLatencyEvents().size();
+            managers.stats.resetLatencyEvents(); replyNumber(t, size);
+        } else {
+            replyError(t, "ERR Unknown subcommand or wrong number of arguments for '" + message[1] + "'. Try LATENCY HELP.");
+        }
+    }
+}
@@ -31,10 +31,15 @@ public class PingCommandHandler extends AbstractCommandHandler {
 
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (message.length == 1) {
+        handle(t, rawMessage);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        if (rawMessage.length == 1) {
             reply(t, "PONG");
-        } else if (message.length == 2 && message[1] != null) {
-            reply(t, message[1]);
+        } else if (rawMessage.length == 2 && rawMessage[1] != null) {
+            reply(t, rawMessage[1]);
         } else {
             replyError(t, "ERR wrong number of arguments for 'ping' command");
         }
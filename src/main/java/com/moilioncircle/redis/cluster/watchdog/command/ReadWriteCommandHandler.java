@@ -17,6 +17,7 @@
 package com.moilioncircle.redis.cluster.watchdog.command;
 
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClientState;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
 /**
@@ -35,7 +36,8 @@ public class ReadWriteCommandHandler extends AbstractCommandHandler {
             replyError(t, "ERR wrong number of arguments for 'readwrite' command");
             return;
         }
-        managers.engine.readonly(false);
+        ClientState client = managers.server.clients.get(t);
+        if (client != null) client.readonly = false;
         reply(t, "OK");
     }
 }
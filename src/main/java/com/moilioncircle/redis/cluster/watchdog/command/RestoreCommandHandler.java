@@ -16,9 +16,17 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command;
 
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisBulkStream;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.moilioncircle.redis.cluster.watchdog.codec.RedisBulkStream.STREAM;
 import static java.lang.Long.parseLong;
 
 /**
@@ -27,40 +35,120 @@ import static java.lang.Long.parseLong;
  */
 public class RestoreCommandHandler extends AbstractCommandHandler {
 
+    private static final Log logger = LogFactory.getLog(RestoreCommandHandler.class);
+    private static final String WRONG_ARGS = "ERR wrong number of arguments for 'restore' command";
+
     public RestoreCommandHandler(ClusterManagers managers) {
         super(managers);
     }
 
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (rawMessage.length != 4 && rawMessage.length != 5) {
-            replyError(t, "ERR wrong number of arguments for 'restore' command"); return;
+        handle(t, rawMessage);
+    }
+
+    /**
+     * Parses the raw arguments only, the serialized value is never converted to a String.
+     * <p>
+     * A streamed value is claimed before the arguments are checked, so that every error releases it
+     * and the connection reads again.
+     */
+    @Override
+    public void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        RedisBulkStream stream = rawMessage.length > 3 ? RedisBulkStream.remove(t.attr(STREAM), rawMessage[3]) : null;
+        String error = validate(rawMessage, stream != null);
+        if (error != null) { release(stream); replyError(t, error); return; }
+
+        byte[] key = rawMessage[1]; long ttl = parseLong(new String(rawMessage[2]));
+        long expire = ttl == 0 ? 0 : System.currentTimeMillis() + ttl;
+
+        if (stream != null) {
+            Runnable resume = managers.commands.suspend(t);
+            try {
+                managers.restore.execute(() -> { try { restore(t, key, stream, expire, rawMessage); } finally { resume.run(); } });
+            } catch (RejectedExecutionException e) {
+                release(stream); replyError(t, "ERR restore rejected"); resume.run();
+            }
+            return;
         }
 
-        byte[] key = rawMessage[1];
-        if (key == null) { replyError(t, "ERR Invalid key: null"); return; }
+        managers.engine.restore(key, rawMessage[3], expire, isReplace(rawMessage));
+        reply(t, "OK");
+    }
 
-        long ttl;
-        try { ttl = parseLong(message[2]); }
-        catch (Exception e) { replyError(t, "ERR Invalid ttl: " + message[2]); return; }
-        if (ttl < 0) { replyError(t, "ERR Invalid ttl: " + ttl); return; }
+    /**
+     * @return the error reply, or null if the arguments are valid. The trailing argument of a streamed
+     * value arrives after the value and is checked when the value ends.
+     */
+    protected String validate(byte[][] rawMessage, boolean streamed) {
+        if (rawMessage.length != 4 && rawMessage.length != 5) return WRONG_ARGS;
+        if (rawMessage[1] == null) return "ERR Invalid key: null";
+        String arg = rawMessage[2] == null ? null : new String(rawMessage[2]); long ttl;
+        try { ttl = parseLong(arg); } catch (Exception e) { return "ERR Invalid ttl: " + arg; }
+        if (ttl < 0) return "ERR Invalid ttl: " + ttl;
+        if (rawMessage[3] == null) return "ERR Invalid serialized-value: null";
+        if (!streamed && isReplace(rawMessage) == null) return WRONG_ARGS;
+        return null;
+    }
 
-        byte[] serialized = rawMessage[3];
-        if (serialized == null) { replyError(t, "ERR Invalid serialized-value: null"); return; }
+    /**
+     * The value is streamed into the engine on both the new and the existing key path, with {@code REPLACE}
+     * assumed if the request has a trailing argument. That argument is only decoded after the value,
+     * the stream fails at its end if it is not {@code REPLACE}, before the engine commits the value.
+     */
+    protected void restore(Transport<byte[][]> t, byte[] key, RedisBulkStream stream, long expire, byte[][] rawMessage) {
+        try {
+            managers.engine.restore(key, new ValueStream(stream, rawMessage), expire, rawMessage.length == 5);
+            reply(t, "OK");
+        } catch (ArgumentException e) {
+            replyError(t, WRONG_ARGS);
+        } catch (IOException e) {
+            logger.warn("restore aborted: " + e.getMessage());
+        } catch (Throwable e) {
+            replyError(t, "ERR " + e.getMessage());
+        } finally {
+            release(stream);
+        }
+    }
 
-        boolean replace;
-        if (rawMessage.length == 5) {
-            if (message[4] != null && message[4].equalsIgnoreCase("replace")) {
-                replace = true;
-            } else {
-                replyError(t, "ERR wrong number of arguments for 'restore' command");
-                return;
-            }
-        } else replace = false;
+    protected Boolean isReplace(byte[][] rawMessage) {
+        if (rawMessage.length == 4) return false;
+        byte[] arg = rawMessage[4];
+        if (arg != null && new String(arg).equalsIgnoreCase("replace")) return true;
+        return null;
+    }
 
-        long expire = ttl == 0 ? 0 : System.currentTimeMillis() + ttl;
+    protected static void release(RedisBulkStream stream) {
+        if (stream == null) return;
+        try { stream.release(); } catch (IOException e) { }
+    }
 
-        managers.engine.restore(key, serialized, expire, replace);
-        reply(t, "OK");
+    private static class ArgumentException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private class ValueStream extends FilterInputStream {
+
+        private final RedisBulkStream stream;
+        private final byte[][] rawMessage;
+
+        private ValueStream(RedisBulkStream stream, byte[][] rawMessage) {
+            super(stream); this.stream = stream; this.rawMessage = rawMessage;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int r = super.read(); if (r < 0) end(); return r;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len); if (n < 0) end(); return n;
+        }
+
+        private void end() throws IOException {
+            stream.await();
+            if (isReplace(rawMessage) == null) throw new ArgumentException();
+        }
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.SlowlogEntry;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.List;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class SlowlogCommandHandler extends AbstractCommandHandler {
+
+    public SlowlogCommandHandler(ClusterManagers managers) {
+        super(managers);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        if (message.length < 2 || message[1] == null) {
+            replyError(t, "ERR wrong number of arguments for 'slowlog' command"); return;
+        }
+        String subcommand = message[1].toLowerCase();
+        if (subcommand.equals("len") && message.length == 2) {
+            replyNumber(t, managers.stats.getSlowlogLen());
+        } else if (subcommand.equals("reset") && message.length == 2) {
+            managers.stats.resetSlowlog(); reply(t, "OK");
+        } else if (subcommand.equals("get") && (message.length == 2 || message.length == 3)) {
+            int count = 10;
+            if (message.length == 3) {
+                try {
+                    count = parseInt(message[2]);
+                } catch (Exception e) {
+                    replyError(t, "ERR value is out of range, must be positive"); return;
+                }
+                if (count < -1) { replyError(t, "ERR count should be greater than or equal to -1"); return; }
+            }
+            List<SlowlogEntry> entries = managers.stats.getSlowlog(count);
+            RedisReplyBuilder reply = newReply().array(entries.size());
+            for (SlowlogEntry entry : entries) {
+                reply.array(6).number(entry.id).number(entry.time).number(entry.duration);
+                reply.array(entry.args.length);
+                for (byte[] arg : entry.args) reply.bulk(arg);
+                reply.bulk(entry.client).bulk("");
+            }
+            reply.write(t);
+        } else {
+            replyError(t, "ERR Unknown subcommand or wrong number of arguments for '" + message[1] + "'. Try SLOWLOG HELP.");
+        }
+    }
+}
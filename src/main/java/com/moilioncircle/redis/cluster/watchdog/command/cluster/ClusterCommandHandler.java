@@ -16,41 +16,49 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command.cluster;
 
-import com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo;
 import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.util.collection.CommandMap;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import static com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo.valueOf;
-
 /**
  * @author Leon Chen
  * @since 1.0.0
  */
 public class ClusterCommandHandler extends AbstractCommandHandler {
 
-    private Map<String, CommandHandler> clusterHandlers = new HashMap<>();
-    public CommandHandler get(String name) { return clusterHandlers.get(name.toLowerCase()); }
+    private CommandMap<Boolean> readonly = new CommandMap<>();
+    private CommandMap<CommandHandler> clusterHandlers = new CommandMap<>();
+    public CommandHandler get(String name) { return clusterHandlers.get(name); }
+    public CommandHandler get(byte[] name) { return clusterHandlers.get(name); }
 
     public CommandHandler addCommandHandler(String name, CommandHandler handler) {
-        return clusterHandlers.put(name.toLowerCase(), handler);
+        return addCommandHandler(name, handler, false);
+    }
+
+    /**
+     * @param readonly true if the handler only reads {@link ClusterManagers#topology} or the storage engine,
+     *                 it is then called on the I/O thread instead of the state thread.
+     */
+    public CommandHandler addCommandHandler(String name, CommandHandler handler, boolean readonly) {
+        this.readonly.put(name, readonly);
+        return clusterHandlers.put(name, handler);
     }
 
     public ClusterCommandHandler(ClusterManagers managers) {
         super(managers);
         addCommandHandler("meet", new ClusterMeetCommandHandler(managers));
-        addCommandHandler("myid", new ClusterMyIDCommandHandler(managers));
-        addCommandHandler("info", new ClusterInfoCommandHandler(managers));
-        addCommandHandler("nodes", new ClusterNodesCommandHandler(managers));
-        addCommandHandler("slots", new ClusterSlotsCommandHandler(managers));
+        addCommandHandler("myid", new ClusterMyIDCommandHandler(managers), true);
+        addCommandHandler("info", new ClusterInfoCommandHandler(managers), true);
+        addCommandHandler("nodes", new ClusterNodesCommandHandler(managers), true);
+        addCommandHandler("slots", new ClusterSlotsCommandHandler(managers), true);
+        addCommandHandler("shards", new ClusterShardsCommandHandler(managers), true);
+        addCommandHandler("links", new ClusterLinksCommandHandler(managers), true);
         addCommandHandler("reset", new ClusterResetCommandHandler(managers));
         addCommandHandler("forget", new ClusterForgetCommandHandler(managers));
         addCommandHandler("slaves", new ClusterSlavesCommandHandler(managers));
-        addCommandHandler("keyslot", new ClusterKeySlotCommandHandler(managers));
+        addCommandHandler("keyslot", new ClusterKeySlotCommandHandler(managers), true);
         addCommandHandler("setslot", new ClusterSetSlotCommandHandler(managers));
         addCommandHandler("addslots", new ClusterAddSlotsCommandHandler(managers));
         addCommandHandler("delslots", new ClusterDelSlotsCommandHandler(managers));
@@ -58,27 +66,32 @@ public class ClusterCommandHandler extends AbstractCommandHandler {
         addCommandHandler("replicate", new ClusterReplicateCommandHandler(managers));
         addCommandHandler("saveconfig", new ClusterSaveConfigCommandHandler(managers));
         addCommandHandler("flushslots", new ClusterFlushSlotsCommandHandler(managers));
-        addCommandHandler("getkeysinslot", new ClusterGetKeysInSlotCommandHandler(managers));
-        addCommandHandler("countkeysinslot", new ClusterCountKeysInSlotCommandHandler(managers));
+        addCommandHandler("getkeysinslot", new ClusterGetKeysInSlotCommandHandler(managers), true);
+        addCommandHandler("countkeysinslot", new ClusterCountKeysInSlotCommandHandler(managers), true);
         addCommandHandler("set-config-epoch", new ClusterSetConfigEpochCommandHandler(managers));
         addCommandHandler("count-failure-reports", new ClusterCountFailureReportsCommandHandler(managers));
     }
 
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (message.length < 2 || message[1] == null) {
+        handle(t, rawMessage);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        if (rawMessage.length < 2 || rawMessage[1] == null) {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
 
-        CommandHandler handler = get(message[1]);
+        CommandHandler handler = get(rawMessage[1]);
         if (handler == null) {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
-        managers.cron.execute(() -> {
-            ClusterConfigInfo previous;
-            previous = valueOf(managers.server.cluster);
-            handler.handle(t, message, rawMessage);
-            ClusterConfigInfo next = valueOf(managers.server.cluster);
-            if (!previous.equals(next)) managers.config.submit(() -> managers.configs.clusterSaveConfig(next));
-        });
+        if (readonly.get(rawMessage[1]) == Boolean.TRUE) {
+            if (managers.topology == null) replyError(t, "LOADING The cluster state is not loaded yet");
+            else handler.handle(t, rawMessage);
+            return;
+        }
+        Runnable resume = managers.commands.suspend(t);
+        managers.execute(() -> { try { handler.handle(t, rawMessage); } finally { resume.run(); } });
     }
 }
@@ -16,11 +16,14 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command.cluster;
 
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
 import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
 import static java.lang.Integer.parseInt;
@@ -45,29 +48,23 @@ public class ClusterGetKeysInSlotCommandHandler extends AbstractCommandHandler {
         int slot;
         try { slot = parseInt(message[2]); }
         catch (Exception e) { replyError(t, "ERR Invalid slot:" + message[2]); return; }
-        if (slot < 0 || slot > CLUSTER_SLOTS) { replyError(t, "ERR Invalid slot:" + slot); return; }
+        if (slot < 0 || slot >= CLUSTER_SLOTS) { replyError(t, "ERR Invalid slot:" + slot); return; }
 
         long max;
         try { max = parseLong(message[3]); }
         catch (Exception e) { replyError(t, "ERR Invalid number of keys:" + message[3]); return; }
         if (max < 0) { replyError(t, "ERR Invalid number of keys:" + max); return; }
 
-        max = Math.min(managers.slots.countKeysInSlot(slot), max);
+        // collected before the header, keys may be deleted by other connections while this one iterates.
+        List<byte[]> keys = new ArrayList<>();
         Iterator<byte[]> it = managers.slots.getKeysInSlot(slot);
-        if (!it.hasNext()) {
-            t.write("*0\r\n".getBytes(), true);
+        while (it.hasNext() && keys.size() < max) keys.add(it.next());
+        if (keys.isEmpty()) {
+            RedisReplyBuilder.write(t, RedisReplyBuilder.EMPTY_ARRAY);
             return;
-        } else
-            t.write(("*" + max + "\r\n").getBytes(), false);
-        int idx = 0;
-        while (it.hasNext() && idx++ < max) {
-            byte[] key = it.next();
-            t.write(("$" + key.length + "\r\n").getBytes(), false);
-            t.write(key, false);
-            if (it.hasNext())
-                t.write("\r\n".getBytes(), false);
-            else
-                t.write("\r\n".getBytes(), true);
         }
+        RedisReplyBuilder reply = newReply().array(keys.size());
+        for (byte[] key : keys) reply.bulk(key);
+        reply.write(t);
     }
 }
@@ -34,7 +34,12 @@ public class ClusterKeySlotCommandHandler extends AbstractCommandHandler {
 
     @Override
     public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
-        if (message.length != 3) {
+        handle(t, rawMessage);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, byte[][] rawMessage) {
+        if (rawMessage.length != 3) {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
 
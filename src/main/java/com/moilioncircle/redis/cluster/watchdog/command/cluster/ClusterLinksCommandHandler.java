@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command.cluster;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterLinkInfo;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.List;
+
+/**
+ * Replies the redis 7 fields of every link followed by the bus statistics, round trip times are in microseconds.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterLinksCommandHandler extends AbstractCommandHandler {
+
+    public ClusterLinksCommandHandler(ClusterManagers managers) {
+        super(managers);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        if (message.length != 2) {
+            replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
+        }
+
+        List<ClusterLinkInfo> links = managers.topology.getLinks();
+        RedisReplyBuilder r = newReply().array(links.size());
+        for (ClusterLinkInfo link : links) {
+            r.array(24);
+            r.bulk("direction").bulk(link.isInbound() ? "from" : "to");
+            r.bulk("node").bulk(link.getNode());
+            r.bulk("create-time").number(link.getCreateTime());
+            r.bulk("events").bulk(link.getPendingBytes() > 0 ? "rw" : "r");
+            r.bulk("send-buffer-allocated").number(link.getPendingBytes());
+            r.bulk("send-buffer-used").number(link.getPendingBytes());
+            r.bulk("bytes-sent").number(link.getBytesSent());
+            r.bulk("bytes-received").number(link.getBytesReceived());
+            r.bulk("messages-sent").number(link.getMessagesSent());
+            r.bulk("messages-received").number(link.getMessagesReceived());
+            r.bulk("rtt-usec").number(link.getRtt());
+            r.bulk("rtt-ewma-usec").number(link.getRttEwma());
+        }
+        r.write(t);
+    }
+}
@@ -36,6 +36,6 @@ public class ClusterMyIDCommandHandler extends AbstractCommandHandler {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
 
-        reply(t, server.myself.name);
+        reply(t, managers.topology.getMyself());
     }
 }
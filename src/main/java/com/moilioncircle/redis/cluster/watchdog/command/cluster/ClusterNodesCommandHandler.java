@@ -16,11 +16,13 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command.cluster;
 
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.Version;
 import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
-import static com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo.valueOf;
+import static com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder.write;
 import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterConfigManager.clusterGenNodesDescription;
 
 /**
@@ -38,6 +40,9 @@ public class ClusterNodesCommandHandler extends AbstractCommandHandler {
         if (message.length != 2) {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
-        replyBulk(t, clusterGenNodesDescription(valueOf(server.cluster), 0, managers.configuration.getVersion()));
+
+        // ping and pong times in the cached reply are those of the first snapshot of the version.
+        ClusterTopology topology = managers.topology; Version version = managers.configuration.getVersion();
+        write(t, topology.cached("nodes-" + version, () -> newReply().bulk(clusterGenNodesDescription(topology.getConfig(), 0, version)).toByteArray()));
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command.cluster;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder.write;
+import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterSlotManager.bitmapTestBit;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeFailed;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsMaster;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterShardsCommandHandler extends AbstractCommandHandler {
+
+    public ClusterShardsCommandHandler(ClusterManagers managers) {
+        super(managers);
+    }
+
+    @Override
+    public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+        if (message.length != 2) {
+            replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
+        }
+
+        ClusterTopology topology = managers.topology;
+        write(t, topology.cached("shards", () -> clusterReplyShards(topology.getConfig())));
+    }
+
+    protected byte[] clusterReplyShards(ClusterConfigInfo config) {
+        List<ClusterNodeInfo> masters = new ArrayList<>();
+        for (ClusterNodeInfo node : config.getNodes().values()) {
+            if (nodeIsMaster(node.getFlags())) masters.add(node);
+        }
+
+        RedisReplyBuilder r = newReply().array(masters.size());
+        for (ClusterNodeInfo master : masters) {
+            List<Integer> ranges = new ArrayList<>();
+            for (int i = 0, start = -1; i <= CLUSTER_SLOTS; i++) {
+                boolean bit = i < CLUSTER_SLOTS && bitmapTestBit(master.getSlots(), i);
+                if (bit && start == -1) start = i;
+                if (!bit && start != -1) { ranges.add(start); ranges.add(i - 1); start = -1; }
+            }
+            List<ClusterNodeInfo> nodes = new ArrayList<>();
+            nodes.add(master);
+            for (ClusterNodeInfo node : config.getNodes().values()) {
+                if (master.getName().equals(node.getMaster())) nodes.add(node);
+            }
+
+            r.array(4).bulk("slots").array(ranges.size());
+            for (int slot : ranges) r.number(slot);
+            r.bulk("nodes").array(nodes.size());
+            for (ClusterNodeInfo node : nodes) {
+                r.array(12);
+                r.bulk("id").bulk(node.getName());
+                r.bulk("port").number(node.getPort());
+                r.bulk("ip").bulk(node.getIp());
+                r.bulk("endpoint").bulk(node.getIp());
+                r.bulk("role").bulk(node == master ? "master" : "replica");
+                r.bulk("health").bulk(nodeFailed(node.getFlags()) ? "fail" : "online");
+            }
+        }
+        return r.toByteArray();
+    }
+}
@@ -61,6 +61,6 @@ public class ClusterSlavesCommandHandler extends AbstractCommandHandler {
             String nodeDescription = clusterGenNodeDescription(configInfo, nodeInfo, version);
             builder.append("$").append(nodeDescription.length()).append("\r\n").append(nodeDescription).append("\r\n");
         }
-        t.write(builder.toString().getBytes(), true);
+        t.write(builder.toString().getBytes(), false);
     }
 }
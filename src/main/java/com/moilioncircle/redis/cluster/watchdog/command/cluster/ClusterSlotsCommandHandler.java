@@ -16,12 +16,19 @@
 
 package com.moilioncircle.redis.cluster.watchdog.command.cluster;
 
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
 import com.moilioncircle.redis.cluster.watchdog.command.AbstractCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
-import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder.write;
 import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterSlotManager.bitmapTestBit;
 import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeFailed;
 import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsMaster;
@@ -41,46 +48,39 @@ public class ClusterSlotsCommandHandler extends AbstractCommandHandler {
         if (message.length != 2) {
             replyError(t, "ERR Wrong CLUSTER subcommand or number of arguments"); return;
         }
-        t.write(clusterReplyMultiBulkSlots().getBytes(), true);
+
+        ClusterTopology topology = managers.topology;
+        write(t, topology.cached("slots", () -> clusterReplyMultiBulkSlots(topology.getConfig())));
     }
 
-    protected String clusterReplyMultiBulkSlots() {
-        int masters = 0;
-        StringBuilder r = new StringBuilder();
-        for (ClusterNode node : server.cluster.nodes.values()) {
-            int start = -1;
-            if (!nodeIsMaster(node)) continue;
-            if (node.assignedSlots == 0) continue;
-            for (int i = 0; i < CLUSTER_SLOTS; i++) {
-                boolean bit = bitmapTestBit(node.slots, i);
+    /**
+     * One entry per contiguous slot range of a master, with the master and its non failed replicas.
+     */
+    protected byte[] clusterReplyMultiBulkSlots(ClusterConfigInfo config) {
+        List<ClusterNodeInfo> masters = new ArrayList<>(); List<int[]> ranges = new ArrayList<>();
+        for (ClusterNodeInfo node : config.getNodes().values()) {
+            if (!nodeIsMaster(node.getFlags())) continue;
+            for (int i = 0, start = -1; i <= CLUSTER_SLOTS; i++) {
+                boolean bit = i < CLUSTER_SLOTS && bitmapTestBit(node.getSlots(), i);
                 if (bit && start == -1) start = i;
-                if (start != -1 && (!bit || i == CLUSTER_SLOTS - 1)) {
-                    StringBuilder builder = new StringBuilder();
-                    int elements = 3; if (bit) i++;
-                    if (start == i - 1) {
-                        builder.append(":").append(start).append("\r\n");
-                        builder.append(":").append(start).append("\r\n");
-                    } else {
-                        builder.append(":").append(start).append("\r\n");
-                        builder.append(":").append(i - 1).append("\r\n");
-                    }
-                    start = -1; builder.append("*3\r\n");
-                    builder.append("$").append(node.ip.length()).append("\r\n").append(node.ip).append("\r\n");
-                    builder.append(":").append(node.port).append("\r\n");
-                    builder.append("$").append(node.name.length()).append("\r\n").append(node.name).append("\r\n");
-                    for (ClusterNode slave : node.slaves) {
-                        if (nodeFailed(slave)) continue;
-                        builder.append("*3\r\n");
-                        builder.append("$").append(slave.ip.length()).append("\r\n").append(slave.ip).append("\r\n");
-                        builder.append(":").append(slave.port).append("\r\n");
-                        builder.append("$").append(slave.name.length()).append("\r\n").append(slave.name).append("\r\n");
-                        elements++;
-                    }
-                    builder.insert(0, "*" + elements + "\r\n");
-                    r.append(builder.toString()); masters++;
+                if (!bit && start != -1) { masters.add(node); ranges.add(new int[]{start, i - 1}); start = -1; }
+            }
+        }
+
+        RedisReplyBuilder r = newReply().array(ranges.size());
+        List<ClusterNodeInfo> slaves = new ArrayList<>();
+        for (int j = 0; j < ranges.size(); j++) {
+            ClusterNodeInfo master = masters.get(j);
+            if (j == 0 || master != masters.get(j - 1)) {
+                slaves.clear();
+                for (ClusterNodeInfo slave : config.getNodes().values()) {
+                    if (master.getName().equals(slave.getMaster()) && !nodeFailed(slave.getFlags())) slaves.add(slave);
                 }
             }
+            r.array(3 + slaves.size()).number(ranges.get(j)[0]).number(ranges.get(j)[1]);
+            r.array(3).bulk(master.getIp()).number(master.getPort()).bulk(master.getName());
+            for (ClusterNodeInfo slave : slaves) r.array(3).bulk(slave.getIp()).number(slave.getPort()).bulk(slave.getName());
         }
-        return r.insert(0, "*" + masters + "\r\n").toString();
+        return r.toByteArray();
     }
 }
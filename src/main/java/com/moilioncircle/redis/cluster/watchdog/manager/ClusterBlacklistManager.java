@@ -32,19 +32,21 @@ import static com.moilioncircle.redis.cluster.watchdog.util.Tuples.of;
 public class ClusterBlacklistManager {
 
     private ServerState server;
+    private ClusterManagers managers;
 
     public ClusterBlacklistManager(ClusterManagers managers) {
+        this.managers = managers;
         this.server = managers.server;
     }
 
     public boolean clusterBlacklistExists(String name) {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         Map<String, Tuple2<Long, ClusterNode>> map = server.cluster.blacklist;
         map.values().removeIf(e -> e.getV1() < now); return map.containsKey(name);
     }
 
     public void clusterBlacklistAddNode(ClusterNode node) {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         server.cluster.blacklist.values().removeIf(e -> e.getV1() < now);
         server.cluster.blacklist.put(node.name, of(now + CLUSTER_BLACKLIST_TTL, node));
     }
@@ -16,14 +16,34 @@
 
 package com.moilioncircle.redis.cluster.watchdog.manager;
 
+import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.command.AsyncCommandHandler;
 import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandKeySpec;
 import com.moilioncircle.redis.cluster.watchdog.command.DefaultCommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.RestoreCommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.state.ClientState;
+import com.moilioncircle.redis.cluster.watchdog.state.CommandStats;
 import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.collection.CommandMap;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import static java.util.Arrays.stream;
+import java.io.InputStream;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterState.CLUSTER_OK;
+import static com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder.getErrors;
+import static com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine.calcSlot;
+import static com.moilioncircle.redis.cluster.watchdog.util.net.ReadPauses.PIPELINE;
 
 /**
  * @author Leon Chen
@@ -33,8 +53,27 @@ public class ClusterCommandHandlerManager {
 
     private static final Log logger = LogFactory.getLog(ClusterCommandHandlerManager.class);
 
+    /**
+     * Looked up once per engine class, not on the I/O thread for every large bulk.
+     */
+    private static final ClassValue<Boolean> STREAMABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return !type.getMethod("restore", byte[].class, InputStream.class, long.class, boolean.class).isDefault();
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     private ClusterManagers managers;
     private DefaultCommandHandler handler;
+    private CommandMap<CommandKeySpec> keys = new CommandMap<>();
+    private CommandMap<CommandHandler> users = new CommandMap<>();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
 
     public ClusterCommandHandlerManager(ClusterManagers managers) {
         this.managers = managers;
@@ -42,16 +81,308 @@ public class ClusterCommandHandlerManager {
     }
 
     public CommandHandler addCommandHandler(String name, CommandHandler handler) {
+        return addCommandHandler(name, handler, null);
+    }
+
+    /**
+     * @param spec the key positions of the command, null if the command is not routed by slot.
+     */
+    public CommandHandler addCommandHandler(String name, CommandHandler handler, CommandKeySpec spec) {
         if (managers.engine instanceof DefaultStorageEngine) {
             logger.warn("Using default storage engine. [ ClusterWatchdog.setStorageEngine(engine); ] first");
         }
         handler.setStorageEngine(managers.engine);
         handler.setConfiguration(managers.configuration);
+        this.keys.put(name, spec); this.users.put(name, handler);
         return this.handler.addCommandHandler(name, handler);
     }
 
+    /**
+     * Commands of a connection are executed one at a time in arrival order. A command that
+     * completes on another thread {@link #suspend(Transport) suspends} the connection, the requests
+     * pipelined behind it are queued and executed on the I/O thread once it resumes.
+     * Replies are not flushed per command but once per read, or when a resumed pipeline drains.
+     * <p>
+     * The connection stops reading when more than {@code commandQueueSize} commands are queued behind
+     * a suspended one, and reads again once half of them executed, unless the decoder holds the reads too.
+     */
     public void handleCommand(Transport<byte[][]> t, byte[][] raw) {
-        this.handler.handle(t, stream(raw).map(String::new).toArray(String[]::new), raw);
+        ClientState client = managers.server.clients.get(t);
+        if (client == null) { dispatch(t, null, raw); return; }
+        synchronized (client) {
+            if (!client.busy) client.busy = true;
+            else {
+                client.pending.add(raw);
+                if (client.paused || client.pending.size() < managers.configuration.getCommandQueueSize()) return;
+                client.paused = true; t.pauseReads(PIPELINE); return;
+            }
+        }
+        execute(client, raw);
+    }
+
+    /**
+     * @return the callback that resumes the connection, must be called exactly once.
+     */
+    public Runnable suspend(Transport<byte[][]> t) {
+        ClientState client = managers.server.clients.get(t);
+        if (client == null) return () -> t.flush();
+        return suspend(client);
+    }
+
+    /**
+     * A command suspending the connection from its handler is recorded in the stats by the callback, once it
+     * completed, and not when the handler returned.
+     */
+    protected Runnable suspend(ClientState client) {
+        byte[][] raw; CommandStats stats; long start, errors;
+        synchronized (client) {
+            client.suspends++; raw = client.command; stats = client.stats; start = client.start; errors = client.errors;
+            client.command = null; client.stats = null;
+        }
+        AtomicBoolean resumed = new AtomicBoolean();
+        return () -> {
+            if (!resumed.compareAndSet(false, true)) return;
+            if (stats != null) record(client.transport, raw, stats, start, errors, false);
+            resume(client);
+        };
+    }
+
+    /**
+     * The pipeline queued behind a suspended command is drained on the I/O thread of the connection,
+     * never on the thread that completed the command.
+     */
+    protected void resume(ClientState client) {
+        Transport<byte[][]> t = client.transport;
+        // on the I/O thread, behind the reply the completing thread wrote, so the next replies can't overtake it.
+        if (!t.inEventLoop()) { t.execute(() -> resume(client)); return; }
+        synchronized (client) {
+            client.suspends--;
+            if (client.suspends > 0) return;
+            // resumed from the handler itself, the pipeline goes on once it returns.
+            if (client.running) return;
+        }
+        drain(client);
+    }
+
+    protected void drain(ClientState client) {
+        byte[][] raw;
+        synchronized (client) {
+            if ((raw = poll(client)) == null) client.busy = false;
+        }
+        if (raw != null) execute(client, raw);
+        client.transport.flush();
+    }
+
+    /**
+     * Must hold the lock of {@code client}.
+     */
+    protected byte[][] poll(ClientState client) {
+        byte[][] raw = client.pending.poll();
+        if (client.paused && client.pending.size() <= managers.configuration.getCommandQueueSize() / 2) {
+            client.paused = false; client.transport.resumeReads(PIPELINE);
+        }
+        return raw;
+    }
+
+    protected void execute(ClientState client, byte[][] raw) {
+        while (true) {
+            synchronized (client) { client.running = true; }
+            try {
+                dispatch(client.transport, client, raw);
+            } catch (Throwable e) {
+                logger.error("unexpected error", e);
+            }
+            synchronized (client) {
+                client.running = false;
+                if (client.suspends > 0) return;
+                raw = poll(client);
+                if (raw == null) { client.busy = false; return; }
+            }
+        }
+    }
+
+    /**
+     * Asynchronous handlers never block, they stay on the I/O thread.
+     */
+    protected boolean isOffloaded(ClientState client, CommandHandler handler, byte[][] raw) {
+        if (client == null || handler instanceof AsyncCommandHandler) return false;
+        return managers.executors.length > 0 && users.get(raw[0]) != null;
+    }
+
+    /**
+     * Runs a user command that passed the slot checks on the executor of its connection, the connection
+     * is suspended meanwhile so that the commands pipelined behind it keep their order.
+     */
+    protected void offload(ClientState client, CommandHandler handler, byte[][] raw, CommandStats stats) {
+        Transport<byte[][]> t = client.transport;
+        Runnable resume = suspend(client); long now = System.nanoTime(); queued.increment();
+        try {
+            executor(t).execute(() -> {
+                queued.decrement(); waits.increment(); waitTime.add(System.nanoTime() - now);
+                long start = managers.stats.isTiming() ? System.nanoTime() : 0L, errors = getErrors(t); boolean failed = true;
+                try {
+                    handler.handle(t, raw); failed = false;
+                } finally {
+                    record(t, raw, stats, start, errors, failed); resume.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrement(); error(t, "ERR command rejected"); resume.run();
+        }
+    }
+
+    protected ExecutorService executor(Transport<byte[][]> t) {
+        ExecutorService[] executors = managers.executors;
+        return executors[(int) (Math.abs(t.getId()) % executors.length)];
+    }
+
+    /**
+     * @return the number of user commands waiting for an executor.
+     */
+    public long getQueuedCommands() {
+        return queued.sum();
+    }
+
+    /**
+     * @return the number of user commands that ran on an executor.
+     */
+    public long getQueueWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * @return the total time in microseconds user commands waited for an executor.
+     */
+    public long getQueueWaitTime() {
+        return waitTime.sum() / 1000;
+    }
+
+    protected void dispatch(Transport<byte[][]> t, ClientState client, byte[][] raw) {
+        boolean asking = false, readonly = false;
+        if (client != null) { asking = client.asking; client.asking = false; readonly = client.readonly; }
+        CommandHandler handler = raw.length > 0 ? this.handler.get(raw[0]) : null;
+        if (handler == null) { this.handler.handle(t, raw); return; }
+        CommandStats stats = managers.stats.get(raw[0]);
+        CommandKeySpec spec = keys.get(raw[0]);
+        if (spec != null && redirect(t, raw, spec, asking, readonly)) { stats.rejected.increment(); return; }
+
+        if (isOffloaded(client, handler, raw)) { offload(client, handler, raw, stats); return; }
+        long start = managers.stats.isTiming() ? System.nanoTime() : 0L, errors = getErrors(t);
+        if (handler instanceof AsyncCommandHandler) {
+            async(t, client, (AsyncCommandHandler) handler, raw, stats, start, errors); return;
+        }
+        if (client != null) { client.command = raw; client.stats = stats; client.start = start; client.errors = errors; }
+        boolean failed = true;
+        try {
+            handler.handle(t, raw); failed = false;
+        } finally {
+            // unless the handler suspended the connection, then the command is recorded once it resumes.
+            if (client == null) record(t, raw, stats, start, errors, failed);
+            else if (client.stats != null) { client.command = null; client.stats = null; record(t, raw, stats, start, errors, failed); }
+        }
+    }
+
+    /**
+     * Like redis, a call that replied an error counts as failed, as well as one that threw.
+     *
+     * @param errors the {@link RedisReplyBuilder#getErrors(Transport) error replies} of the connection before the call.
+     */
+    protected void record(Transport<byte[][]> t, byte[][] raw, CommandStats stats, long start, long errors, boolean failed) {
+        managers.stats.record(t, raw, stats, start, failed || getErrors(t) != errors);
+    }
+
+    /**
+     * Suspends the connection until the reply completes, the I/O thread never waits for it.
+     */
+    protected void async(Transport<byte[][]> t, ClientState client, AsyncCommandHandler handler, byte[][] raw, CommandStats stats, long start, long errors) {
+        Runnable resume = client == null ? t::flush : suspend(client);
+        CompletionStage<RedisReplyBuilder> stage;
+        try {
+            stage = handler.handleAsync(t, raw);
+        } catch (Throwable e) {
+            AsyncCommandHandler.write(t, null, e);
+            record(t, raw, stats, start, errors, true); resume.run(); return;
+        }
+        stage.whenComplete((reply, cause) -> {
+            try {
+                AsyncCommandHandler.write(t, reply, cause);
+                record(t, raw, stats, start, errors, cause != null);
+            } finally {
+                resume.run();
+            }
+        });
+    }
+
+    /**
+     * Checks the slot of the keys against the published topology, the same way as redis getNodeByQuery.
+     *
+     * @return true if the request was answered with a redirection or an error instead of being served here.
+     */
+    protected boolean redirect(Transport<byte[][]> t, byte[][] raw, CommandKeySpec spec, boolean asking, boolean readonly) {
+        ClusterTopology topology = managers.topology;
+        if (topology == null) return false;
+        String[] migrating = topology.getConfig().getMigrating();
+        String[] importing = topology.getConfig().getImporting();
+        int slot = -1, existing = 0, missing = 0; boolean multiple = false;
+        for (int i = spec.getFirstKey(), last = spec.lastKey(raw.length); i <= last; i += spec.getStep()) {
+            if (raw[i] == null) { error(t, "ERR Invalid key: null"); return true; }
+            int s = calcSlot(raw[i]);
+            if (slot == -1) slot = s;
+            else if (s == slot) multiple = true;
+            else { error(t, "CROSSSLOT Keys in request don't hash to the same slot"); return true; }
+            if (migrating[slot] == null && importing[slot] == null) continue;
+            if (managers.engine.exist(raw[i])) existing++; else missing++;
+        }
+        if (slot == -1) return false;
+        if (topology.getState() != CLUSTER_OK) {
+            error(t, "CLUSTERDOWN The cluster is down"); return true;
+        }
+        ClusterNodeInfo owner = topology.getMaster(slot);
+        if (owner == null) {
+            error(t, "CLUSTERDOWN Hash slot not served"); return true;
+        }
+
+        boolean mine = owner.getName().equals(topology.getMyself());
+        ClusterNodeInfo target = migrating[slot] == null ? null : topology.getConfig().getNodes().get(migrating[slot]);
+        if (mine && target != null && missing > 0) {
+            // some keys already moved, the client has to retry once the migration of the slot is done.
+            if (existing > 0) error(t, "TRYAGAIN Multiple keys request during rehashing of slot");
+            else redirect(t, "ASK", slot, target);
+            return true;
+        }
+        if (!mine && importing[slot] != null && asking) {
+            if (!multiple || missing == 0) return false;
+            error(t, "TRYAGAIN Multiple keys request during rehashing of slot"); return true;
+        }
+        if (mine) return false;
+        if (readonly && spec.isReadonly()) {
+            // a replica serves the reads of its master's slots to READONLY clients.
+            ClusterNodeInfo myself = topology.getConfig().getNodes().get(topology.getMyself());
+            if (myself != null && owner.getName().equals(myself.getMaster())) return false;
+        }
+        redirect(t, "MOVED", slot, owner); return true;
+    }
+
+    protected void redirect(Transport<byte[][]> t, String type, int slot, ClusterNodeInfo node) {
+        error(t, type + " " + slot + " " + node.getIp() + ":" + node.getPort());
+    }
+
+    protected void error(Transport<byte[][]> t, String message) {
+        new RedisReplyBuilder().error(message).write(t);
+    }
+
+    /**
+     * @see RestoreCommandHandler
+     */
+    public boolean isStreaming(byte[][] raw, int index) {
+        return index == 3 && this.handler.get(raw[0]) instanceof RestoreCommandHandler && isStreamable(managers.engine);
+    }
+
+    /**
+     * @return true if {@code engine} overrides the streaming restore instead of buffering the value.
+     */
+    protected static boolean isStreamable(StorageEngine engine) {
+        return STREAMABLE.get(engine.getClass());
     }
 
 }
@@ -134,7 +134,7 @@ public class ClusterConfigManager {
                     node.port = parseInt(hostAndPort.substring(cIdx + 1, aIdx == -1 ? hostAndPort.length() : aIdx));
                     node.busPort = aIdx == -1 ? node.port + CLUSTER_PORT_INCR : parseInt(hostAndPort.substring(aIdx + 1));
 
-                    long now = System.currentTimeMillis();
+                    long now = managers.clock.currentTimeMillis();
                     for (String role : args.get(2).split(",")) {
                         switch (role) {
                             case "noflags":
@@ -235,7 +235,7 @@ public class ClusterConfigManager {
     }
 
     public boolean clusterSaveConfig(ClusterConfigInfo info, boolean force) {
-        BufferedWriter r = null;
+        BufferedWriter r = null; long start = System.nanoTime();
         try {
             File file = new File(configuration.getClusterConfigFile());
             if (!file.exists() && !file.createNewFile()) return false;
@@ -250,6 +250,7 @@ public class ClusterConfigManager {
         } catch (IOException e) { return false;
         } finally {
             if (r != null) try { r.close(); } catch (IOException e) { logger.error("unexpected IO error", e.getCause()); }
+            managers.metrics.configSave.recordSince(start);
         }
     }
 
@@ -19,19 +19,39 @@ package com.moilioncircle.redis.cluster.watchdog.manager;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * @author Leon Chen
  * @since 1.0.0
  */
 public class ClusterConnectionManager {
 
+    private final ClusterManagers managers;
+    private final Set<ClusterLink> links = new LinkedHashSet<>();
+    private volatile ClusterLink[] snapshot = new ClusterLink[0];
+
+    public ClusterConnectionManager(ClusterManagers managers) {
+        this.managers = managers;
+    }
+
     public synchronized void freeClusterLink(ClusterLink link) {
         if (link == null) return;
+        if (links.remove(link)) snapshot = links.toArray(new ClusterLink[0]);
         if (link.node != null) link.node.link = null;
         if (link.fd != null) link.fd.disconnect(null);
     }
 
     public synchronized ClusterLink createClusterLink(ClusterNode node) {
-        ClusterLink c = new ClusterLink(); c.node = node; return c;
+        ClusterLink c = new ClusterLink(managers.clock.currentTimeMillis()); c.node = node; c.inbound = node == null;
+        links.add(c); snapshot = links.toArray(new ClusterLink[0]); return c;
+    }
+
+    /**
+     * @return the live links, the array is replaced rather than modified when a link is created or freed.
+     */
+    public ClusterLink[] getClusterLinks() {
+        return snapshot;
     }
 }
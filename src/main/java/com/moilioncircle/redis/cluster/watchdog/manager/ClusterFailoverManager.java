@@ -26,6 +26,10 @@ import static com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo.valueOf
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_BROADCAST_ALL;
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_BROADCAST_LOCAL_SLAVES;
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.ELECTION_SCHEDULED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.ELECTION_STARTED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PROMOTED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.RANK_UPDATED;
 import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterSlotManager.bitmapTestBit;
 import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeFailed;
 import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsMaster;
@@ -65,10 +69,11 @@ public class ClusterFailoverManager {
         managers.states.clusterUpdateState();
         managers.configs.clusterSaveConfig(valueOf(server.cluster));
         managers.messages.clusterBroadcastPong(CLUSTER_BROADCAST_ALL);
+        managers.timelines.close(previous, PROMOTED);
     }
 
     public void clusterHandleSlaveFailover() {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         if (!configuration.isFailover()) return;
         if (nodeIsMaster(server.myself)) return;
         if (server.myself.master == null) return;
@@ -83,6 +88,8 @@ public class ClusterFailoverManager {
             server.cluster.failoverAuthRank = managers.nodes.clusterGetSlaveRank();
             server.cluster.failoverAuthTime += server.cluster.failoverAuthRank * 1000;
             server.cluster.failoverAuthCount = 0; server.cluster.failoverAuthSent = false;
+            long delay = server.cluster.failoverAuthTime - now;
+            managers.timelines.event(server.myself.master, ELECTION_SCHEDULED, "rank=" + server.cluster.failoverAuthRank + " delay=" + delay);
             managers.messages.clusterBroadcastPong(CLUSTER_BROADCAST_LOCAL_SLAVES); return;
         }
         //
@@ -92,14 +99,16 @@ public class ClusterFailoverManager {
             long delay = (rank - server.cluster.failoverAuthRank) * 1000;
             server.cluster.failoverAuthTime += delay; server.cluster.failoverAuthRank = rank;
             logger.info("Slave rank updated to #" + rank + ", added " + delay + " milliseconds of delay.");
+            managers.timelines.event(server.myself.master, RANK_UPDATED, "rank=" + rank + " delay=" + delay);
         }
-        now = System.currentTimeMillis();
+        now = managers.clock.currentTimeMillis();
         if (now < server.cluster.failoverAuthTime || authAge > authTimeout) return;
         //
         if (!server.cluster.failoverAuthSent) {
             server.cluster.currentEpoch++; server.cluster.failoverAuthEpoch = server.cluster.currentEpoch;
             logger.info("Starting a failover election for the epoch " + server.cluster.currentEpoch + ".");
-            managers.messages.clusterRequestFailoverAuth(); server.cluster.failoverAuthSent = true; return;
+            managers.messages.clusterRequestFailoverAuth(); server.cluster.failoverAuthSent = true;
+            managers.timelines.event(server.myself.master, ELECTION_STARTED, "epoch=" + server.cluster.currentEpoch); return;
         }
         //
         if (server.cluster.failoverAuthCount >= quorum) {
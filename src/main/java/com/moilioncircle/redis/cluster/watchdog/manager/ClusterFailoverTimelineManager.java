@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.Event;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.DELETED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PFAIL;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PING_UNANSWERED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.SLOTS_TAKEN_OVER;
+import static com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry.label;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeFailed;
+import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsMaster;
+
+/**
+ * Records the failover timeline of every failing node, see {@link FailoverTimeline}.
+ * <p>
+ * A timeline is opened when a node is marked PFAIL or FAIL and closed by a promotion, a recovery,
+ * the deletion of the node or the loss of all its slots. Closed timelines are kept in a bounded log,
+ * passed to the {@code ClusterFailoverListener} and the offset of every phase from the start is recorded
+ * in the {@code cluster_failover_phase_milliseconds} histograms. All methods but the log readers
+ * must be called on the state thread.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterFailoverTimelineManager {
+
+    private static final Log logger = LogFactory.getLog(ClusterFailoverTimelineManager.class);
+
+    private long ids;
+    private final ClusterManagers managers;
+    private final ClusterConfiguration configuration;
+    private final Map<String, List<Event>> open = new HashMap<>();
+    private final Deque<FailoverTimeline> timelines = new ArrayDeque<>();
+
+    public ClusterFailoverTimelineManager(ClusterManagers managers) {
+        this.managers = managers;
+        this.configuration = managers.configuration;
+    }
+
+    /**
+     * Opens the timeline of a node just marked PFAIL, starting at its unanswered ping.
+     */
+    public void pfail(ClusterNode node) {
+        List<Event> events = open.computeIfAbsent(node.name, k -> new ArrayList<>());
+        if (!events.isEmpty()) return;
+        if (node.pingTime != 0) events.add(new Event(PING_UNANSWERED, node.pingTime, null));
+        events.add(new Event(PFAIL, managers.clock.currentTimeMillis(), null));
+    }
+
+    public void event(ClusterNode node, String phase) {
+        event(node, phase, null);
+    }
+
+    /**
+     * Appends a phase to the timeline of {@code node}, opening it if needed.
+     */
+    public void event(ClusterNode node, String phase, String detail) {
+        if (node == null) return;
+        open.computeIfAbsent(node.name, k -> new ArrayList<>()).add(new Event(phase, managers.clock.currentTimeMillis(), detail));
+    }
+
+    /**
+     * Closes the timeline of {@code node} with a final phase, does nothing if no timeline is open.
+     */
+    public void close(ClusterNode node, String phase) {
+        if (node != null) close(node.name, phase);
+    }
+
+    protected void close(String name, String phase) {
+        List<Event> events = open.remove(name);
+        if (events == null) return;
+        events.add(new Event(phase, managers.clock.currentTimeMillis(), null));
+        FailoverTimeline timeline;
+        synchronized (timelines) {
+            timeline = new FailoverTimeline(ids++, name, events);
+            timelines.addFirst(timeline);
+            while (timelines.size() > configuration.getFailoverTimelineMaxLen()) timelines.removeLast();
+        }
+        MetricsRegistry registry = managers.metrics.registry;
+        String help = "Milliseconds from the start of a failure to a failover phase.";
+        for (Event event : events) {
+            long offset = event.getTime() - timeline.getStartTime();
+            registry.histogram("cluster_failover_phase_milliseconds", help, label("phase", event.getPhase())).record(offset);
+        }
+        if (configuration.isVerbose()) logger.info(timeline);
+        managers.notifyFailoverTimeline(timeline);
+    }
+
+    /**
+     * Closes the timelines of deleted nodes and of failed masters whose slots were taken over by a promoted replica.
+     */
+    public void cron() {
+        if (open.isEmpty()) return;
+        for (String name : new ArrayList<>(open.keySet())) {
+            ClusterNode node = managers.nodes.clusterLookupNode(name);
+            if (node == null) close(name, DELETED);
+            else if (nodeIsMaster(node) && nodeFailed(node) && node.assignedSlots == 0) close(name, SLOTS_TAKEN_OVER);
+        }
+    }
+
+    /**
+     * @param count the maximum number of timelines, -1 for all
+     * @return the latest closed timelines first.
+     */
+    public List<FailoverTimeline> getTimelines(int count) {
+        synchronized (timelines) {
+            List<FailoverTimeline> r = new ArrayList<>();
+            for (FailoverTimeline timeline : timelines) { if (count >= 0 && r.size() >= count) break; r.add(timeline); }
+            return r;
+        }
+    }
+
+    public int getTimelinesLen() {
+        synchronized (timelines) { return timelines.size(); }
+    }
+
+    public void resetTimelines() {
+        synchronized (timelines) { timelines.clear(); }
+    }
+}
@@ -19,17 +19,23 @@ package com.moilioncircle.redis.cluster.watchdog.manager;
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfigInfo;
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfigListener;
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.ClusterFailoverListener;
 import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
 import com.moilioncircle.redis.cluster.watchdog.ClusterNodeListener;
 import com.moilioncircle.redis.cluster.watchdog.ClusterState;
 import com.moilioncircle.redis.cluster.watchdog.ClusterStateListener;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
 import com.moilioncircle.redis.cluster.watchdog.ClusterWatchdog;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
 import com.moilioncircle.redis.cluster.watchdog.ReplicationListener;
 import com.moilioncircle.redis.cluster.watchdog.Resourcable;
 import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandKeySpec;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsExporter;
 import com.moilioncircle.redis.cluster.watchdog.state.ServerState;
 import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
 import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.Clock;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,13 +52,22 @@ public class ClusterManagers implements Resourcable {
     public StorageEngine engine;
     public ExecutorService config;
     public ExecutorService worker;
+    public ExecutorService restore;
+    public ExecutorService[] executors;
     public ClusterWatchdog watchdog;
     public ScheduledExecutorService cron;
+    public Clock clock;
+    public volatile ClusterTopology topology;
     //
     public ClusterSlotManager slots;
     public ClusterNodeManager nodes;
     public ClusterStateManager states;
     public ClusterConfigManager configs;
+    public ClusterSlotTableManager slotTables;
+    public ClusterStatsManager stats;
+    public ClusterMetricsManager metrics;
+    public ClusterStallManager stalls;
+    public ClusterFailoverTimelineManager timelines;
     public ClusterMessageManager messages;
     public ReplicationManager replications;
     public ClusterFailoverManager failovers;
@@ -62,32 +77,68 @@ public class ClusterManagers implements Resourcable {
     public ClusterCommandHandlerManager commands;
     public ClusterMessageHandlerManager handlers;
 
+    private ClusterConfigInfo published;
     private volatile ClusterNodeListener clusterNodeListener;
     private volatile ReplicationListener replicationListener;
     private volatile ClusterStateListener clusterStateListener;
     private volatile ClusterConfigListener clusterConfigListener;
+    private volatile ClusterFailoverListener clusterFailoverListener;
 
     public ClusterManagers(ClusterConfiguration configuration, ClusterWatchdog watchdog) {
         this.watchdog = watchdog;
         this.server = new ServerState();
         this.configuration = configuration;
+        this.clock = configuration.getClock();
         this.engine = new DefaultStorageEngine();
         //
         this.slots = new ClusterSlotManager(this);
         this.nodes = new ClusterNodeManager(this);
         this.states = new ClusterStateManager(this);
         this.configs = new ClusterConfigManager(this);
+        this.slotTables = new ClusterSlotTableManager(this);
+        this.stats = new ClusterStatsManager(this);
+        this.metrics = new ClusterMetricsManager(this);
+        this.stalls = new ClusterStallManager(this);
+        this.timelines = new ClusterFailoverTimelineManager(this);
         this.messages = new ClusterMessageManager(this);
         this.replications = new ReplicationManager(this);
         this.failovers = new ClusterFailoverManager(this);
-        this.connections = new ClusterConnectionManager();
+        this.connections = new ClusterConnectionManager(this);
         this.blacklists = new ClusterBlacklistManager(this);
         this.commands = new ClusterCommandHandlerManager(this);
         this.handlers = new ClusterMessageHandlerManager(this);
         //
         this.config = Executors.newSingleThreadExecutor();
         this.worker = Executors.newSingleThreadExecutor();
+        this.restore = Executors.newFixedThreadPool(configuration.getRestoreThreads());
         this.cron = Executors.newSingleThreadScheduledExecutor();
+        this.executors = new ExecutorService[configuration.getCommandThreads()];
+        for (int i = 0; i < executors.length; i++) executors[i] = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Runs a task on the state thread, then saves the config if the task changed it
+     * and publishes a new {@link #topology}.
+     */
+    public void execute(Runnable task) {
+        long queued = System.nanoTime(); metrics.statePending.increment();
+        cron.execute(() -> {
+            metrics.statePending.decrement(); metrics.stateWait.recordSince(queued);
+            clock.tick(); stalls.begin("task"); try { task.run(); } finally { publish(); stalls.end(); }
+        });
+    }
+
+    /**
+     * Must be called on the state thread. The config snapshot is only taken again when the cluster changed.
+     */
+    public void publish() {
+        ClusterConfigInfo next = ClusterConfigInfo.valueOf(server.cluster, published);
+        if (published != null && !published.equals(next)) config.submit(() -> configs.clusterSaveConfig(next));
+        ClusterTopology previous = topology, topology = ClusterTopology.valueOf(next, server.cluster, connections.getClusterLinks(), previous);
+        this.published = next; this.topology = topology;
+        if (previous == null || previous.getVersion() != topology.getVersion()) {
+            config.submit(() -> slotTables.clusterExportSlotTable(topology));
+        }
     }
 
     /**
@@ -100,52 +151,65 @@ public class ClusterManagers implements Resourcable {
 
     public void notifyNodeAdded(ClusterNodeInfo node) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onNodeAdded(node); });
+        dispatch(() -> { if (r != null) r.onNodeAdded(node); });
     }
 
     public void notifyNodeDeleted(ClusterNodeInfo node) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onNodeDeleted(node); });
+        dispatch(() -> { if (r != null) r.onNodeDeleted(node); });
     }
 
     public void notifyNodeFailed(ClusterNodeInfo failed) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onNodeFailed(failed); });
+        dispatch(() -> { if (r != null) r.onNodeFailed(failed); });
     }
 
     public void notifyConfigChanged(ClusterConfigInfo info) {
         ClusterConfigListener r = this.clusterConfigListener;
-        worker.submit(() -> { if (r != null) r.onConfigChanged(info); });
+        dispatch(() -> { if (r != null) r.onConfigChanged(info); });
     }
 
     public void notifyStateChanged(ClusterState state) {
         ClusterStateListener r = this.clusterStateListener;
-        worker.submit(() -> { if (r != null) r.onStateChanged(state); });
+        dispatch(() -> { if (r != null) r.onStateChanged(state); });
     }
 
     public void notifyNodePFailed(ClusterNodeInfo pfailed) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onNodePFailed(pfailed); });
+        dispatch(() -> { if (r != null) r.onNodePFailed(pfailed); });
     }
 
     public void notifyUnsetNodeFailed(ClusterNodeInfo failed) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onUnsetNodeFailed(failed); });
+        dispatch(() -> { if (r != null) r.onUnsetNodeFailed(failed); });
     }
 
     public void notifyUnsetReplication(StorageEngine engine) {
         ReplicationListener r = this.replicationListener;
-        worker.submit(() -> { if (r != null) r.onUnsetReplication(engine); });
+        dispatch(() -> { if (r != null) r.onUnsetReplication(engine); });
     }
 
     public void notifyUnsetNodePFailed(ClusterNodeInfo pfailed) {
         ClusterNodeListener r = this.clusterNodeListener;
-        worker.submit(() -> { if (r != null) r.onUnsetNodePFailed(pfailed); });
+        dispatch(() -> { if (r != null) r.onUnsetNodePFailed(pfailed); });
+    }
+
+    public void notifyFailoverTimeline(FailoverTimeline timeline) {
+        ClusterFailoverListener r = this.clusterFailoverListener;
+        dispatch(() -> { if (r != null) r.onFailoverTimeline(timeline); });
     }
 
     public void notifySetReplication(String ip, int host, StorageEngine engine) {
         ReplicationListener r = this.replicationListener;
-        worker.submit(() -> { if (r != null) r.onSetReplication(ip, host, engine); });
+        dispatch(() -> { if (r != null) r.onSetReplication(ip, host, engine); });
+    }
+
+    /**
+     * Runs a listener callback on the worker thread, recording the dispatch lag.
+     */
+    protected void dispatch(Runnable task) {
+        long queued = System.nanoTime();
+        worker.submit(() -> { metrics.listenerLag.recordSince(queued); task.run(); });
     }
 
     /**
@@ -159,6 +223,14 @@ public class ClusterManagers implements Resourcable {
         return this.commands.addCommandHandler(name, handler);
     }
 
+    public CommandHandler addCommandHandler(String name, CommandHandler handler, CommandKeySpec spec) {
+        return this.commands.addCommandHandler(name, handler, spec);
+    }
+
+    public void addMetricsExporter(MetricsExporter exporter) {
+        this.metrics.addMetricsExporter(exporter);
+    }
+
     public synchronized ClusterNodeListener setClusterNodeListener(ClusterNodeListener clusterNodeListener) {
         ClusterNodeListener r = this.clusterNodeListener; this.clusterNodeListener = clusterNodeListener; return r;
     }
@@ -175,9 +247,15 @@ public class ClusterManagers implements Resourcable {
         ClusterConfigListener r = this.clusterConfigListener; this.clusterConfigListener = clusterConfigListener; return r;
     }
 
+    public synchronized ClusterFailoverListener setClusterFailoverListener(ClusterFailoverListener clusterFailoverListener) {
+        ClusterFailoverListener r = this.clusterFailoverListener; this.clusterFailoverListener = clusterFailoverListener; return r;
+    }
+
     @Override
     public void start() {
         this.engine.start();
+        this.metrics.start();
+        this.stalls.start();
     }
 
     @Override
@@ -189,6 +267,8 @@ public class ClusterManagers implements Resourcable {
     public void stop(long timeout, TimeUnit unit) {
         // if myself is a slave. safe to shutdown replication socket.
         this.replications.replicationUnsetMaster();
+        this.metrics.stop(timeout, unit);
+        this.stalls.stop();
 
         try {
             this.config.shutdown();
@@ -203,6 +283,20 @@ public class ClusterManagers implements Resourcable {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+
+        try {
+            this.restore.shutdown();
+            this.restore.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            for (ExecutorService executor : executors) executor.shutdown();
+            for (ExecutorService executor : executors) executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         this.engine.stop(timeout, unit);
     }
 }
@@ -16,6 +16,7 @@
 
 package com.moilioncircle.redis.cluster.watchdog.manager;
 
+import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessageFailHandler;
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessageFailoverAuthAckHandler;
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessageFailoverAuthRequestHandler;
@@ -26,6 +27,7 @@ import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessagePi
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessagePongHandler;
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessagePublishHandler;
 import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessageUpdateHandler;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
 import com.moilioncircle.redis.cluster.watchdog.util.collection.ByteMap;
 
 import java.util.Map;
@@ -46,13 +48,40 @@ import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERM
  */
 public class ClusterMessageHandlerManager {
 
+    private ClusterManagers managers;
     private Map<Byte, ClusterMessageHandler> handlers = new ByteMap<>();
 
     public ClusterMessageHandler get(int type) { return handlers.get((byte) type); }
 
     public void register(byte type, ClusterMessageHandler handler) { handlers.put(type, handler); }
 
+    /**
+     * Must be called on the state thread, records the handler time per message type.
+     */
+    public void handle(ClusterLink link, ClusterMessage hdr) {
+        long start = System.nanoTime();
+        if (link != null) {
+            link.messagesReceived++; link.bytesReceived += hdr.length;
+            if (link.inbound && hdr.name != null) link.sender = hdr.name;
+            if (hdr.type == CLUSTERMSG_TYPE_PONG) clusterPongReceived(link, start);
+        }
+        try { get(hdr.type).handle(link, hdr); } finally { ClusterMetricsManager.record(managers.metrics.handle, hdr.type, start); }
+    }
+
+    /**
+     * Completes the round trip of the PING outstanding on an outbound link. The PONGs a node broadcasts
+     * arrive on the inbound link and the PONG of a MEET leaves no PING outstanding, neither is timed.
+     */
+    protected void clusterPongReceived(ClusterLink link, long nanos) {
+        if (link.inbound || link.pingSentTime == 0) return;
+        long sent = link.pingSentTime; link.pingSentTime = 0;
+        if (link.node == null || link.node.pingTime == 0) return;
+        long rtt = (nanos - sent) / 1000L; link.rtt = rtt; link.rtts.record(rtt);
+        link.rttEwma = link.rttEwma == 0 ? rtt : link.rttEwma + (rtt - link.rttEwma) / 8;
+    }
+
     public ClusterMessageHandlerManager(ClusterManagers managers) {
+        this.managers = managers;
         register((byte) CLUSTERMSG_TYPE_PING, new ClusterMessagePingHandler(managers));
         register((byte) CLUSTERMSG_TYPE_PONG, new ClusterMessagePongHandler(managers));
         register((byte) CLUSTERMSG_TYPE_MEET, new ClusterMessageMeetHandler(managers));
@@ -17,6 +17,7 @@
 package com.moilioncircle.redis.cluster.watchdog.manager;
 
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageEncoder;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessageDataGossip;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
@@ -81,6 +82,15 @@ public class ClusterMessageManager {
         else if (configuration.getVersion() == PROTOCOL_V1) clusterSendPingV1(link, type);
     }
 
+    /**
+     * Starts timing the round trip of a PING unless one is outstanding. A PING unanswered for longer than
+     * the node timeout lost its PONG, the round trip restarts with this one.
+     */
+    protected void clusterPingSent(ClusterLink link, long nanos) {
+        long timeout = configuration.getClusterNodeTimeout() * 1000000L;
+        if (link.pingSentTime == 0 || nanos - link.pingSentTime > timeout) link.pingSentTime = nanos;
+    }
+
     public void clusterSendFail(String name) {
         ClusterMessage hdr;
         hdr = clusterBuildMessageHdr(CLUSTERMSG_TYPE_FAIL);
@@ -128,6 +138,7 @@ public class ClusterMessageManager {
     public void clusterSendMessage(ClusterLink link, ClusterMessage hdr) {
         try {
             link.fd.send(hdr).get();
+            link.messagesSent++; link.bytesSent += ClusterMessageEncoder.length(hdr);
             if (hdr.type < CLUSTERMSG_TYPE_COUNT)
                 server.cluster.messagesSent[hdr.type]++;
         } catch (InterruptedException | ExecutionException e) {
@@ -159,12 +170,13 @@ public class ClusterMessageManager {
      *
      */
     private void clusterSendPingV0(ClusterLink link, int type) {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         int actives = server.cluster.nodes.size() - 2;
         int wanted = server.cluster.nodes.size() / 10;
         wanted = Math.min(Math.max(wanted, 3), actives);
         List<ClusterNode> list = new ArrayList<>(server.cluster.nodes.values());
         if (link.node != null && type == CLUSTERMSG_TYPE_PING) link.node.pingTime = now;
+        if (type == CLUSTERMSG_TYPE_PING) clusterPingSent(link, System.nanoTime());
 
         int max = wanted * 3, gossips = 0;
         ClusterMessage hdr = clusterBuildMessageHdr(type);
@@ -183,13 +195,14 @@ public class ClusterMessageManager {
     }
 
     private void clusterSendPingV1(ClusterLink link, int type) {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         int actives = server.cluster.nodes.size() - 2;
         int wanted = server.cluster.nodes.size() / 10;
         int fWanted = (int) server.cluster.pFailNodes;
         wanted = Math.min(Math.max(wanted, 3), actives);
         List<ClusterNode> nodes = new ArrayList<>(server.cluster.nodes.values());
         if (link.node != null && type == CLUSTERMSG_TYPE_PING) link.node.pingTime = now;
+        if (type == CLUSTERMSG_TYPE_PING) clusterPingSent(link, System.nanoTime());
 
         int max = wanted * 3, gossips = 0;
         ClusterMessage hdr = clusterBuildMessageHdr(type);
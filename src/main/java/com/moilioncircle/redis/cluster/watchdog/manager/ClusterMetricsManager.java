@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Histogram;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsExporter;
+import com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry;
+import com.moilioncircle.redis.cluster.watchdog.metrics.OpenMetricsExporter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_COUNT;
+import static com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry.label;
+
+/**
+ * Owns the {@link MetricsRegistry} and the metrics recorded by the cluster bus, the cron and the state thread.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterMetricsManager {
+
+    private static final Log logger = LogFactory.getLog(ClusterMetricsManager.class);
+
+    public static final String[] TYPES = {
+            "ping", "pong", "meet", "fail", "publish", "failover_auth_request", "failover_auth_ack", "update", "mfstart"
+    };
+
+    public final MetricsRegistry registry = new MetricsRegistry();
+    public final Histogram[] decode = histograms("cluster_bus_decode_microseconds", "Time to decode a cluster bus message.");
+    public final Histogram[] encode = histograms("cluster_bus_encode_microseconds", "Time to encode a cluster bus message.");
+    public final Histogram[] handle = histograms("cluster_bus_handle_microseconds", "Time to handle a cluster bus message on the state thread.");
+    public final Histogram cron = registry.histogram("cluster_cron_microseconds", "Duration of a cluster cron tick.");
+    public final Histogram stateWait = registry.histogram("cluster_state_wait_microseconds", "Time a task waited for the state thread.");
+    public final Histogram configSave = registry.histogram("cluster_config_save_microseconds", "Time to save the cluster config file.");
+    public final Histogram listenerLag = registry.histogram("cluster_listener_lag_microseconds", "Time from an event to its listener dispatch.");
+    public final LongAdder statePending = new LongAdder();
+
+    private final ClusterManagers managers;
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    public ClusterMetricsManager(ClusterManagers managers) {
+        this.managers = managers;
+        registry.gauge("cluster_state_queue_depth", "Tasks waiting for the state thread.", statePending::sum);
+        for (int i = 0; i < CLUSTERMSG_TYPE_COUNT; i++) {
+            final int type = i; String labels = label("type", TYPES[i]);
+            registry.counter("cluster_bus_messages_sent", "Cluster bus messages sent.", labels, () -> sent(type));
+            registry.counter("cluster_bus_messages_received", "Cluster bus messages received.", labels, () -> received(type));
+        }
+        registry.counter("cluster_bus_sent_bytes", "Bytes written to the cluster bus.", managers.stats.bus::getWritten);
+        registry.counter("cluster_bus_received_bytes", "Bytes read from the cluster bus.", managers.stats.bus::getRead);
+    }
+
+    public void addMetricsExporter(MetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    /**
+     * Records a message of {@code type} handled since {@code start}, unknown types are ignored.
+     */
+    public static void record(Histogram[] histograms, int type, long start) {
+        if (histograms != null && type >= 0 && type < histograms.length) histograms[type].recordSince(start);
+    }
+
+    public void start() {
+        String host = managers.configuration.getMetricsBindAddress();
+        int port = managers.configuration.getMetricsPort();
+        if (port > 0) exporters.add(0, new OpenMetricsExporter(host, port));
+        for (MetricsExporter exporter : exporters) {
+            try { exporter.start(registry); } catch (Throwable e) { logger.error("start metrics exporter error", e); }
+        }
+    }
+
+    public void stop(long timeout, TimeUnit unit) {
+        for (MetricsExporter exporter : exporters) {
+            try { exporter.stop(timeout, unit); } catch (Throwable e) { logger.error("stop metrics exporter error", e); }
+        }
+    }
+
+    private long sent(int type) {
+        ClusterTopology topology = managers.topology;
+        return topology == null ? 0L : topology.getMessagesSent(type);
+    }
+
+    private long received(int type) {
+        ClusterTopology topology = managers.topology;
+        return topology == null ? 0L : topology.getMessagesReceived(type);
+    }
+
+    private Histogram[] histograms(String name, String help) {
+        Histogram[] histograms = new Histogram[CLUSTERMSG_TYPE_COUNT];
+        for (int i = 0; i < histograms.length; i++) histograms[i] = registry.histogram(name, help, label("type", TYPES[i]));
+        return histograms;
+    }
+}
@@ -76,7 +76,7 @@ public class ClusterNodeManager {
     }
 
     public ClusterNode createClusterNode(String name, int flags) {
-        ClusterNode n = new ClusterNode();
+        ClusterNode n = new ClusterNode(managers.clock.currentTimeMillis());
         n.name = name == null ? getRandomHexChars() : name; n.flags = flags; return n;
     }
 
@@ -107,9 +107,9 @@ public class ClusterNodeManager {
     public boolean clusterNodeAddFailureReport(ClusterNode failing, ClusterNode sender) {
         for (ClusterNodeFailReport report : failing.failReports) {
             if (!Objects.equals(report.node, sender)) continue;
-            report.createTime = System.currentTimeMillis(); return false;
+            report.createTime = managers.clock.currentTimeMillis(); return false;
         }
-        failing.failReports.add(new ClusterNodeFailReport(sender)); return true;
+        failing.failReports.add(new ClusterNodeFailReport(sender, managers.clock.currentTimeMillis())); return true;
     }
 
     public boolean clusterNodeDelFailureReport(ClusterNode node, ClusterNode sender) {
@@ -122,7 +122,7 @@ public class ClusterNodeManager {
     public void clusterNodeCleanupFailureReports(ClusterNode node) {
         List<ClusterNodeFailReport> reports = node.failReports;
         long max = configuration.getClusterNodeTimeout() * CLUSTER_FAIL_REPORT_VALIDITY_MULTI;
-        long now = System.currentTimeMillis(); reports.removeIf(e -> now - e.createTime > max);
+        long now = managers.clock.currentTimeMillis(); reports.removeIf(e -> now - e.createTime > max);
     }
 
     /**
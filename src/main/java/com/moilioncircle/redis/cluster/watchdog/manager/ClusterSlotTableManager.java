@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterNodeInfo;
+import com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable;
+import com.moilioncircle.redis.cluster.watchdog.ClusterTopology;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NAME_LEN;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.CAPACITY;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_BUS_PORT;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_FLAGS;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_IP;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_IP_LEN;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_PORT;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.ENTRY_SIZE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.LAYOUT_VERSION;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.MAGIC;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_CAPACITY;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_NODES;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_OWNERS;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_SEQUENCE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_TABLE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_VERSION;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.SIZE;
+import static com.moilioncircle.redis.cluster.watchdog.util.concurrent.Fences.storeFence;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Exports the slot table of every new topology version into a memory mapped file, see {@link ClusterSlotTable}.
+ * Only called on the config thread.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterSlotTableManager {
+    private static final Log logger = LogFactory.getLog(ClusterSlotTableManager.class);
+
+    private long sequence;
+    private MappedByteBuffer buffer;
+    private ClusterManagers managers;
+
+    public ClusterSlotTableManager(ClusterManagers managers) {
+        this.managers = managers;
+    }
+
+    public void clusterExportSlotTable(ClusterTopology topology) {
+        String file = managers.configuration.getClusterSlotTableFile();
+        if (file == null) return;
+        ClusterNodeInfo[] nodes = topology.getConfig().getNodes().values().toArray(new ClusterNodeInfo[0]);
+        if (nodes.length > CAPACITY) {
+            logger.warn("skip exporting slot table, " + nodes.length + " nodes exceed capacity " + CAPACITY); return;
+        }
+        try {
+            if (buffer == null) buffer = map(file);
+        } catch (IOException e) {
+            logger.error("failed to map slot table file " + file, e); return;
+        }
+
+        Map<String, Short> index = new HashMap<>();
+        for (short i = 0; i < nodes.length; i++) index.put(nodes[i].getName(), i);
+
+        buffer.putLong(OFFSET_SEQUENCE, ++sequence); storeFence();
+        buffer.putInt(0, MAGIC); buffer.putInt(4, LAYOUT_VERSION);
+        buffer.putInt(OFFSET_CAPACITY, CAPACITY);
+        buffer.putLong(OFFSET_VERSION, topology.getVersion());
+        buffer.putInt(OFFSET_NODES, nodes.length);
+        for (int i = 0; i < CLUSTER_SLOTS; i++) {
+            ClusterNodeInfo master = topology.getMaster(i);
+            Short owner = master == null ? null : index.get(master.getName());
+            buffer.putShort(OFFSET_OWNERS + 2 * i, owner == null ? (short) -1 : owner);
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            int entry = OFFSET_TABLE + ENTRY_SIZE * i;
+            putString(entry, nodes[i].getName(), CLUSTER_NAME_LEN);
+            byte[] ip = nodes[i].getIp() == null ? new byte[0] : nodes[i].getIp().getBytes(US_ASCII);
+            buffer.putShort(entry + ENTRY_IP, (short) Math.min(ip.length, ENTRY_IP_LEN));
+            putString(entry + ENTRY_IP + 2, nodes[i].getIp(), ENTRY_IP_LEN);
+            buffer.putInt(entry + ENTRY_PORT, nodes[i].getPort());
+            buffer.putInt(entry + ENTRY_BUS_PORT, nodes[i].getBusPort());
+            buffer.putInt(entry + ENTRY_FLAGS, nodes[i].getFlags());
+            Short master = nodes[i].getMaster() == null ? null : index.get(nodes[i].getMaster());
+            buffer.putShort(entry + ENTRY_MASTER, master == null ? (short) -1 : master);
+        }
+        // the odd sequence is visible before the table writes, the table writes before the even sequence.
+        storeFence(); buffer.putLong(OFFSET_SEQUENCE, ++sequence);
+    }
+
+    protected MappedByteBuffer map(String file) throws IOException {
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = f.getChannel();
+            boolean exists = channel.size() >= SIZE;
+            if (!exists) f.setLength(SIZE);
+            MappedByteBuffer buffer = channel.map(READ_WRITE, 0, SIZE);
+            // keep the sequence growing across restarts so that readers notice the new table.
+            if (exists && buffer.getInt(0) == MAGIC) sequence = buffer.getLong(OFFSET_SEQUENCE);
+            if ((sequence & 1) != 0) sequence++;
+            return buffer;
+        }
+    }
+
+    protected void putString(int offset, String value, int len) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(US_ASCII);
+        for (int i = 0; i < len; i++) buffer.put(offset + i, i < bytes.length ? bytes[i] : 0);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Histogram;
+import com.moilioncircle.redis.cluster.watchdog.state.StallEntry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Watches the state thread, a stalled state thread delays the pings and gets this node marked PFAIL by its peers.
+ * <p>
+ * The state thread marks the start and end of every task and cron tick, a detector thread polls the mark
+ * and samples the stack of a task running longer than {@code stallThreshold} into a bounded log.
+ * The scheduling lag of the 100 ms cron tick is recorded as well.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterStallManager {
+
+    private static final Log logger = LogFactory.getLog(ClusterStallManager.class);
+
+    private static final long TICK = MILLISECONDS.toNanos(100);
+
+    private final ClusterManagers managers;
+    private final ClusterConfiguration configuration;
+    private final Deque<StallEntry> stalls = new ArrayDeque<>();
+    private final Histogram lag, duration;
+
+    private long ids;
+    private long tick;
+    private volatile String task;
+    private volatile Thread thread;
+    private volatile long started;
+    private volatile StallEntry pending;
+    private volatile ScheduledExecutorService detector;
+
+    public ClusterStallManager(ClusterManagers managers) {
+        this.managers = managers;
+        this.configuration = managers.configuration;
+        this.lag = managers.metrics.registry.histogram("cluster_cron_lag_microseconds", "Delay of the cron tick behind its schedule.");
+        this.duration = managers.metrics.registry.histogram("cluster_state_task_microseconds", "Duration of a task on the state thread.");
+    }
+
+    /**
+     * The detector runs even with {@code stallThreshold} 0, so that a threshold set later by
+     * {@code CONFIG SET} takes effect. It idles at the longest period meanwhile.
+     */
+    public void start() {
+        detector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stall-detector"); t.setDaemon(true); return t;
+        });
+        detector.schedule(this::poll, period(), MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledExecutorService detector = this.detector;
+        if (detector != null) detector.shutdownNow();
+    }
+
+    /**
+     * Must be called on the state thread when the cron tick starts.
+     */
+    public void tick() {
+        long now = System.nanoTime(), prev = tick; tick = now;
+        if (prev == 0) return;
+        long micros = Math.max(now - prev - TICK, 0) / 1000L; lag.record(micros);
+        long threshold = configuration.getStallThreshold();
+        if (threshold > 0 && micros / 1000L >= threshold) logger.warn("cron tick delayed " + micros / 1000L + " ms");
+    }
+
+    /**
+     * Must be called on the state thread before a task.
+     */
+    public void begin(String task) {
+        this.task = task; this.thread = Thread.currentThread(); this.started = System.nanoTime();
+    }
+
+    /**
+     * Must be called on the state thread after a task.
+     */
+    public void end() {
+        long micros = (System.nanoTime() - started) / 1000L; duration.record(micros);
+        long threshold = configuration.getStallThreshold();
+        StallEntry entry;
+        // the detector publishes its entry under the same lock, it either is pending or sees the task ended
+        synchronized (stalls) { started = 0; entry = pending; pending = null; }
+        if (entry != null) {
+            entry.duration = micros / 1000L;
+            logger.warn("state thread stalled " + entry.duration + " ms in " + task + ", see STALLLOG GET");
+        } else if (threshold > 0 && micros / 1000L >= threshold) {
+            add(task, micros / 1000L, new StackTraceElement[0]);
+            logger.warn("state thread stalled " + micros / 1000L + " ms in " + task);
+        }
+    }
+
+    /**
+     * Detects a stall and schedules the next poll, the period follows the current {@code stallThreshold}.
+     */
+    protected void poll() {
+        detect();
+        try {
+            detector.schedule(this::poll, period(), MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopped
+        }
+    }
+
+    protected long period() {
+        long threshold = configuration.getStallThreshold();
+        return threshold <= 0 ? 250 : Math.min(Math.max(threshold / 4, 10), 250);
+    }
+
+    protected void detect() {
+        try {
+            long started = this.started, threshold = configuration.getStallThreshold();
+            if (started == 0 || threshold <= 0 || pending != null) return;
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (millis < threshold) return;
+            Thread thread = this.thread; StackTraceElement[] stack = thread.getStackTrace();
+            synchronized (stalls) {
+                if (started != this.started) return; // the task ended while sampling
+                pending = add(task, millis, stack);
+            }
+        } catch (Throwable e) { logger.error("unexpected error", e); }
+    }
+
+    protected StallEntry add(String task, long millis, StackTraceElement[] stack) {
+        synchronized (stalls) {
+            StallEntry entry = new StallEntry(ids++, System.currentTimeMillis() / 1000L, task, millis, stack);
+            stalls.addFirst(entry);
+            while (stalls.size() > configuration.getStallLogMaxLen()) stalls.removeLast();
+            return entry;
+        }
+    }
+
+    /**
+     * @param count the maximum number of entries, -1 for all
+     * @return the latest stalls first.
+     */
+    public List<StallEntry> getStalls(int count) {
+        synchronized (stalls) {
+            List<StallEntry> r = new ArrayList<>();
+            for (StallEntry entry : stalls) { if (count >= 0 && r.size() >= count) break; r.add(entry); }
+            return r;
+        }
+    }
+
+    public int getStallsLen() {
+        synchronized (stalls) { return stalls.size(); }
+    }
+
+    public void resetStalls() {
+        synchronized (stalls) { stalls.clear(); }
+    }
+}
@@ -63,7 +63,7 @@ public class ClusterStateManager {
     }
 
     public void clusterUpdateState() {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         if (server.stateSaveTime == 0) server.stateSaveTime = now;
         if (nodeIsMaster(server.myself) && server.cluster.state == CLUSTER_FAIL
                 && now - server.stateSaveTime < CLUSTER_WRITABLE_DELAY) return;
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.state.CommandStats;
+import com.moilioncircle.redis.cluster.watchdog.state.LatencyEvent;
+import com.moilioncircle.redis.cluster.watchdog.state.SlowlogEntry;
+import com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.collection.CommandMap;
+import com.moilioncircle.redis.cluster.watchdog.util.net.TrafficCounter;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Command statistics, slowlog and latency monitor of the redis port.
+ * <p>
+ * Nothing is timed unless {@code latencyTracking}, the slowlog or the latency monitor is enabled,
+ * the call counters are a striped increment.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterStatsManager {
+
+    private static final int SLOWLOG_ENTRY_MAX_ARGC = 32;
+    private static final int SLOWLOG_ENTRY_MAX_STRING = 128;
+
+    private static final int SAMPLES = 16;
+
+    public final long startTime = System.currentTimeMillis();
+    public final TrafficCounter client = new TrafficCounter();
+    public final TrafficCounter bus = new TrafficCounter();
+    public final LongAdder connections = new LongAdder();
+    public final LongAdder commandsProcessed = new LongAdder();
+
+    private long keys;
+    private long keysTime;
+    private long slowlogIds;
+    private int sample;
+    private long sampleTime;
+    private final long[] lasts = new long[3];
+    private final long[][] samples = new long[3][SAMPLES];
+    private ClusterManagers managers;
+    private ClusterConfiguration configuration;
+    private final Deque<SlowlogEntry> slowlog = new ArrayDeque<>();
+    private final CommandMap<CommandStats> commands = new CommandMap<>();
+    private final List<CommandStats> list = new CopyOnWriteArrayList<>();
+    private final Map<String, LatencyEvent> events = new ConcurrentHashMap<>();
+
+    public ClusterStatsManager(ClusterManagers managers) {
+        this.managers = managers;
+        this.configuration = managers.configuration;
+    }
+
+    /**
+     * @return the stats of an existing command, created on the first call.
+     */
+    public CommandStats get(byte[] name) {
+        CommandStats stats = commands.get(name);
+        if (stats != null) return stats;
+        synchronized (commands) {
+            if ((stats = commands.get(name)) != null) return stats;
+            stats = new CommandStats(new String(name).toLowerCase());
+            commands.put(stats.name, stats); list.add(stats); return stats;
+        }
+    }
+
+    public Collection<CommandStats> getCommandStats() {
+        return list;
+    }
+
+    public boolean isTiming() {
+        return configuration.isLatencyTracking() || configuration.getSlowlogLogSlowerThan() >= 0
+                || configuration.getLatencyMonitorThreshold() > 0;
+    }
+
+    /**
+     * The histogram, the slowlog and the latency monitor share the single timing of the call.
+     *
+     * @param start  the {@link System#nanoTime()} before the call, ignored unless {@link #isTiming()}.
+     * @param failed true if the call threw or replied an error.
+     */
+    public void record(Transport<byte[][]> t, byte[][] raw, CommandStats stats, long start, boolean failed) {
+        stats.calls.increment(); commandsProcessed.increment();
+        if (failed) stats.failed.increment();
+        if (start == 0L) return;
+        long micros = (System.nanoTime() - start) / 1000;
+        stats.usec.add(micros);
+        if (configuration.isLatencyTracking()) stats.histogram.record(micros);
+        long slower = configuration.getSlowlogLogSlowerThan();
+        if (slower >= 0 && micros >= slower) slowlog(t, raw, micros);
+        long threshold = configuration.getLatencyMonitorThreshold();
+        if (threshold > 0 && micros / 1000 >= threshold) latency("command", micros / 1000);
+    }
+
+    public void resetCommandStats() {
+        for (CommandStats stats : list) stats.reset();
+    }
+
+    /**
+     * Logs a slow call, the newest {@code slowlogMaxLen} entries are kept. Like redis, at most 32 arguments
+     * of at most 128 bytes each are logged, the rest is summarized as the number of arguments or bytes left out.
+     */
+    protected void slowlog(Transport<byte[][]> t, byte[][] raw, long micros) {
+        int argc = Math.min(raw.length, SLOWLOG_ENTRY_MAX_ARGC);
+        byte[][] args = new byte[argc][];
+        for (int i = 0; i < argc; i++) {
+            if (argc != raw.length && i == argc - 1) {
+                args[i] = ("... (" + (raw.length - argc + 1) + " more arguments)").getBytes(); break;
+            }
+            byte[] arg = raw[i] == null ? new byte[0] : raw[i];
+            if (arg.length <= SLOWLOG_ENTRY_MAX_STRING) { args[i] = arg; continue; }
+            byte[] more = ("... (" + (arg.length - SLOWLOG_ENTRY_MAX_STRING) + " more bytes)").getBytes();
+            args[i] = Arrays.copyOf(arg, SLOWLOG_ENTRY_MAX_STRING + more.length);
+            System.arraycopy(more, 0, args[i], SLOWLOG_ENTRY_MAX_STRING, more.length);
+        }
+        long now = System.currentTimeMillis() / 1000;
+        synchronized (slowlog) {
+            slowlog.addFirst(new SlowlogEntry(slowlogIds++, now, micros, args, address(t.getRemoteAddress())));
+            while (slowlog.size() > configuration.getSlowlogMaxLen()) slowlog.removeLast();
+        }
+    }
+
+    /**
+     * @param count the number of entries, negative for all of them.
+     * @return the newest entries first.
+     */
+    public List<SlowlogEntry> getSlowlog(int count) {
+        synchronized (slowlog) {
+            List<SlowlogEntry> r = new ArrayList<>();
+            for (SlowlogEntry entry : slowlog) { if (count >= 0 && r.size() >= count) break; r.add(entry); }
+            return r;
+        }
+    }
+
+    public int getSlowlogLen() {
+        synchronized (slowlog) { return slowlog.size(); }
+    }
+
+    public void resetSlowlog() {
+        synchronized (slowlog) { slowlog.clear(); }
+    }
+
+    /**
+     * Records an event of the latency monitor.
+     */
+    public void latency(String name, long millis) {
+        LatencyEvent event = events.computeIfAbsent(name, LatencyEvent::new);
+        synchronized (event) {
+            event.time = System.currentTimeMillis() / 1000; event.latest = millis;
+            if (millis > event.max) event.max = millis;
+        }
+    }
+
+    public Collection<LatencyEvent> getLatencyEvents() {
+        return events.values();
+    }
+
+    public void resetLatencyEvents() {
+        events.clear();
+    }
+
+    /**
+     * Samples the per second rates of the counters, called by the cron every 100 milliseconds.
+     */
+    public void sample() {
+        long now = System.currentTimeMillis();
+        long[] values = {commandsProcessed.sum(), client.getRead(), client.getWritten()};
+        synchronized (samples) {
+            long elapsed = now - sampleTime;
+            if (sampleTime != 0 && elapsed > 0) {
+                for (int i = 0; i < values.length; i++) samples[i][sample] = (values[i] - lasts[i]) * 1000 / elapsed;
+                sample = (sample + 1) % SAMPLES;
+            }
+            System.arraycopy(values, 0, lasts, 0, values.length); sampleTime = now;
+        }
+        if (now - keysTime >= 1000) { keysTime = now; sampleKeys(); }
+    }
+
+    /**
+     * The keys are written by the replication listener and the command handlers straight to the engine,
+     * its size is sampled once per second instead of being asked for by every INFO.
+     */
+    public void sampleKeys() {
+        StorageEngine engine = managers.engine; long keys = engine == null ? 0L : engine.size();
+        synchronized (samples) { this.keys = keys; }
+    }
+
+    public long getKeys() {
+        synchronized (samples) { return keys; }
+    }
+
+    public long getInstantaneousOps() {
+        return instantaneous(0);
+    }
+
+    public long getInstantaneousInput() {
+        return instantaneous(1);
+    }
+
+    public long getInstantaneousOutput() {
+        return instantaneous(2);
+    }
+
+    protected long instantaneous(int metric) {
+        long sum = 0;
+        synchronized (samples) { for (long v : samples[metric]) sum += v; }
+        return sum / SAMPLES;
+    }
+
+    private static String address(SocketAddress address) {
+        if (!(address instanceof InetSocketAddress)) return String.valueOf(address);
+        InetSocketAddress r = (InetSocketAddress) address;
+        return r.getAddress().getHostAddress() + ":" + r.getPort();
+    }
+}
@@ -17,6 +17,7 @@
 package com.moilioncircle.redis.cluster.watchdog.message.handler;
 
 import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterSlotManager;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
@@ -136,7 +137,7 @@ public abstract class AbstractClusterMessageHandler implements ClusterMessageHan
             if (configuration.getVersion() == PROTOCOL_V1
                     && !nodePFailed(gossip.flags) && !nodeFailed(gossip.flags)
                     && node.pingTime == 0 && managers.nodes.clusterNodeFailureReportsCount(node) == 0
-                    && gossip.pongTime <= (System.currentTimeMillis() + 500) && gossip.pongTime > node.pongTime) {
+                    && gossip.pongTime <= (managers.clock.currentTimeMillis() + 500) && gossip.pongTime > node.pongTime) {
                 node.pongTime = gossip.pongTime;
             }
 
@@ -171,10 +172,13 @@ public abstract class AbstractClusterMessageHandler implements ClusterMessageHan
         if (nodeIsMaster(server.myself)) failures++; if (failures < quorum) return;
         logger.info("Marking node " + node.name + " as failing (quorum reached).");
         //
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         node.flags &= ~CLUSTER_NODE_PFAIL; node.flags |= CLUSTER_NODE_FAIL;
         node.failTime = now; managers.notifyNodeFailed(valueOf(node, server.myself));
-        if (nodeIsMaster(server.myself)) managers.messages.clusterSendFail(node.name);
+        managers.timelines.event(node, FailoverTimeline.FAIL_QUORUM, "reports=" + failures);
+        if (nodeIsMaster(server.myself)) {
+            managers.messages.clusterSendFail(node.name); managers.timelines.event(node, FailoverTimeline.FAIL_SENT);
+        }
     }
 
     public void clusterHandleConfigEpochCollision(ClusterNode sender) {
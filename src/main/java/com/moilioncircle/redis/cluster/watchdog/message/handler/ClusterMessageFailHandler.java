@@ -16,6 +16,7 @@
 
 package com.moilioncircle.redis.cluster.watchdog.message.handler;
 
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
@@ -49,8 +50,9 @@ public class ClusterMessageFailHandler extends AbstractClusterMessageHandler {
         ClusterNode failing = managers.nodes.clusterLookupNode(hdr.data.fail.name);
         if (failing != null && !nodeIsMyself(failing.flags) && !nodeFailed(failing.flags)) {
             logger.info("FAIL message received from " + hdr.name + " fail " + hdr.data.fail.name);
-            failing.flags |= CLUSTER_NODE_FAIL; failing.failTime = System.currentTimeMillis(); //fail time
+            failing.flags |= CLUSTER_NODE_FAIL; failing.failTime = managers.clock.currentTimeMillis(); //fail time
             failing.flags &= ~CLUSTER_NODE_PFAIL; managers.notifyNodeFailed(valueOf(failing, server.myself));
+            managers.timelines.event(failing, FailoverTimeline.FAIL_RECEIVED, hdr.name);
         }
         return true;
     }
@@ -23,6 +23,7 @@ import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.AUTH_ACK;
 import static com.moilioncircle.redis.cluster.watchdog.state.NodeStates.nodeIsMaster;
 
 /**
@@ -43,7 +44,9 @@ public class ClusterMessageFailoverAuthAckHandler extends AbstractClusterMessage
 
         if (sender == null) return true;
         if (nodeIsMaster(sender) && sender.assignedSlots > 0 && hdr.currentEpoch >= server.cluster.failoverAuthEpoch) {
-            server.cluster.failoverAuthCount++; managers.failovers.clusterHandleSlaveFailover();
+            server.cluster.failoverAuthCount++;
+            managers.timelines.event(server.myself.master, AUTH_ACK, sender.name + " votes=" + server.cluster.failoverAuthCount);
+            managers.failovers.clusterHandleSlaveFailover();
         }
         return true;
     }
@@ -50,7 +50,7 @@ public class ClusterMessageFailoverAuthRequestHandler extends AbstractClusterMes
 
     public void clusterSendFailoverAuthIfNeeded(ClusterNode node, ClusterMessage hdr) {
         ClusterNode master = node.master;
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         boolean force = (hdr.messageFlags[0] & CLUSTERMSG_FLAG0_FORCEACK) != 0;
         //
         if (nodeIsSlave(server.myself)) return;
@@ -67,7 +67,7 @@ public class ClusterMessageFailoverAuthRequestHandler extends AbstractClusterMes
         }
 
         managers.messages.clusterSendFailoverAuth(node);
-        node.master.votedTime = System.currentTimeMillis();
+        node.master.votedTime = managers.clock.currentTimeMillis();
         server.cluster.lastVoteEpoch = server.cluster.currentEpoch;
         logger.info("Failover auth granted to " + node.name + " for epoch " + server.cluster.currentEpoch);
     }
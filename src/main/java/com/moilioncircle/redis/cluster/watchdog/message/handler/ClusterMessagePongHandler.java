@@ -16,6 +16,7 @@
 
 package com.moilioncircle.redis.cluster.watchdog.message.handler;
 
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
 import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
 import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
 import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
@@ -74,12 +75,13 @@ public class ClusterMessagePongHandler extends AbstractClusterMessageHandler {
                 managers.connections.freeClusterLink(link); return false;
             }
 
-            link.node.pongTime = System.currentTimeMillis();
+            link.node.pongTime = managers.clock.currentTimeMillis();
             link.node.pingTime = 0;
 
             if (nodePFailed(link.node)) {
                 link.node.flags &= ~CLUSTER_NODE_PFAIL;
                 managers.notifyUnsetNodePFailed(valueOf(link.node, server.myself));
+                managers.timelines.close(link.node, FailoverTimeline.RECOVERED);
             } else if (nodeFailed(link.node)) clearNodeFailureIfNeeded(link.node);
         }
 
@@ -118,7 +120,7 @@ public class ClusterMessagePongHandler extends AbstractClusterMessageHandler {
     }
 
     public void clearNodeFailureIfNeeded(ClusterNode node) {
-        long now = System.currentTimeMillis();
+        long now = managers.clock.currentTimeMillis();
         long timeout = managers.configuration.getClusterNodeTimeout() * CLUSTER_FAIL_UNDO_TIME_MULTI;
 
         if (nodeIsSlave(node) || node.assignedSlots == 0) {
@@ -127,5 +129,6 @@ public class ClusterMessagePongHandler extends AbstractClusterMessageHandler {
         if (nodeIsMaster(node) && node.assignedSlots > 0 && now - node.failTime > timeout) {
             node.flags &= ~CLUSTER_NODE_FAIL; managers.notifyUnsetNodeFailed(valueOf(node, server.myself));
         }
+        if (!nodeFailed(node)) managers.timelines.close(node, FailoverTimeline.RECOVERED);
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.function.LongSupplier;
+
+/**
+ * A value read when the metrics are exported, the supplier must be cheap and thread safe.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class Gauge extends Metric {
+
+    private final LongSupplier supplier;
+
+    public Gauge(String name, String help, String labels, LongSupplier supplier) {
+        super(name, help, labels);
+        this.supplier = supplier;
+    }
+
+    public long get() {
+        return supplier.getAsLong();
+    }
+
+    @Override
+    public String getType() {
+        return "gauge";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import com.moilioncircle.redis.cluster.watchdog.util.LatencyHistogram;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of microsecond durations backed by a {@link LatencyHistogram}, exported as a summary.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class Histogram extends Metric {
+
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder count = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public Histogram(String name, String help, String labels) {
+        super(name, help, labels);
+    }
+
+    public void record(long micros) {
+        histogram.record(micros); count.increment(); sum.add(micros);
+    }
+
+    /**
+     * Records the time elapsed since {@code start}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long start) {
+        record((System.nanoTime() - start) / 1000L);
+    }
+
+    public long percentile(double percentile) {
+        return histogram.percentile(percentile);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    @Override
+    public String getType() {
+        return "summary";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+/**
+ * A named time series of the {@link MetricsRegistry}, metrics of one family share the name and differ by labels.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public abstract class Metric {
+
+    protected final String name;
+    protected final String help;
+    protected final String labels;
+
+    protected Metric(String name, String help, String labels) {
+        this.name = name; this.help = help; this.labels = labels;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return the labels formatted as {@code key="value",...}, or null.
+     */
+    public String getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return the OpenMetrics type of the family.
+     */
+    public abstract String getType();
+}
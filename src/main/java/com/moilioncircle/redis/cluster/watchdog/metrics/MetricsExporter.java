@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SPI of the metrics exporters, an exporter either serves or pushes the metrics of the registry it is started with.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ * @see OpenMetricsExporter
+ */
+public interface MetricsExporter {
+
+    void start(MetricsRegistry registry);
+
+    void stop(long timeout, TimeUnit unit);
+}
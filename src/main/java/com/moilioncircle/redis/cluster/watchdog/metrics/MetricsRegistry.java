@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of one watchdog, without any external dependency.
+ * <p>
+ * Metrics are looked up once and kept by the instrumented code, recording never touches the registry.
+ * Registering a metric that already exists returns the existing one, the series of a family share its type.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class MetricsRegistry {
+
+    /**
+     * The families by name, each with its series by labels, the series without labels under {@code ""}.
+     */
+    private final ConcurrentNavigableMap<String, ConcurrentNavigableMap<String, Metric>> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, (String) null);
+    }
+
+    public Counter counter(String name, String help, String labels) {
+        return register(new Counter(name, help, labels));
+    }
+
+    public Counter counter(String name, String help, LongSupplier supplier) {
+        return counter(name, help, null, supplier);
+    }
+
+    public Counter counter(String name, String help, String labels, LongSupplier supplier) {
+        return register(new Counter(name, help, labels, supplier));
+    }
+
+    public Gauge gauge(String name, String help, LongSupplier supplier) {
+        return gauge(name, help, null, supplier);
+    }
+
+    public Gauge gauge(String name, String help, String labels, LongSupplier supplier) {
+        return register(new Gauge(name, help, labels, supplier));
+    }
+
+    public Histogram histogram(String name, String help) {
+        return histogram(name, help, null);
+    }
+
+    public Histogram histogram(String name, String help, String labels) {
+        return register(new Histogram(name, help, labels));
+    }
+
+    public synchronized Metric remove(String name, String labels) {
+        ConcurrentNavigableMap<String, Metric> family = families.get(name);
+        if (family == null) return null;
+        Metric r = family.remove(key(labels));
+        if (family.isEmpty()) families.remove(name);
+        return r;
+    }
+
+    /**
+     * @return the metrics ordered by family name, then by labels, the series of one family are adjacent.
+     */
+    public Collection<Metric> getMetrics() {
+        List<Metric> r = new ArrayList<>();
+        for (ConcurrentNavigableMap<String, Metric> family : families.values()) r.addAll(family.values());
+        return Collections.unmodifiableList(r);
+    }
+
+    /**
+     * @return a label formatted as {@code key="value"}.
+     */
+    public static String label(String key, String value) {
+        StringBuilder builder = new StringBuilder(key).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') builder.append('\\').append(c);
+            else if (c == '\n') builder.append("\\n"); else builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected synchronized <T extends Metric> T register(T metric) {
+        ConcurrentNavigableMap<String, Metric> family = families.computeIfAbsent(metric.getName(), k -> new ConcurrentSkipListMap<>());
+        Metric prev = family.isEmpty() ? null : family.firstEntry().getValue();
+        if (prev != null && prev.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + metric.getName() + " registered as " + prev.getType());
+        prev = family.putIfAbsent(key(metric.getLabels()), metric);
+        return prev == null ? metric : (T) prev;
+    }
+
+    private static String key(String labels) {
+        return labels == null ? "" : labels;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.HttpRequest;
+import com.moilioncircle.redis.cluster.watchdog.codec.HttpRequestDecoder;
+import com.moilioncircle.redis.cluster.watchdog.codec.HttpResponse;
+import com.moilioncircle.redis.cluster.watchdog.codec.HttpResponseEncoder;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.CompletableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.net.NioBootstrapImpl;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.TransportListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serves the metrics in the OpenMetrics text format over plain HTTP on {@code GET /metrics}. Other paths get
+ * a {@code 404}, other methods a {@code 405}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class OpenMetricsExporter implements MetricsExporter {
+
+    private static final Log logger = LogFactory.getLog(OpenMetricsExporter.class);
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final String host;
+    private final int port;
+    private volatile NioBootstrapImpl<Object> acceptor;
+
+    public OpenMetricsExporter(String host, int port) {
+        this.host = host; this.port = port;
+    }
+
+    @Override
+    public void start(MetricsRegistry registry) {
+        acceptor = new NioBootstrapImpl<>();
+        acceptor.setEncoder(() -> new HttpResponseEncoder(CONTENT_TYPE));
+        acceptor.setDecoder(HttpRequestDecoder::new); acceptor.setup();
+        acceptor.setTransportListener(new TransportListener.Adaptor<Object>() {
+            @Override
+            public void onMessage(Transport<Object> t, Object message) {
+                HttpResponse response = handle((HttpRequest) message, registry);
+                CompletableFuture<Void> future = t.write(response, true);
+                if (response.close) future.setListener(f -> t.disconnect(null));
+            }
+        });
+        try {
+            acceptor.connect(host, port).get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            else throw new UnsupportedOperationException(e.getCause());
+        }
+    }
+
+    @Override
+    public void stop(long timeout, TimeUnit unit) {
+        try {
+            NioBootstrapImpl<Object> acceptor = this.acceptor;
+            if (acceptor != null) acceptor.shutdown().get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("unexpected error", e.getCause());
+        } catch (TimeoutException e) {
+            logger.error("stop timeout error", e);
+        }
+    }
+
+    /**
+     * A request with another method may carry a body that is not read, its connection is closed.
+     */
+    public static HttpResponse handle(HttpRequest request, MetricsRegistry registry) {
+        if (!request.method.equals("GET")) return new HttpResponse(405, "Method Not Allowed", "method not allowed\n", true);
+        int query = request.path.indexOf('?');
+        String path = query < 0 ? request.path : request.path.substring(0, query);
+        if (!path.equals("/metrics")) return new HttpResponse(404, "Not Found", "not found\n", request.close);
+        return new HttpResponse(200, "OK", format(registry.getMetrics()), request.close);
+    }
+
+    public static String format(Collection<Metric> metrics) {
+        String family = null;
+        StringBuilder builder = new StringBuilder();
+        for (Metric metric : metrics) {
+            if (!metric.getName().equals(family)) {
+                family = metric.getName();
+                builder.append("# TYPE ").append(family).append(' ').append(metric.getType()).append('\n');
+                if (metric.getHelp() != null) builder.append("# HELP ").append(family).append(' ').append(metric.getHelp()).append('\n');
+            }
+            if (metric instanceof Counter) {
+                sample(builder, family + "_total", metric.getLabels(), null, ((Counter) metric).get());
+            } else if (metric instanceof Gauge) {
+                sample(builder, family, metric.getLabels(), null, ((Gauge) metric).get());
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                sample(builder, family, metric.getLabels(), "quantile=\"0.5\"", histogram.percentile(50));
+                sample(builder, family, metric.getLabels(), "quantile=\"0.99\"", histogram.percentile(99));
+                sample(builder, family, metric.getLabels(), "quantile=\"0.999\"", histogram.percentile(99.9));
+                sample(builder, family + "_count", metric.getLabels(), null, histogram.getCount());
+                sample(builder, family + "_sum", metric.getLabels(), null, histogram.getSum());
+            }
+        }
+        return builder.append("# EOF\n").toString();
+    }
+
+    private static void sample(StringBuilder builder, String name, String labels, String extra, long value) {
+        builder.append(name);
+        if (labels != null || extra != null) {
+            builder.append('{');
+            if (labels != null) builder.append(labels);
+            if (labels != null && extra != null) builder.append(',');
+            if (extra != null) builder.append(extra);
+            builder.append('}');
+        }
+        builder.append(' ').append(value).append('\n');
+    }
+}
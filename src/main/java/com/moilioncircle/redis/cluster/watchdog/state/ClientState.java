@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.state;
+
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Per connection state of a client of the redis port, guarded by itself.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClientState {
+    public Transport<byte[][]> transport;
+    public boolean busy; public boolean running; public int suspends; public boolean paused;
+    /**
+     * Set by {@code ASKING}, only touched by the thread executing the commands of the connection.
+     */
+    public boolean asking;
+    /**
+     * Set by {@code READONLY}, lets a replica serve the read only commands of its master's slots.
+     */
+    public volatile boolean readonly;
+    public Queue<byte[][]> pending = new ArrayDeque<>();
+    /**
+     * The command running on the I/O thread and its timing. A handler that suspends the connection takes it over,
+     * the command is then recorded when the connection resumes instead of when the handler returns.
+     */
+    public byte[][] command; public CommandStats stats; public long start; public long errors;
+
+    public ClientState(Transport<byte[][]> transport) {
+        this.transport = transport;
+    }
+}
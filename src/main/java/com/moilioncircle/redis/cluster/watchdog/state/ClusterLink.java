@@ -17,9 +17,12 @@
 package com.moilioncircle.redis.cluster.watchdog.state;
 
 import com.moilioncircle.redis.cluster.watchdog.message.RCmbMessage;
+import com.moilioncircle.redis.cluster.watchdog.util.LatencyHistogram;
 import com.moilioncircle.redis.cluster.watchdog.util.net.session.Session;
 
 /**
+ * The statistics are written by the state thread only and may be read from any thread.
+ *
  * @author Leon Chen
  * @since 1.0.0
  */
@@ -27,6 +30,11 @@ public class ClusterLink {
     public volatile long createTime;
     public volatile ClusterNode node;
     public volatile Session<RCmbMessage> fd;
+    public volatile boolean inbound; public volatile String sender;
+    public volatile long bytesSent; public volatile long bytesReceived;
+    public volatile long messagesSent; public volatile long messagesReceived;
+    public volatile long pingSentTime; public volatile long rtt; public volatile long rttEwma;
+    public final LatencyHistogram rtts = new LatencyHistogram();
 
-    public ClusterLink() { this.createTime = System.currentTimeMillis(); }
+    public ClusterLink(long createTime) { this.createTime = createTime; }
 }
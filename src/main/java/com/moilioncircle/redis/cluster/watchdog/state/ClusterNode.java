@@ -37,5 +37,5 @@ public class ClusterNode {
     public ClusterNode master; public volatile ClusterLink link;
     public List<ClusterNodeFailReport> failReports = new ArrayList<>();
 
-    public ClusterNode() { this.createTime = System.currentTimeMillis(); }
+    public ClusterNode(long createTime) { this.createTime = createTime; }
 }
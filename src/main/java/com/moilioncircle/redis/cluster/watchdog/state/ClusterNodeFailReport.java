@@ -22,7 +22,7 @@ package com.moilioncircle.redis.cluster.watchdog.state;
  */
 public class ClusterNodeFailReport {
     public ClusterNode node;
-    public long createTime = System.currentTimeMillis();
+    public long createTime;
 
-    public ClusterNodeFailReport(ClusterNode node) { this.node = node; }
+    public ClusterNodeFailReport(ClusterNode node, long createTime) { this.node = node; this.createTime = createTime; }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.state;
+
+import com.moilioncircle.redis.cluster.watchdog.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one command of the redis port, updated without locks by any thread.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class CommandStats {
+    public final String name;
+    public final LongAdder calls = new LongAdder();
+    public final LongAdder usec = new LongAdder();
+    public final LongAdder rejected = new LongAdder();
+    public final LongAdder failed = new LongAdder();
+    public final LatencyHistogram histogram = new LatencyHistogram();
+
+    public CommandStats(String name) {
+        this.name = name;
+    }
+
+    public void reset() {
+        calls.reset(); usec.reset(); rejected.reset(); failed.reset(); histogram.reset();
+    }
+}
@@ -32,4 +32,5 @@ public class ServerState {
     public long iteration = 0; public String previousAddress;
     public long stateSaveTime = 0; public long amongMinorityTime = 0;
     public Map<Transport<RCmbMessage>, ClusterLink> cfd = new ConcurrentHashMap<>();
+    public Map<Transport<byte[][]>, ClientState> clients = new ConcurrentHashMap<>();
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.state;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class SlowlogEntry {
+    public long id; public long time; public long duration;
+    public byte[][] args; public String client;
+
+    public SlowlogEntry(long id, long time, long duration, byte[][] args, String client) {
+        this.id = id; this.time = time; this.duration = duration; this.args = args; this.client = client;
+    }
+}
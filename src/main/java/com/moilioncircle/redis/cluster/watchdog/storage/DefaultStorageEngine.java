@@ -51,6 +51,7 @@ public class DefaultStorageEngine implements StorageEngine {
     }
 
     @Override
+    @Deprecated
     public boolean readonly() {
         return false;
     }
@@ -66,6 +67,7 @@ public class DefaultStorageEngine implements StorageEngine {
     }
 
     @Override
+    @Deprecated
     public void readonly(boolean r) {
     }
 
@@ -19,6 +19,9 @@ package com.moilioncircle.redis.cluster.watchdog.storage;
 import com.moilioncircle.redis.cluster.watchdog.Resourcable;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 
 import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
@@ -68,10 +71,28 @@ public interface StorageEngine extends Resourcable {
     boolean restore(byte[] key, byte[] serialized, long expire, boolean force);
 
     /**
-     *
+     * Restores a large serialized value as it arrives from the client, called off the I/O thread.
+     * The stream throws at its end if the request turns out to be malformed, so the value must be
+     * read to the end before it is committed.
+     * <p>
+     * The default implementation reads the whole value into memory. {@code RESTORE} only streams into
+     * engines that override it, other engines get the value decoded into one {@code byte[]}.
+     */
+    default boolean restore(byte[] key, InputStream serialized, long expire, boolean force) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = serialized.read(buf)) != -1; ) out.write(buf, 0, n);
+        return restore(key, out.toByteArray(), expire, force);
+    }
+
+    /**
+     * @deprecated {@code READONLY} is a per connection state since it is combined with the slot checks,
+     * these are no longer called.
      */
+    @Deprecated
     boolean readonly();
 
+    @Deprecated
     void readonly(boolean r);
 
     /**
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Coarse clock that only reads the system time on {@link #tick()}, readable from any thread.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class CachedClock implements Clock {
+
+    private volatile long now = System.currentTimeMillis();
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public long tick() {
+        return now = System.currentTimeMillis();
+    }
+}
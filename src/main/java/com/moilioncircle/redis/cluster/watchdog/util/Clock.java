@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.util;
+
+/**
+ * Source of the milliseconds the gossip, the failure detection and the failover compare with each other.
+ * <p>
+ * The state thread calls {@link #tick()} at the start of every cron tick and every task, so a cached clock
+ * reads the system time once per batch, see {@link CachedClock} and {@link VirtualClock}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface Clock {
+
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return unix time in milliseconds, as of the last {@link #tick()} for a cached clock.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Refreshes a cached clock.
+     *
+     * @return the refreshed time.
+     */
+    default long tick() {
+        return currentTimeMillis();
+    }
+}
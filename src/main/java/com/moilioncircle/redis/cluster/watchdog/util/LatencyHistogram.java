@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log linear histogram of microsecond latencies, recording is one striped {@link LongAdder} increment.
+ * <p>
+ * Values below 16 are exact, larger values fall into one of 8 buckets per power of two,
+ * so a percentile is off by at most 12.5%.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 16;
+    private static final int BUCKETS = LINEAR + (64 - 4) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long micros) {
+        buckets[index(Math.max(micros, 0L))].increment();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long[] counts = new long[BUCKETS]; long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += (counts[i] = buckets[i].sum());
+        if (total == 0) return 0L;
+        long rank = (long) Math.ceil(total * percentile / 100d);
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if ((sum += counts[i]) >= rank && counts[i] > 0) return upper(i);
+        }
+        return upper(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) bucket.reset();
+    }
+
+    protected static int index(long v) {
+        if (v < LINEAR) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return LINEAR + (e - 4) * SUB_BUCKETS + (int) ((v >>> (e - 3)) & (SUB_BUCKETS - 1));
+    }
+
+    protected static long upper(int index) {
+        if (index < LINEAR) return index;
+        int e = (index - LINEAR) / SUB_BUCKETS + 4, sub = (index - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (e - 3)) - 1;
+    }
+}
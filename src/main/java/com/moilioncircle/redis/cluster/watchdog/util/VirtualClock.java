@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Clock that only moves when it is advanced, so tests can run node timeouts and failovers without waiting for them.
+ * The cron still runs every 100 ms of wall time, advance the clock in steps rather than past several timeouts at once.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class VirtualClock implements Clock {
+
+    private volatile long now;
+
+    public VirtualClock() {
+        this(System.currentTimeMillis());
+    }
+
+    public VirtualClock(long now) {
+        this.now = now;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * @return the advanced time.
+     */
+    public synchronized long advance(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("millis: " + millis);
+        return now += millis;
+    }
+}
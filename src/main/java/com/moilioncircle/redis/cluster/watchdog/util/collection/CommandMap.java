@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.collection;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Case insensitive command name table, looked up by the raw name bytes without allocation.
+ * <p>
+ * Reads are lock free over an immutable open addressing table, writes copy the table.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+@SuppressWarnings("unchecked")
+public class CommandMap<V> {
+
+    private volatile Table table = new Table(16);
+
+    public V get(String name) {
+        return name == null ? null : get(name.getBytes());
+    }
+
+    public V get(byte[] name) {
+        if (name == null) return null;
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int i = hash(name) & mask; table.keys[i] != null; i = (i + 1) & mask) {
+            if (equalsIgnoreCase(table.keys[i], name)) return (V) table.values[i];
+        }
+        return null;
+    }
+
+    public synchronized V put(String name, V value) {
+        byte[] key = name.toLowerCase().getBytes();
+        Table table = this.table;
+        List<byte[]> keys = new ArrayList<>(); List<Object> values = new ArrayList<>();
+        V r = null;
+        for (int i = 0; i < table.keys.length; i++) {
+            if (table.keys[i] == null) continue;
+            if (equalsIgnoreCase(table.keys[i], key)) { r = (V) table.values[i]; continue; }
+            keys.add(table.keys[i]); values.add(table.values[i]);
+        }
+        keys.add(key); values.add(value);
+        int capacity = table.keys.length;
+        while (capacity < keys.size() * 2) capacity <<= 1;
+        Table next = new Table(capacity);
+        for (int i = 0; i < keys.size(); i++) next.put(keys.get(i), values.get(i));
+        this.table = next; return r;
+    }
+
+    protected static int hash(byte[] name) {
+        int h = 0;
+        for (byte b : name) h = 31 * h + lower(b);
+        return h ^ (h >>> 16);
+    }
+
+    protected static int lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + 32 : b;
+    }
+
+    protected static boolean equalsIgnoreCase(byte[] lower, byte[] name) {
+        if (lower.length != name.length) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (lower[i] != lower(name[i])) return false;
+        }
+        return true;
+    }
+
+    private static class Table {
+        private final byte[][] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            this.keys = new byte[capacity][];
+            this.values = new Object[capacity];
+        }
+
+        private void put(byte[] key, Object value) {
+            int mask = keys.length - 1, i = hash(key) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key; values[i] = value;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+
+/**
+ * Memory fences for data shared outside the java heap, such as a memory mapped file, where
+ * volatile fields of the java side do not order the accesses.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public final class Fences {
+
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle STORE_FENCE;
+
+    static {
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe"); field.setAccessible(true);
+            Object unsafe = field.get(null);
+            LOAD_FENCE = MethodHandles.lookup().unreflect(type.getMethod("loadFence")).bindTo(unsafe);
+            STORE_FENCE = MethodHandles.lookup().unreflect(type.getMethod("storeFence")).bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Fences() {
+    }
+
+    /**
+     * Loads before the fence are not reordered with loads and stores after it.
+     */
+    public static void loadFence() {
+        try { LOAD_FENCE.invokeExact(); } catch (Throwable e) { throw new UnsupportedOperationException(e); }
+    }
+
+    /**
+     * Loads and stores before the fence are not reordered with stores after it.
+     */
+    public static void storeFence() {
+        try { STORE_FENCE.invokeExact(); } catch (Throwable e) { throw new UnsupportedOperationException(e); }
+    }
+}
@@ -111,7 +111,7 @@ public class ListenableFuture<T> extends AbstractCompletableFuture<T> {
     public boolean success(T value) {
         if (!this.status.compareAndSet(NEW, COMPLETING)) return false;
         this.object = value; this.status.set(NORMAL); latch.countDown();
-        listener.onComplete(this);
+        if (listener != null) listener.onComplete(this);
         return true;
     }
 
@@ -122,7 +122,7 @@ public class ListenableFuture<T> extends AbstractCompletableFuture<T> {
     public boolean failure(Throwable cause) {
         if (!this.status.compareAndSet(NEW, COMPLETING)) return false;
         this.object = cause; this.status.set(EXCEPTIONAL); latch.countDown();
-        listener.onComplete(this);
+        if (listener != null) listener.onComplete(this);
         return true;
     }
 }
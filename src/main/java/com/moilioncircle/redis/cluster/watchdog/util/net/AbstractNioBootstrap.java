@@ -33,6 +33,7 @@ public abstract class AbstractNioBootstrap<T> implements NioBootstrap<T> {
 
     protected Supplier<ChannelHandler> encoder;
     protected Supplier<ChannelHandler> decoder;
+    protected TrafficCounter counter;
 
     protected volatile TransportListener<T> listener;
     protected final NetworkConfiguration configuration;
@@ -47,6 +48,12 @@ public abstract class AbstractNioBootstrap<T> implements NioBootstrap<T> {
         if (listener != null) listener.onMessage(transport, message);
     }
 
+    @Override
+    public void onReadComplete(Transport<T> transport) {
+        TransportListener<T> listener = this.listener;
+        if (listener != null) listener.onReadComplete(transport);
+    }
+
     @Override
     public void onException(Transport<T> transport, Throwable throwable) {
         TransportListener<T> listener = this.listener;
@@ -87,4 +94,13 @@ public abstract class AbstractNioBootstrap<T> implements NioBootstrap<T> {
     public void setDecoder(Supplier<ChannelHandler> decoder) {
         this.decoder = decoder;
     }
+
+    public TrafficCounter getTrafficCounter() {
+        return counter;
+    }
+
+    @Override
+    public void setTrafficCounter(TrafficCounter counter) {
+        this.counter = counter;
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.net;
+
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.CompletableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.ListenableChannelFuture;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+
+import static io.netty.channel.ChannelOption.WRITE_BUFFER_WATER_MARK;
+
+/**
+ * Accepts in-JVM {@link LocalChannel}s with the same pipeline as the {@link NioAcceptor}.
+ * <p>
+ * The local address of a port is the port number, the host is ignored, so a {@link LocalInitiator}
+ * connecting to any host on that port reaches this acceptor.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class LocalAcceptor<T> extends NioAcceptor<T> {
+
+    public LocalAcceptor(NetworkConfiguration configuration) {
+        super(configuration);
+    }
+
+    public static LocalAddress address(int port) {
+        return new LocalAddress(String.valueOf(port));
+    }
+
+    @Override
+    public void setup() {
+        EventLoopGroup shared = configuration.getEventLoopGroup();
+        this.eventLoop = shared != null ? shared : new DefaultEventLoopGroup();
+        this.bootstrap = new ServerBootstrap();
+        this.bootstrap.group(this.eventLoop);
+        this.bootstrap.channel(LocalServerChannel.class);
+        this.bootstrap.childHandler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) throws Exception {
+                initPipeline(channel.pipeline());
+            }
+        });
+        this.bootstrap.childOption(ChannelOption.ALLOCATOR, new PooledByteBufAllocator(true));
+        bootstrap.childOption(WRITE_BUFFER_WATER_MARK, WriteBufferWaterMark.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<Void> connect(String host, int port) {
+        ChannelFuture f = this.bootstrap.bind(address(port));
+        channels.add(f.channel()); return new ListenableChannelFuture<>(f);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.net;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalChannel;
+
+import java.net.SocketAddress;
+
+/**
+ * Connects to a {@link LocalAcceptor} in the same JVM with the same pipeline as the {@link NioInitiator}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class LocalInitiator<T> extends NioInitiator<T> {
+
+    public LocalInitiator(NetworkConfiguration configuration) {
+        super(configuration);
+    }
+
+    @Override
+    public void setup() {
+        this.bootstrap = new Bootstrap();
+        this.bootstrap.channel(LocalChannel.class);
+        this.bootstrap.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) throws Exception {
+                initPipeline(channel.pipeline());
+            }
+        });
+        this.bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) configuration.getConnectTimeout());
+        EventLoopGroup shared = configuration.getEventLoopGroup();
+        this.bootstrap.group(workerGroup != null ? workerGroup : (workerGroup = shared != null ? shared : new DefaultEventLoopGroup()));
+    }
+
+    @Override
+    protected SocketAddress address(String host, int port) {
+        return LocalAcceptor.address(port);
+    }
+}
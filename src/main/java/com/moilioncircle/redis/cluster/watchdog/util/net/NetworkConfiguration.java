@@ -16,6 +16,8 @@
 
 package com.moilioncircle.redis.cluster.watchdog.util.net;
 
+import io.netty.channel.EventLoopGroup;
+
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -39,9 +41,11 @@ public class NetworkConfiguration {
     protected boolean tcpNoDelay = true;
     protected boolean soKeepAlive = true;
     protected boolean soReuseAddr = true;
+    protected boolean local = false;
     protected boolean autoReconnect = false;
     protected volatile long connectTimeout = SECONDS.toMillis(5);
     protected volatile long reconnectInterval = SECONDS.toMillis(5);
+    protected volatile EventLoopGroup eventLoopGroup;
 
     /**
      *
@@ -90,6 +94,22 @@ public class NetworkConfiguration {
         return reconnectInterval;
     }
 
+    /**
+     * @return true if the bootstraps use in-JVM {@link io.netty.channel.local.LocalChannel}s instead of TCP sockets.
+     * A local acceptor is addressed by its port only, the socket options are ignored.
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * @return the event loops shared by the bootstraps, or null if every bootstrap creates its own.
+     * A shared group is not shut down with the bootstraps, they only close their channels.
+     */
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
     /**
      *
      */
@@ -128,6 +148,11 @@ public class NetworkConfiguration {
         return this;
     }
 
+    public NetworkConfiguration setLocal(boolean local) {
+        this.local = local;
+        return this;
+    }
+
     public NetworkConfiguration setAutoReconnect(boolean autoReconnect) {
         this.autoReconnect = autoReconnect;
         return this;
@@ -147,4 +172,9 @@ public class NetworkConfiguration {
         this.reconnectInterval = reconnectInterval;
         return this;
     }
+
+    public NetworkConfiguration setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+        return this;
+    }
 }
@@ -22,14 +22,18 @@ import com.moilioncircle.redis.cluster.watchdog.util.net.transport.NioAcceptorTr
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
 
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_WATER_MARK;
 
@@ -41,6 +45,7 @@ public class NioAcceptor<T> extends AbstractNioBootstrap<T> {
     protected volatile EventLoopGroup eventLoop;
     protected volatile ServerBootstrap bootstrap;
     protected volatile NioAcceptorTransport<T> transport;
+    protected final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
     public NioAcceptor(NetworkConfiguration configuration) {
         super(configuration);
@@ -48,17 +53,15 @@ public class NioAcceptor<T> extends AbstractNioBootstrap<T> {
 
     @Override
     public void setup() {
-        this.eventLoop = new NioEventLoopGroup();
+        EventLoopGroup shared = configuration.getEventLoopGroup();
+        this.eventLoop = shared != null ? shared : new NioEventLoopGroup();
         this.bootstrap = new ServerBootstrap();
         this.bootstrap.group(this.eventLoop);
         this.bootstrap.channel(NioServerSocketChannel.class);
-        this.bootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
+        this.bootstrap.childHandler(new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel channel) throws Exception {
-                final ChannelPipeline p = channel.pipeline();
-                p.addLast("encoder", getEncoder().get());
-                p.addLast("decoder", getDecoder().get());
-                p.addLast("transport", transport = new NioAcceptorTransport<>(NioAcceptor.this));
+            protected void initChannel(Channel channel) throws Exception {
+                initPipeline(channel.pipeline());
             }
         });
         this.bootstrap.option(ChannelOption.SO_BACKLOG, configuration.getSoBacklog());
@@ -77,6 +80,17 @@ public class NioAcceptor<T> extends AbstractNioBootstrap<T> {
         bootstrap.childOption(WRITE_BUFFER_WATER_MARK, WriteBufferWaterMark.DEFAULT);
     }
 
+    /**
+     * Adds the traffic counter, the codec and the transport, shared with the local channels.
+     */
+    protected void initPipeline(ChannelPipeline p) {
+        channels.add(p.channel());
+        if (getTrafficCounter() != null) p.addLast("counter", getTrafficCounter());
+        p.addLast("encoder", getEncoder().get());
+        p.addLast("decoder", getDecoder().get());
+        p.addLast("transport", transport = new NioAcceptorTransport<>(this));
+    }
+
     @Override
     public Transport<T> getTransport() {
         return this.transport;
@@ -84,12 +98,13 @@ public class NioAcceptor<T> extends AbstractNioBootstrap<T> {
 
     @Override
     public CompletableFuture<?> shutdown() {
+        if (configuration.getEventLoopGroup() != null) return new ListenableChannelFuture<>(channels.close());
         return new ListenableChannelFuture<>(eventLoop.shutdownGracefully());
     }
 
     @Override
     public CompletableFuture<Void> connect(String host, int port) {
-        if (host == null) return new ListenableChannelFuture<>(this.bootstrap.bind(port));
-        else return new ListenableChannelFuture<>(this.bootstrap.bind(host, port));
+        ChannelFuture f = host == null ? this.bootstrap.bind(port) : this.bootstrap.bind(host, port);
+        channels.add(f.channel()); return new ListenableChannelFuture<>(f);
     }
 }
@@ -39,6 +39,8 @@ public interface NioBootstrap<T> extends TransportListener<T> {
 
     void setDecoder(Supplier<ChannelHandler> decoder);
 
+    void setTrafficCounter(TrafficCounter counter);
+
     CompletableFuture<Void> connect(String host, int port);
 
     TransportListener<T> setTransportListener(TransportListener<T> listener);
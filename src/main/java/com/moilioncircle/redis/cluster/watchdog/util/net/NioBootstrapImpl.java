@@ -40,8 +40,13 @@ public class NioBootstrapImpl<T> implements NioBootstrap<T> {
     }
 
     public NioBootstrapImpl(boolean server, NetworkConfiguration configuration) {
-        if (server) wrapper = new NioAcceptor<>(configuration);
-        else wrapper = new NioInitiator<>(configuration);
+        if (configuration.isLocal()) {
+            if (server) wrapper = new LocalAcceptor<>(configuration);
+            else wrapper = new LocalInitiator<>(configuration);
+        } else {
+            if (server) wrapper = new NioAcceptor<>(configuration);
+            else wrapper = new NioInitiator<>(configuration);
+        }
     }
 
     @Override
@@ -54,6 +59,11 @@ public class NioBootstrapImpl<T> implements NioBootstrap<T> {
         wrapper.onMessage(transport, message);
     }
 
+    @Override
+    public void onReadComplete(Transport<T> transport) {
+        wrapper.onReadComplete(transport);
+    }
+
     @Override
     public void onException(Transport<T> transport, Throwable cause) {
         wrapper.onException(transport, cause);
@@ -89,6 +99,11 @@ public class NioBootstrapImpl<T> implements NioBootstrap<T> {
         wrapper.setDecoder(decoder);
     }
 
+    @Override
+    public void setTrafficCounter(TrafficCounter counter) {
+        wrapper.setTrafficCounter(counter);
+    }
+
     @Override
     public CompletableFuture<Void> connect(String host, int port) {
         return wrapper.connect(host, port);
@@ -22,16 +22,21 @@ import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.Listenabl
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.NioInitiatorTransport;
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -44,6 +49,7 @@ public class NioInitiator<T> extends AbstractNioBootstrap<T> {
     protected volatile Bootstrap bootstrap;
     protected volatile EventLoopGroup workerGroup;
     protected volatile NioInitiatorTransport<T> transport;
+    protected final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
     public NioInitiator(NetworkConfiguration configuration) {
         super(configuration);
@@ -53,19 +59,17 @@ public class NioInitiator<T> extends AbstractNioBootstrap<T> {
     public void setup() {
         this.bootstrap = new Bootstrap();
         this.bootstrap.channel(NioSocketChannel.class);
-        this.bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+        this.bootstrap.handler(new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel channel) throws Exception {
-                final ChannelPipeline p = channel.pipeline();
-                p.addLast("encoder", getEncoder().get());
-                p.addLast("decoder", getDecoder().get());
-                p.addLast("transport", transport = new NioInitiatorTransport<>(NioInitiator.this));
+            protected void initChannel(Channel channel) throws Exception {
+                initPipeline(channel.pipeline());
             }
         });
         this.bootstrap.option(ChannelOption.TCP_NODELAY, configuration.isTcpNoDelay());
         this.bootstrap.option(ChannelOption.SO_KEEPALIVE, configuration.isSoKeepAlive());
         this.bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) configuration.getConnectTimeout());
-        this.bootstrap.group(workerGroup != null ? workerGroup : (workerGroup = new NioEventLoopGroup()));
+        EventLoopGroup shared = configuration.getEventLoopGroup();
+        this.bootstrap.group(workerGroup != null ? workerGroup : (workerGroup = shared != null ? shared : new NioEventLoopGroup()));
         if (configuration.getSoSendBufferSize() > 0)
             this.bootstrap.option(ChannelOption.SO_SNDBUF, configuration.getSoSendBufferSize());
         if (configuration.getSoRecvBufferSize() > 0)
@@ -76,6 +80,17 @@ public class NioInitiator<T> extends AbstractNioBootstrap<T> {
         this.bootstrap.config().group().schedule(() -> connect(r, host, port), delay, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Adds the traffic counter, the codec and the transport, shared with the local channels.
+     */
+    protected void initPipeline(ChannelPipeline p) {
+        channels.add(p.channel());
+        if (getTrafficCounter() != null) p.addLast("counter", getTrafficCounter());
+        p.addLast("encoder", getEncoder().get());
+        p.addLast("decoder", getDecoder().get());
+        p.addLast("transport", transport = new NioInitiatorTransport<>(this));
+    }
+
     @Override
     public Transport<T> getTransport() {
         return this.transport;
@@ -90,12 +105,20 @@ public class NioInitiator<T> extends AbstractNioBootstrap<T> {
 
     protected void connect(CompletableFuture<Void> r, String host, int port) {
         final ChannelFutureListener v = new ConnectFutureListenerImpl(r, host, port);
-        ChannelFuture f = this.bootstrap.connect(host, port);
+        ChannelFuture f = this.bootstrap.connect(address(host, port));
         f.addListener(v);
     }
 
+    /**
+     * @return the unresolved address of {@code host}, the bootstrap resolves it on connect.
+     */
+    protected SocketAddress address(String host, int port) {
+        return InetSocketAddress.createUnresolved(host, port);
+    }
+
     @Override
     public CompletableFuture<?> shutdown() {
+        if (configuration.getEventLoopGroup() != null) return new ListenableChannelFuture<>(channels.close());
         return new ListenableChannelFuture<>(workerGroup.shutdownGracefully());
     }
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.net;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The only owner of the auto read of a connection. Every handler that stops reading names its reason, and the
+ * connection reads again only once no reason is left, so one handler never resumes reads another one paused.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@ThreadSafe
+public class ReadPauses {
+
+    /**
+     * More commands are queued behind a suspended one than {@code commandQueueSize}.
+     */
+    public static final int PIPELINE = 1;
+
+    /**
+     * The consumer of a streamed bulk is behind, or the next request waits for it to be released.
+     */
+    public static final int STREAM = 1 << 1;
+
+    private static final AttributeKey<ReadPauses> PAUSES = AttributeKey.valueOf("read-pauses");
+
+    private int reasons;
+
+    public static void pause(Channel channel, int reason) {
+        get(channel).update(channel, reason, true);
+    }
+
+    public static void resume(Channel channel, int reason) {
+        get(channel).update(channel, reason, false);
+    }
+
+    /**
+     * @return true if {@code reason} holds the reads of {@code channel}.
+     */
+    public static boolean isPaused(Channel channel, int reason) {
+        ReadPauses pauses = channel.attr(PAUSES).get();
+        return pauses != null && pauses.isPaused(reason);
+    }
+
+    protected static ReadPauses get(Channel channel) {
+        Attribute<ReadPauses> attr = channel.attr(PAUSES);
+        ReadPauses pauses = attr.get(); if (pauses != null) return pauses;
+        ReadPauses prev = attr.setIfAbsent(pauses = new ReadPauses());
+        return prev != null ? prev : pauses;
+    }
+
+    protected synchronized boolean isPaused(int reason) {
+        return (reasons & reason) != 0;
+    }
+
+    protected synchronized void update(Channel channel, int reason, boolean pause) {
+        int prev = reasons; reasons = pause ? prev | reason : prev & ~reason;
+        if ((prev == 0) != (reasons == 0)) channel.config().setAutoRead(reasons == 0);
+    }
+}
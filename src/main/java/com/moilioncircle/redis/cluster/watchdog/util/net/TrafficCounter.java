@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes read and written by every channel it is added to, in front of the codec.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@Sharable
+public class TrafficCounter extends ChannelDuplexHandler {
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf) read.add(((ByteBuf) msg).readableBytes());
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) written.add(((ByteBuf) msg).readableBytes());
+        super.write(ctx, msg, promise);
+    }
+
+    public long getRead() {
+        return read.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+}
@@ -23,6 +23,7 @@ import com.moilioncircle.redis.cluster.watchdog.util.net.exceptions.TransportExc
 import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
 /**
  * @author Leon Chen
@@ -49,13 +50,21 @@ public class DefaultSession<T> implements Session<T> {
     @Override
     public String getLocalAddress(String value) {
         if (value != null) return value;
-        return  ((InetSocketAddress) transport.getLocalAddress()).getAddress().getHostAddress();
+        return address(transport.getLocalAddress());
     }
 
     @Override
     public String getRemoteAddress(String value) {
         if (value != null) return value;
-        return ((InetSocketAddress) transport.getRemoteAddress()).getAddress().getHostAddress();
+        return address(transport.getRemoteAddress());
+    }
+
+    /**
+     * In-JVM local channels have no ip, they are reported as the loopback address.
+     */
+    protected String address(SocketAddress address) {
+        if (!(address instanceof InetSocketAddress)) return "127.0.0.1";
+        return ((InetSocketAddress) address).getAddress().getHostAddress();
     }
 
     @Override
@@ -69,6 +78,11 @@ public class DefaultSession<T> implements Session<T> {
         }
     }
 
+    @Override
+    public long getPendingBytes() {
+        return transport.getPendingBytes();
+    }
+
     @Override
     public CompletableFuture<Void> disconnect(Throwable cause) {
         return transport.disconnect(cause);
@@ -35,5 +35,7 @@ public interface Session<T> {
 
     CompletableFuture<Void> send(T message);
 
+    long getPendingBytes();
+
     CompletableFuture<Void> disconnect(Throwable cause);
 }
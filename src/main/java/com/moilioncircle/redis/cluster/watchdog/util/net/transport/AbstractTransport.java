@@ -75,6 +75,12 @@ public abstract class AbstractTransport<T> extends SimpleChannelInboundHandler<T
         if (listener != null) listener.onMessage(this, message);
     }
 
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        TransportListener<T> listener = this.listener;
+        if (listener != null) listener.onReadComplete(this);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         if (cause instanceof IOException) cause = new TransportException(toString(), cause);
@@ -20,7 +20,11 @@ import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.Completab
 import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.ListenableChannelFuture;
 import com.moilioncircle.redis.cluster.watchdog.util.net.AbstractNioBootstrap;
 import com.moilioncircle.redis.cluster.watchdog.util.net.ConnectionStatus;
+import com.moilioncircle.redis.cluster.watchdog.util.net.ReadPauses;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 import java.net.SocketAddress;
 
@@ -68,6 +72,43 @@ public class NioAcceptorTransport<T> extends AbstractTransport<T> {
         else { return new ListenableChannelFuture<>(context.writeAndFlush(message)); }
     }
 
+    @Override
+    public void flush() {
+        context.flush();
+    }
+
+    @Override
+    public void pauseReads(int reason) {
+        ReadPauses.pause(context.channel(), reason);
+    }
+
+    @Override
+    public void resumeReads(int reason) {
+        ReadPauses.resume(context.channel(), reason);
+    }
+
+    @Override
+    public <A> Attribute<A> attr(AttributeKey<A> key) {
+        return context.channel().attr(key);
+    }
+
+    @Override
+    public boolean inEventLoop() {
+        return context.channel().eventLoop().inEventLoop();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        context.channel().eventLoop().execute(task);
+    }
+
+    @Override
+    public long getPendingBytes() {
+        if (this.context == null) return 0L;
+        ChannelOutboundBuffer buffer = context.channel().unsafe().outboundBuffer();
+        return buffer == null ? 0L : buffer.totalPendingWriteBytes();
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         super.channelActive(this.context = ctx);
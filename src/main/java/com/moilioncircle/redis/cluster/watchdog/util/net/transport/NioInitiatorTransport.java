@@ -20,7 +20,11 @@ import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.Completab
 import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.ListenableChannelFuture;
 import com.moilioncircle.redis.cluster.watchdog.util.net.AbstractNioBootstrap;
 import com.moilioncircle.redis.cluster.watchdog.util.net.ConnectionStatus;
+import com.moilioncircle.redis.cluster.watchdog.util.net.ReadPauses;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 import java.net.SocketAddress;
 
@@ -68,6 +72,43 @@ public class NioInitiatorTransport<T> extends AbstractTransport<T> {
         else { return new ListenableChannelFuture<>(channel.writeAndFlush(message)); }
     }
 
+    @Override
+    public void flush() {
+        channel.flush();
+    }
+
+    @Override
+    public void pauseReads(int reason) {
+        ReadPauses.pause(channel, reason);
+    }
+
+    @Override
+    public void resumeReads(int reason) {
+        ReadPauses.resume(channel, reason);
+    }
+
+    @Override
+    public <A> Attribute<A> attr(AttributeKey<A> key) {
+        return channel.attr(key);
+    }
+
+    @Override
+    public boolean inEventLoop() {
+        return channel.eventLoop().inEventLoop();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        channel.eventLoop().execute(task);
+    }
+
+    @Override
+    public long getPendingBytes() {
+        if (this.channel == null) return 0L;
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer == null ? 0L : buffer.totalPendingWriteBytes();
+    }
+
     public void setChannel(Channel channel) {
         this.channel = channel;
     }
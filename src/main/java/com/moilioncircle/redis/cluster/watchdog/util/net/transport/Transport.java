@@ -18,6 +18,9 @@ package com.moilioncircle.redis.cluster.watchdog.util.net.transport;
 
 import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.CompletableFuture;
 import com.moilioncircle.redis.cluster.watchdog.util.net.ConnectionStatus;
+import com.moilioncircle.redis.cluster.watchdog.util.net.ReadPauses;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 import java.net.SocketAddress;
 
@@ -39,5 +42,39 @@ public interface Transport<T> {
 
     <V> CompletableFuture<Void> write(V message, boolean flush);
 
+    void flush();
+
+    /**
+     * Stops reading from the connection for {@code reason}, may be called from any thread.
+     *
+     * @see ReadPauses
+     */
+    void pauseReads(int reason);
+
+    /**
+     * Reads from the connection again once no other reason holds it paused, may be called from any thread.
+     */
+    void resumeReads(int reason);
+
+    /**
+     * @return the bytes written but not yet flushed to the socket.
+     */
+    long getPendingBytes();
+
+    /**
+     * @return the attribute of the connection, shared with the handlers of its pipeline.
+     */
+    <A> Attribute<A> attr(AttributeKey<A> key);
+
+    /**
+     * @return true if the caller runs on the I/O thread of the connection.
+     */
+    boolean inEventLoop();
+
+    /**
+     * Runs {@code task} on the I/O thread of the connection.
+     */
+    void execute(Runnable task);
+
     TransportListener<T> setTransportListener(TransportListener<T> listener);
 }
@@ -26,6 +26,8 @@ public interface TransportListener<T> {
 
     void onMessage(Transport<T> transport, T message);
 
+    void onReadComplete(Transport<T> transport);
+
     void onException(Transport<T> transport, Throwable cause);
 
     void onDisconnected(Transport<T> transport, Throwable cause);
@@ -36,6 +38,8 @@ public interface TransportListener<T> {
 
         public void onMessage(Transport<T> transport, T message) {}
 
+        public void onReadComplete(Transport<T> transport) {}
+
         public void onException(Transport<T> transport, Throwable cause) {}
 
         public void onDisconnected(Transport<T> transport, Throwable cause) {}
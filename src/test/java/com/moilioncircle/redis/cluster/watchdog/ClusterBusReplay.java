@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCaptureReader;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCaptureReader.Record;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageDecoder;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageEncoder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
+import com.moilioncircle.redis.cluster.watchdog.message.RCmbMessage;
+import com.moilioncircle.redis.cluster.watchdog.metrics.Histogram;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterState;
+import com.moilioncircle.redis.cluster.watchdog.util.Clock;
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.CompletableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.ListenableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.net.ConnectionStatus;
+import com.moilioncircle.redis.cluster.watchdog.util.net.session.Session;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_COUNT;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MYSELF;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.INBOUND;
+import static com.moilioncircle.redis.cluster.watchdog.manager.ClusterMetricsManager.TYPES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Replays the inbound frames of a {@link com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture bus capture}
+ * through the {@link ClusterMessageDecoder} and the message handlers of a fresh {@link ClusterManagers}, as fast as possible
+ * and on the calling thread, to benchmark the handlers against real traffic.
+ * <p>
+ * The node loads {@link ClusterConfiguration#getClusterConfigFile()} like a starting node does, point it to a copy of
+ * the captured node's config to replay as that node, the file may be rewritten. Every captured link is replayed as an
+ * inbound link, replies are encoded and dropped, the cron does not run so no connection is ever opened.
+ * The clock is ticked before every record as the state thread does before a task, a {@link VirtualClock} is advanced
+ * to the capture time of the record instead. The decode, encode and handle times are recorded in the metrics of
+ * {@link #getManagers()}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+@NotThreadSafe
+public class ClusterBusReplay {
+
+    private final ClusterManagers managers;
+    private final Map<Integer, ClusterLink> links = new HashMap<>();
+
+    public ClusterBusReplay(ClusterConfiguration configuration) {
+        this.managers = new ClusterManagers(configuration.validate(), null);
+        managers.server.cluster = new ClusterState();
+        if (!managers.configs.clusterLoadConfig()) {
+            managers.server.myself = managers.nodes.createClusterNode(null, CLUSTER_NODE_MYSELF | CLUSTER_NODE_MASTER);
+            managers.server.cluster.myself = managers.server.myself; managers.nodes.clusterAddNode(managers.server.myself);
+        }
+    }
+
+    public ClusterManagers getManagers() {
+        return managers;
+    }
+
+    /**
+     * @return the number of messages handled.
+     */
+    public long replay(String file) throws IOException {
+        long count = 0L;
+        try (ClusterBusCaptureReader reader = new ClusterBusCaptureReader(file)) {
+            for (Record record = reader.next(); record != null; record = reader.next()) {
+                if (record.direction != INBOUND) continue;
+                tick(record.time);
+                ClusterLink link = links.computeIfAbsent(record.link, k -> newClusterLink());
+                EmbeddedChannel channel = ((ReplaySession) link.fd).channel;
+                channel.writeInbound(Unpooled.wrappedBuffer(record.frame));
+                for (Object msg = channel.readInbound(); msg != null; msg = channel.readInbound()) {
+                    ClusterMessage hdr = (ClusterMessage) msg;
+                    if (hdr.type < 0 || hdr.type >= CLUSTERMSG_TYPE_COUNT || managers.handlers.get(hdr.type) == null) continue;
+                    managers.handlers.handle(link, hdr); count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    protected void tick(long time) {
+        Clock clock = managers.clock;
+        if (clock instanceof VirtualClock) {
+            long millis = time - clock.currentTimeMillis();
+            if (millis > 0) ((VirtualClock) clock).advance(millis);
+        }
+        clock.tick();
+    }
+
+    public void stop() {
+        for (ClusterLink link : links.values()) ((ReplaySession) link.fd).channel.finishAndReleaseAll();
+        managers.stop(1, TimeUnit.SECONDS);
+    }
+
+    protected ClusterLink newClusterLink() {
+        ClusterLink link = managers.connections.createClusterLink(null);
+        EmbeddedChannel channel = new EmbeddedChannel(new ClusterMessageEncoder(null, managers.metrics.encode, null),
+                new ClusterMessageDecoder(null, managers.metrics.decode, null));
+        link.fd = new ReplaySession(channel); return link;
+    }
+
+    /**
+     * Usage: {@code ClusterBusReplay capture-file [nodes.conf]}, prints the throughput and the handler latencies.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ClusterBusReplay capture-file [nodes.conf]"); System.exit(1);
+        }
+        File conf = File.createTempFile("replay-nodes", ".conf"); conf.deleteOnExit();
+        if (args.length > 1) Files.copy(new File(args[1]).toPath(), conf.toPath(), REPLACE_EXISTING);
+        else if (!conf.delete()) throw new IOException("delete " + conf + " failed");
+
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile(conf.getPath());
+        ClusterBusReplay replay = new ClusterBusReplay(configuration);
+        try {
+            long start = System.nanoTime();
+            long count = replay.replay(args[0]);
+            long elapsed = Math.max(System.nanoTime() - start, 1L);
+            System.out.println("replayed " + count + " messages in " + elapsed / 1000000L + " ms, " + count * 1000000000L / elapsed + " msg/s");
+            Histogram[] handle = replay.getManagers().metrics.handle;
+            for (int i = 0; i < handle.length; i++) {
+                if (handle[i].getCount() == 0) continue;
+                System.out.println(TYPES[i] + ": count=" + handle[i].getCount() + " p50=" + handle[i].percentile(50) + "us p99=" + handle[i].percentile(99) + "us");
+            }
+        } finally {
+            replay.stop();
+        }
+    }
+
+    private static class ReplaySession implements Session<RCmbMessage> {
+
+        private final EmbeddedChannel channel;
+
+        private ReplaySession(EmbeddedChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long getId() {
+            return channel.hashCode();
+        }
+
+        @Override
+        public ConnectionStatus getStatus() {
+            return ConnectionStatus.CONNECTED;
+        }
+
+        @Override
+        public String getLocalAddress(String value) {
+            return value != null ? value : "127.0.0.1";
+        }
+
+        @Override
+        public String getRemoteAddress(String value) {
+            return value != null ? value : "127.0.0.1";
+        }
+
+        @Override
+        public CompletableFuture<Void> send(RCmbMessage message) {
+            channel.writeOutbound(message);
+            for (Object msg = channel.readOutbound(); msg != null; msg = channel.readOutbound()) ReferenceCountUtil.release(msg);
+            CompletableFuture<Void> r = new ListenableFuture<>(); r.success(null); return r;
+        }
+
+        @Override
+        public long getPendingBytes() {
+            return 0L;
+        }
+
+        @Override
+        public CompletableFuture<Void> disconnect(Throwable cause) {
+            CompletableFuture<Void> r = new ListenableFuture<>(); r.success(null); return r;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCaptureReader;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCaptureReader.Record;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageDecoder;
+import com.moilioncircle.redis.cluster.watchdog.codec.ClusterMessageEncoder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.message.ClusterMessage;
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_PING;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.INBOUND;
+import static com.moilioncircle.redis.cluster.watchdog.codec.ClusterBusCapture.OUTBOUND;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterBusReplayTest {
+
+    private static final String FILE = "target/bus-replay.cap";
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ClusterManagers sender = EmbeddedRedisClient.newManagers(ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-capture.conf"));
+        ClusterMessage ping;
+        try {
+            ping = sender.cron.submit(() -> sender.messages.clusterBuildMessageHdr(CLUSTERMSG_TYPE_PING)).get();
+        } finally {
+            sender.stop(); sender.cron.shutdown();
+        }
+
+        // the frames a node sends on one link and receives on another
+        ClusterBusCapture capture = new ClusterBusCapture(FILE, 1024 * 1024, 2);
+        EmbeddedChannel outbound = new EmbeddedChannel(new ClusterMessageEncoder(null, null, capture));
+        EmbeddedChannel inbound = new EmbeddedChannel(new ClusterMessageDecoder(null, null, capture));
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            outbound.writeOutbound(ping);
+            ByteBuf buf = outbound.readOutbound(); frames.add(ByteBufUtil.getBytes(buf));
+            inbound.writeInbound(buf);
+            assertEquals(CLUSTERMSG_TYPE_PING, ((ClusterMessage) inbound.readInbound()).type);
+        }
+        outbound.finishAndReleaseAll(); inbound.finishAndReleaseAll();
+        capture.close();
+        assertEquals(0, capture.getDropped());
+
+        long last = 0;
+        try (ClusterBusCaptureReader reader = new ClusterBusCaptureReader(FILE)) {
+            for (int i = 0; i < 2; i++) {
+                Record out = reader.next(), in = reader.next();
+                assertEquals(OUTBOUND, out.direction); assertEquals(1, out.link);
+                assertEquals(INBOUND, in.direction); assertEquals(2, in.link);
+                assertTrue(Arrays.equals(frames.get(i), out.frame) && Arrays.equals(frames.get(i), in.frame));
+                last = in.time;
+            }
+            assertEquals(null, reader.next());
+        }
+
+        new File("target/nodes-replay.conf").delete();
+        VirtualClock clock = new VirtualClock(0L);
+        ClusterBusReplay replay = new ClusterBusReplay(ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-replay.conf").setClock(clock));
+        try {
+            // only the inbound frames are handled, on the capture time
+            assertEquals(2, replay.replay(FILE));
+            assertEquals(2, replay.getManagers().metrics.handle[CLUSTERMSG_TYPE_PING].getCount());
+            assertEquals(last, clock.currentTimeMillis());
+        } finally {
+            replay.stop();
+        }
+    }
+}
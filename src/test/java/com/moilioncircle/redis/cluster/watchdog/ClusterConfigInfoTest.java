@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterConfigInfoTest {
+
+    private ClusterManagers managers;
+
+    @Before
+    public void setUp() {
+        managers = EmbeddedRedisClient.newManagers(ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-config-info.conf"));
+    }
+
+    @After
+    public void tearDown() {
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    @Test
+    public void testUnchanged() {
+        ClusterConfigInfo previous = ClusterConfigInfo.valueOf(managers.server.cluster);
+        assertSame(previous, ClusterConfigInfo.valueOf(managers.server.cluster, previous));
+        assertNotNull(ClusterConfigInfo.valueOf(managers.server.cluster, null));
+    }
+
+    @Test
+    public void testChanged() {
+        ClusterNode myself = managers.server.myself;
+        ClusterConfigInfo previous = ClusterConfigInfo.valueOf(managers.server.cluster);
+
+        // ping and pong times are not part of the config but must not go stale
+        myself.pongTime++;
+        ClusterConfigInfo next = ClusterConfigInfo.valueOf(managers.server.cluster, previous);
+        assertNotSame(previous, next);
+        assertEquals(previous, next);
+        assertEquals(myself.pongTime, next.getNodes().get(myself.name).getPongTime());
+
+        managers.server.cluster.migrating[100] = myself;
+        ClusterConfigInfo migrating = ClusterConfigInfo.valueOf(managers.server.cluster, next);
+        assertEquals(myself.name, migrating.getMigrating()[100]);
+
+        ClusterNode node = managers.nodes.createClusterNode(null, 0);
+        managers.nodes.clusterAddNode(node);
+        ClusterConfigInfo added = ClusterConfigInfo.valueOf(managers.server.cluster, migrating);
+        assertEquals(2, added.getNodes().size());
+        assertSame(added, ClusterConfigInfo.valueOf(managers.server.cluster, added));
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisEncoder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.message.handler.ClusterMessageHandler;
+import com.moilioncircle.redis.cluster.watchdog.util.Clock;
+import com.moilioncircle.redis.cluster.watchdog.util.net.NetworkConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.util.net.NioBootstrapImpl;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.TransportListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTERMSG_TYPE_COUNT;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_HANDSHAKE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_NOADDR;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_PORT_INCR;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_SLOTS;
+import static io.netty.util.CharsetUtil.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Runs {@code size} watchdogs in one JVM on free loopback ports, sharing one event loop group, to measure the
+ * gossip convergence and the failure detection.
+ * <p>
+ * Latency and loss are injected when a node handles a bus message: a lost message is dropped, a delayed one
+ * is handed to the state thread {@code latency} milliseconds later. Every measurement returns the elapsed
+ * milliseconds, or -1 if the condition did not hold within the timeout.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterSimulator implements Closeable {
+
+    private static final int TIMEOUT = 30000;
+
+    private final int size;
+    private final int[] ports;
+    private final long nodeTimeout;
+    private final EventLoopGroup group = new NioEventLoopGroup();
+    private final ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor();
+    private final List<RedisClusterWatchdog> nodes = new ArrayList<>();
+    private final Map<String, Long> pfails = new ConcurrentHashMap<>();
+    private final Map<String, Long> fails = new ConcurrentHashMap<>();
+    private final boolean[] killed;
+
+    private volatile Clock clock;
+    private volatile boolean local;
+    private volatile long latency;
+    private volatile double loss;
+    private volatile String victim;
+
+    public ClusterSimulator(int size, long nodeTimeout) {
+        this.size = size; this.nodeTimeout = nodeTimeout; this.killed = new boolean[size]; this.ports = new int[size];
+    }
+
+    public ClusterSimulator setLatency(long latency) {
+        this.latency = latency; return this;
+    }
+
+    public ClusterSimulator setLoss(double loss) {
+        this.loss = loss; return this;
+    }
+
+    /**
+     * Runs the bus and the commands over in-JVM local channels instead of loopback sockets.
+     */
+    public ClusterSimulator setLocal(boolean local) {
+        this.local = local; return this;
+    }
+
+    /**
+     * Shares {@code clock} between the nodes, a {@link com.moilioncircle.redis.cluster.watchdog.util.VirtualClock}
+     * lets the timeouts expire without waiting for them.
+     */
+    public ClusterSimulator setClock(Clock clock) {
+        this.clock = clock; return this;
+    }
+
+    public void start() {
+        File dir = new File("target/simulator"); if (!dir.exists() && !dir.mkdirs()) throw new IllegalStateException(dir.toString());
+        NetworkConfiguration network = NetworkConfiguration.defaultSetting().setEventLoopGroup(group).setLocal(local);
+        Set<Integer> used = new HashSet<>(); for (int i = 0; i < size; i++) ports[i] = freePort(used);
+        for (int i = 0; i < size; i++) {
+            File conf = new File(dir, "nodes-" + ports[i] + ".conf"); if (conf.exists() && !conf.delete()) throw new IllegalStateException(conf.toString());
+            ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterAnnouncePort(ports[i]);
+            configuration.setClusterConfigFile(conf.getPath()).setClusterNodeTimeout(nodeTimeout).setNetworkConfiguration(network);
+            if (clock != null) configuration.setClock(clock);
+            RedisClusterWatchdog watchdog = new RedisClusterWatchdog(configuration);
+            intercept(watchdog.managers); watchdog.setClusterNodeListener(new DetectionListener(i));
+            watchdog.start(); nodes.add(watchdog);
+        }
+    }
+
+    /**
+     * Node 0 meets every other node.
+     *
+     * @return milliseconds until every node knows every node and holds a link to each of them.
+     */
+    public long meet(long timeout) {
+        long start = System.currentTimeMillis();
+        if (local) {
+            List<String[]> commands = new ArrayList<>();
+            for (int i = 1; i < size; i++) commands.add(new String[]{"CLUSTER", "MEET", "127.0.0.1", String.valueOf(ports[i])});
+            call(0, commands);
+        } else try (Jedis jedis = new Jedis("127.0.0.1", ports[0], TIMEOUT)) {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 1; i < size; i++) pipeline.clusterMeet("127.0.0.1", ports[i]);
+            pipeline.sync();
+        }
+        return await(start, timeout, () -> {
+            for (RedisClusterWatchdog watchdog : nodes) {
+                ClusterTopology topology = watchdog.topology();
+                Map<String, ClusterNodeInfo> known = topology.getConfig().getNodes();
+                if (known.size() != size) return false;
+                for (ClusterNodeInfo node : known.values()) if ((node.getFlags() & (CLUSTER_NODE_HANDSHAKE | CLUSTER_NODE_NOADDR)) != 0) return false;
+                int outbound = 0; for (ClusterLinkInfo link : topology.getLinks()) if (!link.isInbound()) outbound++;
+                if (outbound < size - 1) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Splits the slots evenly, every node adds its own range with CLUSTER ADDSLOTS.
+     *
+     * @return milliseconds until every node maps every slot to its owner.
+     */
+    public long addSlots(long timeout) {
+        long start = System.currentTimeMillis(); int[] owners = new int[CLUSTER_SLOTS];
+        for (int i = 0; i < size; i++) {
+            int from = i * CLUSTER_SLOTS / size, to = (i + 1) * CLUSTER_SLOTS / size;
+            int[] slots = new int[to - from]; for (int j = 0; j < slots.length; j++) { slots[j] = from + j; owners[from + j] = i; }
+            if (local) {
+                String[] command = new String[slots.length + 2]; command[0] = "CLUSTER"; command[1] = "ADDSLOTS";
+                for (int j = 0; j < slots.length; j++) command[j + 2] = String.valueOf(slots[j]);
+                call(i, Collections.singletonList(command));
+            } else try (Jedis jedis = new Jedis("127.0.0.1", ports[i], TIMEOUT)) { jedis.clusterAddSlots(slots); }
+        }
+        return await(start, timeout, () -> converged(owners));
+    }
+
+    /**
+     * Moves the first {@code count} slots of node {@code from} to node {@code to}, the target imports them and
+     * takes them over with CLUSTER SETSLOT NODE, which bumps its config epoch.
+     *
+     * @return milliseconds until every node maps the moved slots to the target.
+     */
+    public long reshard(int from, int to, int count, long timeout) {
+        long start = System.currentTimeMillis();
+        int first = from * CLUSTER_SLOTS / size; String source = name(from), target = name(to);
+        if (local) {
+            List<String[]> commands = new ArrayList<>();
+            for (int slot = first; slot < first + count; slot++) {
+                commands.add(new String[]{"CLUSTER", "SETSLOT", String.valueOf(slot), "IMPORTING", source});
+                commands.add(new String[]{"CLUSTER", "SETSLOT", String.valueOf(slot), "NODE", target});
+            }
+            call(to, commands);
+        } else try (Jedis jedis = new Jedis("127.0.0.1", ports[to], TIMEOUT)) {
+            for (int slot = first; slot < first + count; slot++) {
+                jedis.clusterSetSlotImporting(slot, source); jedis.clusterSetSlotNode(slot, target);
+            }
+        }
+        return await(start, timeout, () -> {
+            for (int i = 0; i < size; i++) {
+                if (killed[i]) continue; ClusterTopology topology = nodes.get(i).topology();
+                for (int slot = first; slot < first + count; slot++) {
+                    ClusterNodeInfo master = topology.getMaster(slot);
+                    if (master == null || !master.getName().equals(target)) return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Stops node {@code index}.
+     *
+     * @return milliseconds until the first node flagged it PFAIL and until every other node flagged it FAIL.
+     */
+    public long[] kill(int index, long timeout) {
+        pfails.clear(); fails.clear(); victim = name(index);
+        long start = System.currentTimeMillis();
+        killed[index] = true; nodes.get(index).stop(1, TimeUnit.SECONDS);
+        long fail = await(start, timeout, () -> fails.size() == size - 1);
+        long pfail = pfails.values().stream().mapToLong(Long::longValue).min().orElse(start - 1) - start;
+        return new long[]{pfail, fail};
+    }
+
+    /**
+     * @return the bus messages and bytes sent per second per live node, averaged over {@code window} milliseconds.
+     */
+    public double[] traffic(long window) throws InterruptedException {
+        long[] before = sent(); long start = System.nanoTime();
+        Thread.sleep(window);
+        long[] after = sent(); double seconds = (System.nanoTime() - start) / 1e9;
+        int live = 0; for (boolean k : killed) if (!k) live++;
+        return new double[]{(after[0] - before[0]) / seconds / live, (after[1] - before[1]) / seconds / live};
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < size; i++) if (i < nodes.size() && !killed[i]) nodes.get(i).stop(1, TimeUnit.SECONDS);
+        delayer.shutdownNow(); group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A free ephemeral port whose bus port, {@code port + CLUSTER_PORT_INCR}, is free as well.
+     */
+    protected static int freePort(Set<Integer> used) {
+        while (true) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                int port = socket.getLocalPort(), bus = port + CLUSTER_PORT_INCR;
+                if (bus > 65535 || used.contains(port) || used.contains(bus)) continue;
+                try (ServerSocket ignored = new ServerSocket(bus)) { used.add(port); used.add(bus); return port; }
+            } catch (IOException e) {
+                // the bus port is taken, try another one
+            }
+        }
+    }
+
+    protected String name(int index) {
+        return nodes.get(index).topology().getMyself();
+    }
+
+    protected boolean converged(int[] owners) {
+        String[] names = new String[size]; for (int i = 0; i < size; i++) names[i] = name(i);
+        for (RedisClusterWatchdog watchdog : nodes) {
+            ClusterTopology topology = watchdog.topology();
+            for (int slot = 0; slot < CLUSTER_SLOTS; slot++) {
+                ClusterNodeInfo master = topology.getMaster(slot);
+                if (master == null || !master.getName().equals(names[owners[slot]])) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends {@code commands} to node {@code index} over a local channel, one at a time.
+     */
+    protected void call(int index, List<String[]> commands) {
+        NetworkConfiguration network = NetworkConfiguration.defaultSetting().setEventLoopGroup(group).setLocal(true);
+        NioBootstrapImpl<Object> client = new NioBootstrapImpl<>(false, network);
+        BlockingQueue<ByteBuf> replies = new LinkedBlockingQueue<>();
+        client.setEncoder(RedisEncoder::new); client.setDecoder(ChannelInboundHandlerAdapter::new); client.setup();
+        client.setTransportListener(new TransportListener.Adaptor<Object>() {
+            @Override
+            public void onMessage(Transport<Object> transport, Object message) {
+                replies.add(((ByteBuf) message).retain());
+            }
+        });
+        try {
+            client.connect("127.0.0.1", ports[index]).get();
+            for (String[] command : commands) {
+                StringBuilder builder = new StringBuilder("*").append(command.length).append("\r\n");
+                for (String arg : command) builder.append('$').append(arg.length()).append("\r\n").append(arg).append("\r\n");
+                client.getTransport().write(builder.toString().getBytes(UTF_8), true);
+                ByteBuf reply = replies.poll(TIMEOUT, MILLISECONDS);
+                if (reply == null) throw new IllegalStateException("timeout: " + Arrays.toString(command));
+                String r = reply.toString(UTF_8); reply.release();
+                if (!r.startsWith("+")) throw new IllegalStateException(r.trim() + ": " + Arrays.toString(command));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    protected long[] sent() {
+        long messages = 0L, bytes = 0L;
+        for (int i = 0; i < size; i++) {
+            if (killed[i]) continue; ClusterManagers managers = nodes.get(i).managers;
+            for (int type = 0; type < CLUSTERMSG_TYPE_COUNT; type++) messages += managers.server.cluster.messagesSent[type];
+            bytes += managers.stats.bus.getWritten();
+        }
+        return new long[]{messages, bytes};
+    }
+
+    protected long await(long start, long timeout, BooleanSupplier condition) {
+        while (System.currentTimeMillis() - start < timeout) {
+            if (condition.getAsBoolean()) return System.currentTimeMillis() - start;
+            try { Thread.sleep(10); } catch (InterruptedException e) { Thread.currentThread().interrupt(); return -1L; }
+        }
+        return -1L;
+    }
+
+    protected void intercept(ClusterManagers managers) {
+        for (int type = 0; type < CLUSTERMSG_TYPE_COUNT; type++) {
+            ClusterMessageHandler handler = managers.handlers.get(type);
+            if (handler == null) continue;
+            managers.handlers.register((byte) type, (link, hdr) -> {
+                if (loss > 0 && ThreadLocalRandom.current().nextDouble() < loss) return false;
+                long delay = latency; if (delay <= 0) return handler.handle(link, hdr);
+                delayer.schedule(() -> managers.execute(() -> handler.handle(link, hdr)), delay, MILLISECONDS); return true;
+            });
+        }
+    }
+
+    private class DetectionListener implements ClusterNodeListener {
+
+        private final int index;
+
+        private DetectionListener(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onNodePFailed(ClusterNodeInfo pFailed) {
+            if (pFailed.getName().equals(victim)) pfails.putIfAbsent(String.valueOf(index), System.currentTimeMillis());
+        }
+
+        @Override
+        public void onNodeFailed(ClusterNodeInfo failed) {
+            if (failed.getName().equals(victim)) fails.putIfAbsent(String.valueOf(index), System.currentTimeMillis());
+        }
+
+        @Override
+        public void onNodeAdded(ClusterNodeInfo node) {
+        }
+
+        @Override
+        public void onNodeDeleted(ClusterNodeInfo node) {
+        }
+
+        @Override
+        public void onUnsetNodeFailed(ClusterNodeInfo failed) {
+        }
+
+        @Override
+        public void onUnsetNodePFailed(ClusterNodeInfo pFailed) {
+        }
+    }
+}
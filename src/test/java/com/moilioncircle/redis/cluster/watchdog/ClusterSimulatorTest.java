@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the {@link ClusterSimulator}, skipped unless {@code -Dsimulator=true}. The size and the injected faults are
+ * set with {@code -Dsimulator.nodes=100 -Dsimulator.latency=5 -Dsimulator.loss=0.01 -Dsimulator.node-timeout=5000}.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterSimulatorTest {
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("simulator"));
+    }
+
+    @Test
+    public void test() throws Exception {
+        int nodes = Integer.getInteger("simulator.nodes", 5);
+        long latency = Long.getLong("simulator.latency", 0L);
+        double loss = Double.parseDouble(System.getProperty("simulator.loss", "0"));
+        long nodeTimeout = Long.getLong("simulator.node-timeout", 1000L);
+        long timeout = Math.max(30000L, nodes * 200L + nodeTimeout * 4);
+
+        try (ClusterSimulator simulator = new ClusterSimulator(nodes, nodeTimeout).setLatency(latency).setLoss(loss)) {
+            simulator.start();
+            long mesh = simulator.meet(timeout);
+            assertTrue("full mesh timeout", mesh >= 0);
+            long slots = simulator.addSlots(timeout);
+            assertTrue("addslots timeout", slots >= 0);
+            long reshard = simulator.reshard(0, 1, 100, timeout);
+            assertTrue("reshard timeout", reshard >= 0);
+            double[] traffic = simulator.traffic(1000L);
+            long[] detection = simulator.kill(nodes - 1, timeout);
+            assertTrue("fail detection timeout", detection[1] >= 0);
+            assertTrue("pfail after fail", detection[0] >= 0 && detection[0] <= detection[1]);
+            assertTrue("no bus traffic", traffic[0] > 0 && traffic[1] > 0);
+        }
+    }
+
+    /**
+     * A one minute node timeout on a virtual clock, advanced one second every 20 milliseconds after the kill.
+     */
+    @Test
+    public void testVirtualClock() throws Exception {
+        long nodeTimeout = 60000L; VirtualClock clock = new VirtualClock();
+        try (ClusterSimulator simulator = new ClusterSimulator(3, nodeTimeout).setClock(clock)) {
+            simulator.start();
+            assertTrue("full mesh timeout", simulator.meet(30000L) >= 0);
+            assertTrue("addslots timeout", simulator.addSlots(30000L) >= 0);
+            Thread ticker = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    clock.advance(1000L);
+                    try { Thread.sleep(20); } catch (InterruptedException e) { return; }
+                }
+            });
+            ticker.setDaemon(true); ticker.start();
+            try {
+                long[] detection = simulator.kill(2, 30000L);
+                assertTrue("fail detection timeout", detection[1] >= 0 && detection[1] < nodeTimeout);
+            } finally {
+                ticker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * The same scenario over in-JVM local channels, without the kernel network stack.
+     */
+    @Test
+    public void testLocal() throws Exception {
+        try (ClusterSimulator simulator = new ClusterSimulator(5, 1000L).setLocal(true)) {
+            simulator.start();
+            assertTrue("full mesh timeout", simulator.meet(30000L) >= 0);
+            assertTrue("addslots timeout", simulator.addSlots(30000L) >= 0);
+            assertTrue("reshard timeout", simulator.reshard(0, 1, 100, 30000L) >= 0);
+            double[] traffic = simulator.traffic(1000L);
+            long[] detection = simulator.kill(4, 30000L);
+            assertTrue("fail detection timeout", detection[1] >= 0);
+            assertTrue("no bus traffic", traffic[0] > 0 && traffic[1] > 0);
+        }
+    }
+}
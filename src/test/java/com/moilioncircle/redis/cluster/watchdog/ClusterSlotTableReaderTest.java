@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterSlotTable.OFFSET_SEQUENCE;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterSlotTableReaderTest {
+
+    private static final String FILE = "target/slot-table-reader.bin";
+
+    private ClusterManagers managers;
+
+    @Before
+    public void setUp() throws Exception {
+        new File(FILE).delete(); new File(FILE).createNewFile();
+    }
+
+    private void start() {
+        // the initial topology is exported as soon as the managers start
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting();
+        configuration.setClusterConfigFile("target/nodes-slot-table.conf").setClusterSlotTableFile(FILE);
+        managers = EmbeddedRedisClient.newManagers(configuration);
+    }
+
+    @After
+    public void tearDown() {
+        if (managers == null) return;
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    private void export() throws Exception {
+        // a new topology version is exported on the config thread
+        managers.cron.submit(() -> { managers.slots.clusterAddSlot(managers.server.myself, 42); managers.publish(); }).get();
+        managers.config.submit(() -> { }).get();
+    }
+
+    @Test
+    public void testRemap() throws Exception {
+        // mapped while the file is still empty, the export is picked up later
+        ClusterSlotTableReader reader = new ClusterSlotTableReader(FILE);
+        assertNull(reader.read());
+        start(); export();
+        ClusterSlotTable table = reader.read();
+        assertNotNull(table);
+        assertEquals(managers.server.myself.name, table.getMaster(42).getName());
+        assertSame(table, reader.read());
+        reader.close();
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testWriterStalled() throws Exception {
+        start(); export();
+        ClusterSlotTableReader reader = new ClusterSlotTableReader(FILE);
+        ClusterSlotTable table = reader.read();
+        assertNotNull(table);
+        try (RandomAccessFile f = new RandomAccessFile(FILE, "rw")) {
+            // a writer that died in the middle of an update leaves an odd sequence behind
+            f.seek(OFFSET_SEQUENCE); f.writeLong(table.getSequence() + 1);
+        }
+        assertSame(table, reader.read());
+        assertNull(new ClusterSlotTableReader(FILE).read());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_SLAVE;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterTopologyTest {
+
+    private ClusterManagers managers;
+
+    @Before
+    public void setUp() {
+        managers = EmbeddedRedisClient.newManagers(ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-topology.conf"));
+    }
+
+    @After
+    public void tearDown() {
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    private ClusterNode addNode(int flags, ClusterNode master) {
+        ClusterNode node = managers.nodes.createClusterNode(null, flags);
+        managers.nodes.clusterAddNode(node);
+        if (master != null) { node.master = master; managers.nodes.clusterNodeAddSlave(master, node); }
+        return node;
+    }
+
+    private ClusterTopology publish() throws Exception {
+        managers.cron.submit(managers::publish).get(); return managers.topology;
+    }
+
+    @Test
+    public void testReplicas() throws Exception {
+        ClusterNode myself = managers.server.myself;
+        ClusterNode other = addNode(CLUSTER_NODE_MASTER, null);
+        // replicas added before and after their master in the node table
+        ClusterNode r1 = addNode(CLUSTER_NODE_SLAVE, myself), r2 = addNode(CLUSTER_NODE_SLAVE, other), r3 = addNode(CLUSTER_NODE_SLAVE, myself);
+        managers.slots.clusterAddSlot(myself, 1); managers.slots.clusterAddSlot(other, 2);
+        ClusterTopology topology = publish();
+
+        List<ClusterNodeInfo> replicas = topology.getReplicas(1);
+        assertEquals(2, replicas.size());
+        assertEquals(r1.name, replicas.get(0).getName());
+        assertEquals(r3.name, replicas.get(1).getName());
+        assertEquals(r2.name, topology.getReplicas(2).get(0).getName());
+        assertTrue(topology.getReplicas(3).isEmpty());
+        assertEquals(myself.name, topology.getMaster(1).getName());
+        assertNull(topology.getMaster(3));
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        ClusterTopology first = publish();
+        assertEquals(first.getVersion(), publish().getVersion());
+        managers.slots.clusterAddSlot(managers.server.myself, 1);
+        ClusterTopology next = publish();
+        assertEquals(first.getVersion() + 1, next.getVersion());
+        assertEquals(1, next.getSlotsAssigned());
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        managers.slots.clusterAddSlot(managers.server.myself, 12539);
+        ClusterTopology topology = publish();
+        assertEquals(12539, topology.keyToSlot("key".getBytes()));
+        assertEquals(12539, topology.keyToSlot("{key}other".getBytes()));
+        assertEquals(managers.server.myself.name, topology.getMaster("key".getBytes()).getName());
+        assertNull(topology.getMaster("foo".getBytes()));
+    }
+}
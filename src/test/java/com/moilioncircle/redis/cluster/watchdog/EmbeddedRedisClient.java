@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisDecoder;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisEncoder;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterState;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.CompletableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.concurrent.future.ListenableFuture;
+import com.moilioncircle.redis.cluster.watchdog.util.net.NetworkConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.util.net.NioAcceptor;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.NioAcceptorTransport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MYSELF;
+import static io.netty.util.CharsetUtil.UTF_8;
+
+/**
+ * A client connection of the redis port on an {@link EmbeddedChannel}, with the pipeline and the
+ * listener of the {@link ThinServer}.
+ * <p>
+ * The thread that creates the client plays the I/O thread of the connection. Writes and tasks of other
+ * threads are queued and only run on it by {@link #read()}, as they would on a real event loop.
+ *
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class EmbeddedRedisClient {
+
+    public final EmbeddedChannel channel;
+    public final ClusterManagers managers;
+    private final Thread loop = Thread.currentThread();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    public EmbeddedRedisClient(ClusterManagers managers) {
+        this.managers = managers;
+        ClusterConfiguration configuration = managers.configuration;
+        NioAcceptor<byte[][]> acceptor = new NioAcceptor<>(NetworkConfiguration.defaultSetting());
+        acceptor.setTransportListener(new ThinServer(managers).new RedisTransportListener());
+        RedisDecoder decoder = new RedisDecoder(configuration.getProtoMaxBulkLen(), configuration.getProtoMaxMultiBulkLen(), managers.commands::isStreaming);
+        this.channel = new EmbeddedChannel(new RedisEncoder(), decoder, new EmbeddedTransport(acceptor));
+    }
+
+    /**
+     * @return a {@link ClusterManagers} holding a single master node, without the cluster bus.
+     */
+    public static ClusterManagers newManagers(ClusterConfiguration configuration) {
+        ClusterManagers managers = new ClusterManagers(configuration, null);
+        managers.server.cluster = new ClusterState();
+        managers.server.myself = managers.nodes.createClusterNode(null, CLUSTER_NODE_MYSELF | CLUSTER_NODE_MASTER);
+        managers.server.cluster.myself = managers.server.myself;
+        managers.nodes.clusterAddNode(managers.server.myself);
+        try {
+            managers.cron.submit(managers::publish).get(); return managers;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static byte[] encode(String... args) {
+        StringBuilder builder = new StringBuilder("*").append(args.length).append("\r\n");
+        for (String arg : args) builder.append('$').append(arg.getBytes(UTF_8).length).append("\r\n").append(arg).append("\r\n");
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    public void write(byte[] bytes) {
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes)); channel.runPendingTasks();
+    }
+
+    public void send(String... args) {
+        write(encode(args));
+    }
+
+    /**
+     * @return the replies flushed so far.
+     */
+    public String read() {
+        channel.runPendingTasks();
+        for (Runnable task; (task = tasks.poll()) != null; channel.runPendingTasks()) task.run();
+        StringBuilder builder = new StringBuilder();
+        for (Object msg = channel.readOutbound(); msg != null; msg = channel.readOutbound()) {
+            ByteBuf buf = msg instanceof ByteBuf ? (ByteBuf) msg : Unpooled.wrappedBuffer((byte[]) msg);
+            builder.append(buf.toString(UTF_8)); buf.release();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Waits for the replies of commands completed by other threads.
+     */
+    public String await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            String r = read(); if (!r.isEmpty()) return r;
+            Thread.sleep(1);
+        }
+        return "";
+    }
+
+    public String call(String... args) {
+        send(args); return read();
+    }
+
+    /**
+     * @return true if the connection reads, false while it is paused by backpressure.
+     */
+    public boolean isAutoRead() {
+        read(); return channel.config().isAutoRead();
+    }
+
+    public void close() {
+        channel.finishAndReleaseAll(); managers.stop(); managers.cron.shutdown();
+    }
+
+    private class EmbeddedTransport extends NioAcceptorTransport<byte[][]> {
+
+        private EmbeddedTransport(NioAcceptor<byte[][]> acceptor) {
+            super(acceptor);
+        }
+
+        @Override
+        public boolean inEventLoop() {
+            return Thread.currentThread() == loop;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public <V> CompletableFuture<Void> write(V message, boolean flush) {
+            if (inEventLoop()) return super.write(message, flush);
+            ListenableFuture<Void> r = new ListenableFuture<>();
+            tasks.add(() -> { super.write(message, flush); r.success(null); }); return r;
+        }
+
+        @Override
+        public void flush() {
+            if (inEventLoop()) super.flush(); else tasks.add(super::flush);
+        }
+
+        @Override
+        public void pauseReads(int reason) {
+            if (inEventLoop()) super.pauseReads(reason); else tasks.add(() -> super.pauseReads(reason));
+        }
+
+        @Override
+        public void resumeReads(int reason) {
+            if (inEventLoop()) super.resumeReads(reason); else tasks.add(() -> super.resumeReads(reason));
+        }
+    }
+}
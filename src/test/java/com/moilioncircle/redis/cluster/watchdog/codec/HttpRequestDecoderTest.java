@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class HttpRequestDecoderTest {
+
+    private static HttpRequest decode(String request) {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+        channel.writeInbound(Unpooled.copiedBuffer(request, US_ASCII));
+        HttpRequest r = channel.readInbound(); channel.finish(); return r;
+    }
+
+    @Test
+    public void testDecode() {
+        HttpRequest request = decode("GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertEquals("GET", request.method);
+        assertEquals("/metrics", request.path);
+        assertFalse(request.close);
+        assertNull(decode("GET /metrics HTTP/1.1\r\nHost: localhost\r\n"));
+    }
+
+    @Test
+    public void testConnection() {
+        assertTrue(decode("GET /metrics HTTP/1.1\r\nconnection: Close\r\n\r\n").close);
+        assertTrue(decode("GET /metrics HTTP/1.0\r\n\r\n").close);
+        assertFalse(decode("GET /metrics HTTP/1.0\r\nConnection: keep-alive\r\n\r\n").close);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.netty.util.CharsetUtil.US_ASCII;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class RedisDecoderTest {
+
+    @Test
+    public void testFragmented() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisDecoder());
+        byte[] bytes = "*3\r\n$3\r\nset\r\n$3\r\nkey\r\n$5\r\nvalue\r\n*1\r\n$4\r\nping\r\n".getBytes();
+        for (byte b : bytes) channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{b}));
+        byte[][] set = channel.readInbound();
+        assertEquals(3, set.length);
+        assertEquals("set", new String(set[0]));
+        assertEquals("key", new String(set[1]));
+        assertEquals("value", new String(set[2]));
+        byte[][] ping = channel.readInbound();
+        assertEquals("ping", new String(ping[0]));
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testLimits() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisEncoder(), new RedisDecoder(16, 2));
+        channel.writeInbound(Unpooled.wrappedBuffer("*1\r\n$17\r\n".getBytes()));
+        assertNull(channel.readInbound());
+        ByteBuf error = channel.readOutbound();
+        assertEquals("-ERR Protocol error: invalid bulk length\r\n", error.toString(US_ASCII));
+        assertFalse(channel.isOpen());
+
+        channel = new EmbeddedChannel(new RedisEncoder(), new RedisDecoder(16, 2));
+        channel.writeInbound(Unpooled.wrappedBuffer("*3\r\n".getBytes()));
+        assertNull(channel.readInbound());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisDecoder(1024 * 1024, 16, (r, i) -> i == 3));
+        byte[] payload = new byte[3 * RedisDecoder.STREAM_CHUNK_SIZE + 100];
+        for (int i = 0; i < payload.length; i++) payload[i] = (byte) i;
+        channel.writeInbound(Unpooled.wrappedBuffer(("*5\r\n$7\r\nrestore\r\n$1\r\nk\r\n$1\r\n0\r\n$" + payload.length + "\r\n").getBytes()));
+        channel.writeInbound(Unpooled.wrappedBuffer(payload));
+        channel.writeInbound(Unpooled.wrappedBuffer("\r\n$7\r\nREPLACE\r\n*1\r\n$4\r\nping\r\n".getBytes()));
+
+        byte[][] restore = channel.readInbound();
+        RedisBulkStream stream = RedisBulkStream.remove(channel.attr(RedisBulkStream.STREAM), restore[3]);
+        byte[] actual = new byte[payload.length];
+        for (int n = 0, off = 0; (n = stream.read(actual, off, actual.length - off)) > 0; off += n) ;
+        assertEquals(-1, stream.read());
+        assertTrue(Arrays.equals(payload, actual));
+        stream.await();
+        assertEquals("REPLACE", new String(restore[4]));
+        // the next request is held until the stream is released.
+        assertNull(channel.readInbound());
+        stream.release(); channel.runPendingTasks();
+        byte[][] ping = channel.readInbound();
+        assertEquals("ping", new String(ping[0]));
+    }
+}
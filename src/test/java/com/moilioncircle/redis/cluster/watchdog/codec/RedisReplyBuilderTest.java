@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.codec;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+
+import static io.netty.util.CharsetUtil.US_ASCII;
+import static io.netty.util.CharsetUtil.UTF_8;
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class RedisReplyBuilderTest {
+
+    private static RedisReplyBuilder newReply() {
+        return new RedisReplyBuilder(UnpooledByteBufAllocator.DEFAULT);
+    }
+
+    private static String toString(RedisReplyBuilder reply) {
+        return new String(reply.toByteArray());
+    }
+
+    @Test
+    public void testSimple() {
+        assertEquals("+OK\r\n", toString(newReply().status("OK")));
+        assertEquals("+OK\r\n", toString(newReply().status("OK".getBytes())));
+        assertEquals("-ERR bad\r\n", toString(newReply().error("ERR bad")));
+        assertEquals("-ERR bad\r\n", toString(newReply().error("ERR bad".getBytes())));
+        assertEquals("$-1\r\n", toString(newReply().nullBulk()));
+        assertEquals("$-1\r\n", toString(newReply().bulk((String) null)));
+        assertEquals("$-1\r\n", toString(newReply().bulk((byte[]) null)));
+        assertEquals("$0\r\n\r\n", toString(newReply().bulk("")));
+        assertEquals("$5\r\nvalue\r\n", toString(newReply().bulk("value")));
+        assertEquals("$2\r\né\r\n", new String(newReply().bulk("é").toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testNumber() {
+        long[] numbers = {0, 1, 9, 10, 99, 100, 12345, -1, -10, 999999999999L, 1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long n : numbers) assertEquals(":" + n + "\r\n", toString(newReply().number(n)));
+    }
+
+    @Test
+    public void testAggregate() {
+        RedisReplyBuilder reply = newReply().array(3).number(1).bulk("a").array(0);
+        assertEquals("*3\r\n:1\r\n$1\r\na\r\n*0\r\n", toString(reply));
+        assertEquals("%1\r\n+k\r\n:2\r\n", toString(newReply().map(1).status("k").number(2)));
+        assertEquals("*1\r\n+OK\r\n", toString(newReply().array(1).raw("+OK\r\n".getBytes())));
+        assertEquals("+PONG\r\n+PONG\r\n", toString(newReply().raw(RedisReplyBuilder.PONG).raw(RedisReplyBuilder.PONG)));
+        assertEquals("+PONG\r\n", RedisReplyBuilder.PONG.toString(US_ASCII));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class AsyncCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-async.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+        client.managers.addCommandHandler("get", new AsyncCommandHandler.Adaptor() {
+            @Override
+            public CompletionStage<RedisReplyBuilder> handleAsync(Transport<byte[][]> t, byte[][] rawMessage) {
+                String arg = new String(rawMessage[1]);
+                switch (arg) {
+                    case "null": return CompletableFuture.completedFuture(null);
+                    case "throw": throw new IllegalStateException("thrown");
+                    case "fail":
+                        CompletableFuture<RedisReplyBuilder> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(new IllegalStateException("failed")); return failed;
+                    default: return CompletableFuture.supplyAsync(() -> newReply().bulk(arg));
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testReply() throws Exception {
+        client.send("get", "value");
+        assertEquals("$5\r\nvalue\r\n", client.await(5000));
+        assertEquals("$-1\r\n", client.call("get", "null"));
+    }
+
+    @Test
+    public void testError() {
+        assertEquals("-ERR thrown\r\n", client.call("get", "throw"));
+        assertEquals("-ERR failed\r\n", client.call("get", "fail"));
+        assertEquals("+PONG\r\n", client.call("ping"));
+        assertEquals(2, client.managers.stats.get("get".getBytes()).failed.sum());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PFAIL;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.RECOVERED;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class FailoverlogCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+    private final VirtualClock clock = new VirtualClock(1500000L);
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-failoverlog.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration.setClock(clock)));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testFailoverlog() throws Exception {
+        ClusterManagers managers = client.managers;
+        String name = managers.cron.submit(() -> {
+            ClusterNode node = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER);
+            managers.nodes.clusterAddNode(node);
+            managers.timelines.pfail(node); clock.advance(2000); managers.timelines.close(node, RECOVERED);
+            return node.name;
+        }).get();
+        assertEquals(":1\r\n", client.call("failoverlog", "len"));
+        // id, node, duration and the events as phase, unix time, offset and detail
+        String expected = "*1\r\n*4\r\n:0\r\n$40\r\n" + name + "\r\n:2000\r\n*2\r\n"
+                + "*4\r\n$5\r\n" + PFAIL + "\r\n:1500000\r\n:0\r\n$-1\r\n"
+                + "*4\r\n$9\r\n" + RECOVERED + "\r\n:1502000\r\n:2000\r\n$-1\r\n";
+        assertEquals(expected, client.call("failoverlog", "get"));
+        assertEquals("*0\r\n", client.call("failoverlog", "get", "0"));
+        assertEquals("+OK\r\n", client.call("failoverlog", "reset"));
+        assertEquals(":0\r\n", client.call("failoverlog", "len"));
+        assertTrue(client.call("failoverlog", "doctor").startsWith("-ERR Unknown subcommand"));
+    }
+}
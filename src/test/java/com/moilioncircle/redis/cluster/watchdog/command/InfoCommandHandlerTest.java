@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MYSELF;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_SLAVE;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class InfoCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+    private final VirtualClock clock = new VirtualClock(1000000L);
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-info.conf").setLatencyTracking(true);
+        configuration.setClock(clock);
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+        client.managers.addCommandHandler("set", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                reply(t, "OK");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testDefault() {
+        String info = client.call("info");
+        assertTrue(info.contains("# Server\r\n") && info.contains("run_id:" + client.managers.server.myself.name + "\r\n"));
+        assertTrue(info.contains("connected_clients:1\r\n"));
+        assertTrue(info.contains("role:master\r\nconnected_slaves:0\r\n"));
+        assertTrue(info.contains("# Keyspace\r\n"));
+        assertFalse(info.contains("# Commandstats"));
+    }
+
+    @Test
+    public void testKeyspace() {
+        assertTrue(client.call("info", "keyspace").contains("# Keyspace\r\n\r\n"));
+        client.managers.setStorageEngine(new DefaultStorageEngine() {
+            @Override
+            public long size() {
+                return 3;
+            }
+        });
+        // sampled by the cron, not asked for by INFO
+        assertTrue(client.call("info", "keyspace").contains("# Keyspace\r\n\r\n"));
+        client.managers.stats.sampleKeys();
+        assertTrue(client.call("info", "keyspace").contains("# Keyspace\r\ndb0:keys=3\r\n"));
+    }
+
+    @Test
+    public void testReplication() throws Exception {
+        ClusterManagers managers = client.managers;
+        managers.cron.submit(() -> {
+            ClusterNode master = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER), myself = managers.server.myself;
+            master.ip = "127.0.0.1"; master.port = 7001; master.pongTime = clock.currentTimeMillis() - 5000;
+            managers.nodes.clusterAddNode(master);
+            myself.flags = CLUSTER_NODE_MYSELF | CLUSTER_NODE_SLAVE; myself.master = master;
+            managers.nodes.clusterNodeAddSlave(master, myself); managers.publish();
+        }).get();
+        String info = client.call("info", "replication");
+        assertTrue(info, info.contains("role:slave\r\nmaster_host:127.0.0.1\r\nmaster_port:7001\r\nmaster_last_pong_seconds_ago:5\r\n"));
+        // the lag follows the clock of the cluster logic
+        clock.advance(10000);
+        assertTrue(client.call("info", "replication").contains("master_last_pong_seconds_ago:15\r\n"));
+    }
+
+    @Test
+    public void testCommandStats() {
+        client.call("set", "k", "v"); client.call("set", "k", "v");
+        String info = client.call("info", "commandstats");
+        assertTrue(info.contains("cmdstat_set:calls=2,"));
+        assertFalse(info.contains("# Server"));
+        assertTrue(client.call("info", "latencystats").contains("latency_percentiles_usec_set:p50="));
+    }
+
+    @Test
+    public void testSections() {
+        client.call("set", "k", "v");
+        String info = client.call("info", "server", "COMMANDSTATS");
+        assertTrue(info.contains("# Server\r\n") && info.contains("# Commandstats\r\ncmdstat_set:calls=1,"));
+        assertFalse(info.contains("# Clients") || info.contains("# Keyspace"));
+        info = client.call("info", "default", "latencystats");
+        assertTrue(info.contains("# Keyspace\r\n") && info.contains("# Latencystats\r\n"));
+        assertFalse(info.contains("# Commandstats"));
+        assertTrue(client.call("info", "a", "b").startsWith("$"));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class LatencyCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-latency.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testLatest() {
+        assertEquals("*0\r\n", client.call("latency", "latest"));
+        client.managers.stats.latency("command", 30); client.managers.stats.latency("command", 20);
+        String latest = client.call("latency", "latest");
+        // name, time of the latest event, latest and max latency
+        assertTrue(latest, latest.startsWith("*1\r\n*4\r\n$7\r\ncommand\r\n:"));
+        assertTrue(latest, latest.endsWith("\r\n:20\r\n:30\r\n"));
+        assertEquals(":1\r\n", client.call("latency", "reset"));
+        assertEquals("*0\r\n", client.call("latency", "latest"));
+        assertTrue(client.call("latency", "doctor").startsWith("-ERR Unknown subcommand"));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisBulkStream;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisDecoder;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class RestoreCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+    private StreamingStorageEngine engine;
+
+    @Before
+    public void setUp() {
+        setUp(ClusterConfiguration.defaultSetting());
+    }
+
+    private void setUp(ClusterConfiguration configuration) {
+        configuration.setClusterConfigFile("target/nodes-restore.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+        client.managers.setStorageEngine(engine = new StreamingStorageEngine());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testInline() {
+        assertEquals("+OK\r\n", client.call("restore", "k", "0", "v"));
+        assertEquals("v", new String(engine.values.get("k")));
+        assertEquals("+OK\r\n", client.call("restore", "k", "0", "w", "REPLACE"));
+        assertEquals("w", new String(engine.values.get("k")));
+        assertTrue(client.call("restore", "k", "-1", "v").startsWith("-ERR Invalid ttl"));
+        assertTrue(client.call("restore", "k", "0", "v", "KEEP").startsWith("-ERR wrong number of arguments"));
+        assertEquals("w", new String(engine.values.get("k")));
+    }
+
+    @Test
+    public void testStreamed() throws Exception {
+        byte[] payload = payload(2);
+        client.write(header(payload.length, "k", "0")); client.write(payload);
+        client.write("\r\n".getBytes());
+        assertEquals("+OK\r\n", client.await(5000));
+        assertEquals(payload.length, engine.values.get("k").length);
+        assertNull(client.channel.attr(RedisBulkStream.STREAM).get());
+    }
+
+    @Test
+    public void testStreamedInvalidTtl() throws Exception {
+        // larger than the buffered chunks, the decoder pauses until the stream is released
+        byte[] payload = payload(RedisDecoder.STREAM_CHUNKS + 2);
+        client.write(header(payload.length, "k", "-1")); client.write(payload);
+        client.write("\r\n".getBytes());
+        assertTrue(client.read().startsWith("-ERR Invalid ttl"));
+        assertNull(client.channel.attr(RedisBulkStream.STREAM).get());
+        assertEquals("+PONG\r\n", client.call("ping"));
+        assertFalse(engine.values.containsKey("k"));
+    }
+
+    @Test
+    public void testStreamedInvalidTrailingArgument() throws Exception {
+        byte[] payload = payload(2);
+        client.write(header(payload.length, "k", "0", "KEEP")); client.write(payload);
+        client.write("\r\n$4\r\nKEEP\r\n".getBytes());
+        assertTrue(client.await(5000).startsWith("-ERR wrong number of arguments"));
+        assertFalse(engine.values.containsKey("k"));
+        assertEquals("+PONG\r\n", client.call("ping"));
+    }
+
+    @Test
+    public void testStreamedBehindPipeline() throws Exception {
+        client.close(); setUp(ClusterConfiguration.defaultSetting().setCommandQueueSize(1));
+        CompletableFuture<RedisReplyBuilder> later = new CompletableFuture<>();
+        client.managers.addCommandHandler("later", new AsyncCommandHandler.Adaptor() {
+            @Override
+            public CompletionStage<RedisReplyBuilder> handleAsync(Transport<byte[][]> t, byte[][] rawMessage) {
+                return later;
+            }
+        });
+        engine.hold = new CountDownLatch(1);
+
+        // the restore is queued behind a suspended command and its stream fills up
+        byte[] payload = payload(RedisDecoder.STREAM_CHUNKS + 2);
+        client.send("later"); client.write(header(payload.length, "k", "0")); client.write(payload);
+        client.write("\r\n".getBytes());
+        assertFalse(client.isAutoRead());
+
+        // the pipeline drains, the stream is still full and keeps the reads paused
+        later.complete(null);
+        assertEquals("$-1\r\n", client.read());
+        assertFalse(client.isAutoRead());
+
+        engine.hold.countDown();
+        assertEquals("+OK\r\n", client.await(5000));
+        assertTrue(client.isAutoRead());
+        assertEquals(payload.length, engine.values.get("k").length);
+    }
+
+    private static byte[] payload(int chunks) {
+        byte[] payload = new byte[chunks * RedisDecoder.STREAM_CHUNK_SIZE + 100];
+        for (int i = 0; i < payload.length; i++) payload[i] = (byte) i; return payload;
+    }
+
+    private static byte[] header(int len, String key, String ttl, String... trailing) {
+        return ("*" + (4 + trailing.length) + "\r\n$7\r\nrestore\r\n$" + key.length() + "\r\n" + key + "\r\n$" + ttl.length() + "\r\n" + ttl + "\r\n$" + len + "\r\n").getBytes();
+    }
+
+    private static class StreamingStorageEngine extends DefaultStorageEngine {
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+        private volatile CountDownLatch hold;
+
+        @Override
+        public boolean restore(byte[] key, byte[] serialized, long expire, boolean force) {
+            if (!force && values.containsKey(new String(key))) return false;
+            values.put(new String(key), serialized); return true;
+        }
+
+        @Override
+        public boolean restore(byte[] key, InputStream serialized, long expire, boolean force) throws IOException {
+            if (hold != null) try { hold.await(); } catch (InterruptedException e) { throw new IOException(e); }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(); byte[] buf = new byte[8192];
+            for (int n; (n = serialized.read(buf)) >= 0; ) out.write(buf, 0, n);
+            return restore(key, out.toByteArray(), expire, force);
+        }
+    }
+}
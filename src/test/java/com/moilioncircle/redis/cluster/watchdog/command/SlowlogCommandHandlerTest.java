@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.state.CommandStats;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class SlowlogCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-slowlog.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration.setSlowlogLogSlowerThan(0).setSlowlogMaxLen(2)));
+        client.managers.addCommandHandler("set", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                reply(t, "OK");
+            }
+        });
+        client.managers.addCommandHandler("fail", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                replyError(t, "ERR failed");
+            }
+        });
+        client.managers.addCommandHandler("slow", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                Runnable resume = client.managers.commands.suspend(t);
+                new Thread(() -> {
+                    try { Thread.sleep(50); } catch (InterruptedException e) { }
+                    reply(t, "OK"); resume.run();
+                }).start();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testSlowlog() {
+        client.call("set", "a", "1"); client.call("set", "b", "2"); client.call("set", "c", "3");
+        String entries = client.call("slowlog", "get", "1");
+        // the newest entry first: id, time, duration, arguments, client address and name
+        assertTrue(entries, entries.startsWith("*1\r\n*6\r\n:2\r\n:"));
+        assertTrue(entries, entries.contains("*3\r\n$3\r\nset\r\n$1\r\nc\r\n$1\r\n3\r\n"));
+        assertTrue(entries, entries.endsWith("$0\r\n\r\n"));
+        // SLOWLOG calls are logged as well
+        assertEquals(":2\r\n", client.call("slowlog", "len"));
+        assertEquals("+OK\r\n", client.call("slowlog", "reset"));
+        assertEquals(":1\r\n", client.call("slowlog", "len"));
+        assertEquals("-ERR count should be greater than or equal to -1\r\n", client.call("slowlog", "get", "-2"));
+    }
+
+    @Test
+    public void testTruncate() {
+        StringBuilder value = new StringBuilder(); for (int i = 0; i < 200; i++) value.append('v');
+        String[] args = new String[40]; args[0] = "set"; args[1] = value.toString();
+        for (int i = 2; i < args.length; i++) args[i] = "k";
+        client.call(args);
+        String entries = client.call("slowlog", "get", "1");
+        assertTrue(entries, entries.contains("*32\r\n$3\r\nset\r\n"));
+        assertTrue(entries, entries.contains("... (72 more bytes)\r\n"));
+        assertTrue(entries, entries.contains("$22\r\n... (9 more arguments)\r\n"));
+    }
+
+    @Test
+    public void testSuspended() throws Exception {
+        CommandStats stats = client.managers.stats.get("slow".getBytes());
+        client.send("slow");
+        // recorded once the reply is written, not when the handler returned
+        assertEquals(0, stats.calls.sum());
+        assertEquals("+OK\r\n", client.await(5000));
+        assertEquals(1, stats.calls.sum()); assertTrue(stats.usec.sum() >= 50000);
+        String entries = client.call("slowlog", "get", "1");
+        assertTrue(entries, entries.contains("*1\r\n$4\r\nslow\r\n"));
+    }
+
+    @Test
+    public void testFailed() {
+        CommandStats stats = client.managers.stats.get("fail".getBytes());
+        assertEquals("-ERR failed\r\n", client.call("fail"));
+        assertEquals(1, stats.calls.sum()); assertEquals(1, stats.failed.sum());
+        client.call("set", "a", "1");
+        assertEquals(0, client.managers.stats.get("set".getBytes()).failed.sum());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.command.cluster;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.manager.ClusterManagers;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_FAIL;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_SLAVE;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterCommandHandlerTest {
+
+    private EmbeddedRedisClient client;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-cluster.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testNotLoaded() {
+        client.managers.topology = null;
+        for (String subcommand : new String[]{"info", "nodes", "slots", "shards", "myid", "links"}) {
+            assertEquals("-LOADING The cluster state is not loaded yet\r\n", client.call("cluster", subcommand));
+        }
+    }
+
+    @Test
+    public void testMyId() {
+        assertEquals("+" + client.managers.server.myself.name + "\r\n", client.call("cluster", "myid"));
+        assertTrue(client.call("cluster", "unknown").startsWith("-ERR Wrong CLUSTER subcommand"));
+    }
+
+    @Test
+    public void testSlots() throws Exception {
+        String[] names = setUpShard();
+        String me = node(names[0], 7000), replica = node(names[1], 7001);
+        String expected = "*2\r\n" + "*4\r\n:0\r\n:2\r\n" + me + replica + "*4\r\n:5\r\n:5\r\n" + me + replica;
+        assertEquals(expected, client.call("cluster", "slots"));
+    }
+
+    @Test
+    public void testShards() throws Exception {
+        String[] names = setUpShard();
+        String expected = "*1\r\n*4\r\n$5\r\nslots\r\n*4\r\n:0\r\n:2\r\n:5\r\n:5\r\n$5\r\nnodes\r\n*3\r\n"
+                + shard(names[0], 7000, "master", "online") + shard(names[1], 7001, "replica", "online") + shard(names[2], 7002, "replica", "fail");
+        assertEquals(expected, client.call("cluster", "shards"));
+    }
+
+    @Test
+    public void testGetKeysInSlot() {
+        // the count is stale, a key was deleted before the slot was iterated.
+        client.managers.setStorageEngine(new DefaultStorageEngine() {
+            @Override
+            public long size(int slot) {
+                return 3;
+            }
+
+            @Override
+            public Iterator<byte[]> keys(int slot) {
+                return Arrays.asList("a".getBytes(), "b".getBytes()).iterator();
+            }
+        });
+        assertEquals("*2\r\n$1\r\na\r\n$1\r\nb\r\n", client.call("cluster", "getkeysinslot", "1", "3"));
+        assertEquals("*1\r\n$1\r\na\r\n", client.call("cluster", "getkeysinslot", "1", "1"));
+        assertEquals("*0\r\n", client.call("cluster", "getkeysinslot", "1", "0"));
+        assertEquals("-ERR Invalid slot:16384\r\n", client.call("cluster", "getkeysinslot", "16384", "1"));
+    }
+
+    /**
+     * @return the names of myself, owning slots 0 to 2 and 5, of its replica and of its failed replica.
+     */
+    private String[] setUpShard() throws Exception {
+        ClusterManagers managers = client.managers;
+        String[] names = new String[3];
+        managers.cron.submit(() -> {
+            ClusterNode myself = managers.server.myself; myself.ip = "127.0.0.1"; myself.port = 7000;
+            for (int slot : new int[]{0, 1, 2, 5}) managers.slots.clusterAddSlot(myself, slot);
+            names[0] = myself.name;
+            for (int i = 1; i <= 2; i++) {
+                ClusterNode slave = managers.nodes.createClusterNode(null, CLUSTER_NODE_SLAVE | (i == 2 ? CLUSTER_NODE_FAIL : 0));
+                slave.ip = "127.0.0.1"; slave.port = 7000 + i; slave.master = myself;
+                managers.nodes.clusterAddNode(slave); managers.nodes.clusterNodeAddSlave(myself, slave);
+                names[i] = slave.name;
+            }
+            managers.publish();
+        }).get();
+        return names;
+    }
+
+    private static String node(String name, int port) {
+        return "*3\r\n$9\r\n127.0.0.1\r\n:" + port + "\r\n$40\r\n" + name + "\r\n";
+    }
+
+    private static String shard(String name, int port, String role, String health) {
+        return "*12\r\n$2\r\nid\r\n$40\r\n" + name + "\r\n$4\r\nport\r\n:" + port + "\r\n$2\r\nip\r\n$9\r\n127.0.0.1\r\n"
+                + "$8\r\nendpoint\r\n$9\r\n127.0.0.1\r\n$4\r\nrole\r\n$" + role.length() + "\r\n" + role + "\r\n"
+                + "$6\r\nhealth\r\n$" + health.length() + "\r\n" + health + "\r\n";
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.codec.RedisReplyBuilder;
+import com.moilioncircle.redis.cluster.watchdog.command.AsyncCommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandHandler;
+import com.moilioncircle.redis.cluster.watchdog.command.CommandKeySpec;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import com.moilioncircle.redis.cluster.watchdog.storage.DefaultStorageEngine;
+import com.moilioncircle.redis.cluster.watchdog.util.net.transport.Transport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MYSELF;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_SLAVE;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterState.CLUSTER_OK;
+import static com.moilioncircle.redis.cluster.watchdog.storage.StorageEngine.calcSlot;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterCommandHandlerManagerTest {
+
+    private EmbeddedRedisClient client;
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<RedisReplyBuilder>> futures = new CopyOnWriteArrayList<>();
+
+    private EmbeddedRedisClient newClient(ClusterConfiguration configuration) {
+        configuration.setClusterConfigFile("target/nodes-commands.conf");
+        client = new EmbeddedRedisClient(EmbeddedRedisClient.newManagers(configuration));
+        client.managers.addCommandHandler("later", new AsyncCommandHandler.Adaptor() {
+            @Override
+            public CompletionStage<RedisReplyBuilder> handleAsync(Transport<byte[][]> t, byte[][] rawMessage) {
+                CompletableFuture<RedisReplyBuilder> future = new CompletableFuture<>(); futures.add(future); return future;
+            }
+        });
+        client.managers.addCommandHandler("where", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                threads.add(Thread.currentThread()); reply(t, message[1]);
+            }
+        });
+        return client;
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) client.close();
+    }
+
+    @Test
+    public void testPipelineOrder() throws Exception {
+        newClient(ClusterConfiguration.defaultSetting());
+        client.write(concat(EmbeddedRedisClient.encode("later"), EmbeddedRedisClient.encode("where", "a"), EmbeddedRedisClient.encode("ping")));
+        assertEquals("", client.read());
+        assertTrue(threads.isEmpty());
+
+        // completed on another thread, the queued commands still run on the I/O thread and in order
+        Thread completer = new Thread(() -> futures.get(0).complete(new RedisReplyBuilder().status("done")));
+        completer.start(); completer.join();
+        assertEquals("+done\r\n+a\r\n+PONG\r\n", client.read());
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        newClient(ClusterConfiguration.defaultSetting().setCommandQueueSize(4));
+        byte[] where = EmbeddedRedisClient.encode("where", "a");
+        client.write(concat(EmbeddedRedisClient.encode("later"), where, where, where));
+        assertTrue(client.isAutoRead());
+        client.write(where);
+        assertFalse(client.isAutoRead());
+
+        Thread completer = new Thread(() -> futures.get(0).complete(null));
+        completer.start(); completer.join();
+        assertEquals("$-1\r\n+a\r\n+a\r\n+a\r\n+a\r\n", client.read());
+        assertTrue(client.isAutoRead());
+    }
+
+    @Test
+    public void testOffload() throws Exception {
+        newClient(ClusterConfiguration.defaultSetting().setCommandThreads(1));
+        client.write(concat(EmbeddedRedisClient.encode("where", "a"), EmbeddedRedisClient.encode("ping"), EmbeddedRedisClient.encode("where", "b")));
+        StringBuilder replies = new StringBuilder();
+        for (long deadline = System.currentTimeMillis() + 5000; replies.length() < 15 && System.currentTimeMillis() < deadline; ) {
+            replies.append(client.await(100));
+        }
+        assertEquals("+a\r\n+PONG\r\n+b\r\n", replies.toString());
+        assertEquals(2, threads.size());
+        assertTrue(threads.get(0) != Thread.currentThread() && threads.get(1) != Thread.currentThread());
+        assertEquals(2, client.managers.commands.getQueueWaits());
+        // async handlers do not block, they are not offloaded
+        client.send("later");
+        assertEquals(1, futures.size());
+        futures.get(0).complete(null);
+        assertEquals("$-1\r\n", client.read());
+        assertEquals(2, client.managers.commands.getQueueWaits());
+    }
+
+    @Test
+    public void testOffloadRedirect() throws Exception {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setCommandThreads(1);
+        setUpRouting(configuration, new HashSet<>());
+        // answered on the I/O thread, only served commands hop to an executor
+        assertTrue(client.call("mget", "{b}1").startsWith("-MOVED"));
+        assertEquals(0, client.managers.commands.getQueueWaits());
+    }
+
+    /**
+     * Myself serves the slot of {a} and migrates it to the other master, which serves the slot of {b}.
+     */
+    private void setUpRouting(Set<String> existing) throws Exception {
+        setUpRouting(ClusterConfiguration.defaultSetting(), existing);
+    }
+
+    private void setUpRouting(ClusterConfiguration configuration, Set<String> existing) throws Exception {
+        newClient(configuration);
+        ClusterManagers managers = client.managers;
+        managers.setStorageEngine(new DefaultStorageEngine() {
+            @Override
+            public boolean exist(byte[] key) {
+                return existing.contains(new String(key));
+            }
+        });
+        managers.addCommandHandler("mget", new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                reply(t, "served");
+            }
+        }, CommandKeySpec.valueOf(1, -1, 1));
+        managers.cron.submit(() -> {
+            ClusterNode other = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER);
+            other.ip = "127.0.0.1"; other.port = 7001; managers.nodes.clusterAddNode(other);
+            managers.slots.clusterAddSlot(managers.server.myself, calcSlot("{a}".getBytes()));
+            managers.slots.clusterAddSlot(other, calcSlot("{b}".getBytes()));
+            managers.server.cluster.migrating[calcSlot("{a}".getBytes())] = other;
+            managers.server.cluster.state = CLUSTER_OK; managers.publish();
+        }).get();
+    }
+
+    @Test
+    public void testRedirect() throws Exception {
+        Set<String> existing = new HashSet<>(Arrays.asList("{a}1", "{a}2"));
+        setUpRouting(existing);
+        int a = calcSlot("{a}".getBytes()), b = calcSlot("{b}".getBytes());
+        assertEquals("+served\r\n", client.call("mget", "{a}1", "{a}2"));
+        assertEquals("-MOVED " + b + " 127.0.0.1:7001\r\n", client.call("mget", "{b}1"));
+        assertEquals("-ASK " + a + " 127.0.0.1:7001\r\n", client.call("mget", "{a}3"));
+        assertEquals("-TRYAGAIN Multiple keys request during rehashing of slot\r\n", client.call("mget", "{a}1", "{a}3"));
+        assertEquals("-CROSSSLOT Keys in request don't hash to the same slot\r\n", client.call("mget", "{a}1", "{b}1"));
+        assertEquals("-CLUSTERDOWN Hash slot not served\r\n", client.call("mget", "{c}"));
+    }
+
+    @Test
+    public void testNullKey() throws Exception {
+        setUpRouting(new HashSet<>());
+        client.write("*2\r\n$4\r\nmget\r\n$-1\r\n".getBytes());
+        assertEquals("-ERR Invalid key: null\r\n", client.read());
+        assertEquals("+PONG\r\n", client.call("ping"));
+    }
+
+    @Test
+    public void testReadonly() throws Exception {
+        newClient(ClusterConfiguration.defaultSetting());
+        ClusterManagers managers = client.managers;
+        CommandHandler served = new CommandHandler.Adaptor() {
+            @Override
+            public void handle(Transport<byte[][]> t, String[] message, byte[][] rawMessage) {
+                reply(t, "served");
+            }
+        };
+        managers.addCommandHandler("get", served, CommandKeySpec.singleKey().readonly());
+        managers.addCommandHandler("set", served, CommandKeySpec.singleKey());
+        managers.cron.submit(() -> {
+            // myself replicates the master of {b}
+            ClusterNode master = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER), myself = managers.server.myself;
+            master.ip = "127.0.0.1"; master.port = 7001; managers.nodes.clusterAddNode(master);
+            myself.flags = CLUSTER_NODE_MYSELF | CLUSTER_NODE_SLAVE; myself.master = master;
+            managers.nodes.clusterNodeAddSlave(master, myself);
+            managers.slots.clusterAddSlot(master, calcSlot("{b}".getBytes()));
+            managers.server.cluster.state = CLUSTER_OK; managers.publish();
+        }).get();
+        String moved = "-MOVED " + calcSlot("{b}".getBytes()) + " 127.0.0.1:7001\r\n";
+
+        assertEquals(moved, client.call("get", "{b}"));
+        assertEquals("+OK\r\n", client.call("readonly"));
+        assertEquals("+served\r\n", client.call("get", "{b}"));
+        // writes are still redirected to the master
+        assertEquals(moved, client.call("set", "{b}"));
+        assertEquals("+OK\r\n", client.call("readwrite"));
+        assertEquals(moved, client.call("get", "{b}"));
+    }
+
+    private static byte[] concat(byte[]... requests) {
+        int len = 0; for (byte[] r : requests) len += r.length;
+        byte[] bytes = new byte[len];
+        for (int i = 0, off = 0; i < requests.length; off += requests[i++].length) System.arraycopy(requests[i], 0, bytes, off, requests[i].length);
+        return bytes;
+    }
+}
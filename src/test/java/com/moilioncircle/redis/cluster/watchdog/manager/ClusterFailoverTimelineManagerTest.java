@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline;
+import com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.Event;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import com.moilioncircle.redis.cluster.watchdog.util.VirtualClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_FAIL;
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.DELETED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.FAIL_QUORUM;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PFAIL;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PING_UNANSWERED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.PROMOTED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.RECOVERED;
+import static com.moilioncircle.redis.cluster.watchdog.FailoverTimeline.SLOTS_TAKEN_OVER;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterFailoverTimelineManagerTest {
+
+    private ClusterManagers managers;
+    private ClusterFailoverTimelineManager timelines;
+    private final VirtualClock clock = new VirtualClock(1000000L);
+    private final BlockingQueue<FailoverTimeline> notified = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-timeline.conf");
+        managers = EmbeddedRedisClient.newManagers(configuration.setClock(clock).setFailoverTimelineMaxLen(2));
+        managers.setClusterFailoverListener(notified::add);
+        timelines = managers.timelines;
+    }
+
+    @After
+    public void tearDown() {
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    private ClusterNode newNode() {
+        ClusterNode node = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER);
+        managers.nodes.clusterAddNode(node); return node;
+    }
+
+    @Test
+    public void testPromoted() throws Exception {
+        ClusterNode node = newNode();
+        node.pingTime = clock.currentTimeMillis(); clock.advance(500);
+        timelines.pfail(node);
+        // a node already failing keeps its timeline
+        clock.advance(100); timelines.pfail(node);
+        clock.advance(200); timelines.event(node, FAIL_QUORUM, "reports=2");
+        clock.advance(300); timelines.close(node, PROMOTED);
+
+        FailoverTimeline timeline = notified.poll(5, SECONDS);
+        assertSame(timeline, timelines.getTimelines(-1).get(0));
+        assertEquals(node.name, timeline.getNode());
+        assertEquals(1100, timeline.getDuration());
+        List<Event> events = timeline.getEvents();
+        assertEquals(4, events.size());
+        assertPhase(events.get(0), PING_UNANSWERED, 0, timeline);
+        assertPhase(events.get(1), PFAIL, 500, timeline);
+        assertPhase(events.get(2), FAIL_QUORUM, 800, timeline);
+        assertEquals("reports=2", events.get(2).getDetail());
+        assertPhase(events.get(3), PROMOTED, 1100, timeline);
+    }
+
+    @Test
+    public void testNotOpen() {
+        // a node that never failed has nothing to close
+        timelines.close(newNode(), RECOVERED);
+        assertEquals(0, timelines.getTimelinesLen());
+        timelines.event(null, FAIL_QUORUM);
+        timelines.cron();
+        assertEquals(0, timelines.getTimelinesLen());
+    }
+
+    @Test
+    public void testCron() throws Exception {
+        ClusterNode deleted = newNode(), failed = newNode();
+        timelines.pfail(deleted); timelines.pfail(failed);
+        managers.nodes.clusterDelNode(deleted);
+        failed.flags |= CLUSTER_NODE_FAIL;
+        timelines.cron();
+        assertEquals(2, timelines.getTimelinesLen());
+        // no ping was pending, the timelines start at PFAIL
+        for (FailoverTimeline timeline : timelines.getTimelines(-1)) {
+            assertEquals(PFAIL, timeline.getEvents().get(0).getPhase());
+            String last = timeline.getEvents().get(1).getPhase();
+            assertEquals(timeline.getNode().equals(deleted.name) ? DELETED : SLOTS_TAKEN_OVER, last);
+        }
+    }
+
+    @Test
+    public void testMaxLen() {
+        for (int i = 0; i < 3; i++) {
+            ClusterNode node = newNode(); timelines.pfail(node); timelines.close(node, RECOVERED);
+        }
+        List<FailoverTimeline> log = timelines.getTimelines(-1);
+        assertEquals(2, log.size());
+        assertEquals(2, log.get(0).getId());
+        assertEquals(1, log.get(1).getId());
+        assertEquals(1, timelines.getTimelines(1).size());
+        timelines.resetTimelines();
+        assertEquals(0, timelines.getTimelinesLen());
+    }
+
+    private static void assertPhase(Event event, String phase, long offset, FailoverTimeline timeline) {
+        assertEquals(phase, event.getPhase());
+        assertEquals(offset, event.getTime() - timeline.getStartTime());
+    }
+}
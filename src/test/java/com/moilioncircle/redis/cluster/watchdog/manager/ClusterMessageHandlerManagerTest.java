@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterLink;
+import com.moilioncircle.redis.cluster.watchdog.state.ClusterNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.moilioncircle.redis.cluster.watchdog.ClusterConstants.CLUSTER_NODE_MASTER;
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterMessageHandlerManagerTest {
+
+    private static final long MILLIS = 1000000L;
+
+    private ClusterManagers managers;
+    private ClusterLink outbound;
+    private ClusterLink inbound;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-rtt.conf");
+        managers = EmbeddedRedisClient.newManagers(configuration.setClusterNodeTimeout(1000));
+        ClusterNode node = managers.nodes.createClusterNode(null, CLUSTER_NODE_MASTER);
+        outbound = new ClusterLink(0); outbound.node = node; node.link = outbound;
+        inbound = new ClusterLink(0); inbound.inbound = true;
+    }
+
+    @After
+    public void tearDown() {
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    /**
+     * A PING as the cron sends it: the node waits for a PONG from then on.
+     */
+    private void ping(ClusterLink link, long nanos) {
+        if (link.node != null) link.node.pingTime = nanos / MILLIS;
+        managers.messages.clusterPingSent(link, nanos);
+    }
+
+    @Test
+    public void testRtt() {
+        ping(outbound, 10 * MILLIS);
+        // a second PING while the first is outstanding does not restart the round trip
+        ping(outbound, 11 * MILLIS);
+        managers.handlers.clusterPongReceived(outbound, 13 * MILLIS);
+        assertEquals(3000, outbound.rtt);
+        assertEquals(3000, outbound.rttEwma);
+        assertEquals(0, outbound.pingSentTime);
+
+        // a PONG nobody asked for is not timed
+        managers.handlers.clusterPongReceived(outbound, 20 * MILLIS);
+        assertEquals(3000, outbound.rtt);
+        ping(outbound, 30 * MILLIS);
+        managers.handlers.clusterPongReceived(outbound, 31 * MILLIS);
+        assertEquals(1000, outbound.rtt);
+        assertEquals(3000 + (1000 - 3000) / 8, outbound.rttEwma);
+    }
+
+    @Test
+    public void testBroadcast() {
+        // the PONGs a node broadcasts come in on the inbound link, they answer no PING of ours
+        ping(outbound, 10 * MILLIS);
+        managers.handlers.clusterPongReceived(inbound, 12 * MILLIS);
+        assertEquals(0, inbound.rtt);
+        assertEquals(10 * MILLIS, outbound.pingSentTime);
+        // the PONG of a MEET leaves no PING outstanding
+        outbound.node.pingTime = 0;
+        managers.handlers.clusterPongReceived(outbound, 12 * MILLIS);
+        assertEquals(0, outbound.rtt);
+        assertEquals(0, outbound.pingSentTime);
+    }
+
+    @Test
+    public void testLostPong() {
+        ping(outbound, 10 * MILLIS);
+        // the PONG is lost, a PING after the node timeout starts a new round trip
+        ping(outbound, 1500 * MILLIS);
+        managers.handlers.clusterPongReceived(outbound, 1502 * MILLIS);
+        assertEquals(2000, outbound.rtt);
+    }
+}
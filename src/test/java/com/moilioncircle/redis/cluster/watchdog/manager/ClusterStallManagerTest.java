@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.manager;
+
+import com.moilioncircle.redis.cluster.watchdog.ClusterConfiguration;
+import com.moilioncircle.redis.cluster.watchdog.EmbeddedRedisClient;
+import com.moilioncircle.redis.cluster.watchdog.state.StallEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class ClusterStallManagerTest {
+
+    private ClusterManagers managers;
+    private ClusterStallManager stalls;
+
+    @Before
+    public void setUp() {
+        ClusterConfiguration configuration = ClusterConfiguration.defaultSetting().setClusterConfigFile("target/nodes-stall.conf");
+        managers = EmbeddedRedisClient.newManagers(configuration.setStallThreshold(20));
+        stalls = managers.stalls;
+    }
+
+    @After
+    public void tearDown() {
+        managers.stop(); managers.cron.shutdown();
+    }
+
+    @Test
+    public void testFast() {
+        stalls.begin("fast"); stalls.end();
+        assertEquals(0, stalls.getStallsLen());
+    }
+
+    @Test
+    public void testDetected() throws Exception {
+        stalls.begin("slow"); Thread.sleep(30);
+        stalls.detect(); stalls.detect();
+        Thread.sleep(10); stalls.end();
+        // sampled once while running, completed with the duration at the end
+        assertEquals(1, stalls.getStallsLen());
+        StallEntry entry = stalls.getStalls(-1).get(0);
+        assertEquals("slow", entry.task);
+        assertTrue(entry.duration >= 40);
+        assertTrue(entry.stack.length > 0);
+    }
+
+    @Test
+    public void testEnded() throws Exception {
+        // the detector did not catch the task, it is logged without a stack at its end
+        stalls.begin("slow"); Thread.sleep(30); stalls.end();
+        stalls.detect();
+        assertEquals(1, stalls.getStallsLen());
+        assertEquals(0, stalls.getStalls(-1).get(0).stack.length);
+    }
+
+    @Test
+    public void testRace() throws Exception {
+        Thread detector = new Thread(() -> { while (!Thread.currentThread().isInterrupted()) stalls.detect(); });
+        detector.start();
+        try {
+            for (int i = 0; i < 20; i++) { stalls.begin("slow"); Thread.sleep(21); stalls.end(); }
+        } finally {
+            detector.interrupt(); detector.join();
+        }
+        // detected or not, every slow task is logged exactly once
+        assertEquals(20, stalls.getStallsLen());
+    }
+
+    @Test
+    public void testConfigSet() throws Exception {
+        managers.configuration.setStallThreshold(0);
+        stalls.start();
+        managers.configuration.setStallThreshold(20);
+        stalls.begin("slow");
+        // the detector idles at its longest period before it picks up the new threshold
+        for (long deadline = System.currentTimeMillis() + 5000; System.currentTimeMillis() < deadline && stalls.getStallsLen() == 0; ) {
+            Thread.sleep(10);
+        }
+        stalls.end();
+        assertEquals(1, stalls.getStallsLen());
+        assertTrue(stalls.getStalls(1).get(0).stack.length > 0);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.metrics;
+
+import com.moilioncircle.redis.cluster.watchdog.codec.HttpRequest;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import static com.moilioncircle.redis.cluster.watchdog.metrics.MetricsRegistry.label;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class OpenMetricsExporterTest {
+
+    @Test
+    public void testFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("bus_messages", "Messages.", label("type", "ping"), () -> 3L);
+        registry.gauge("queue_depth", null, () -> 2L);
+        String expected = "# TYPE bus_messages counter\n# HELP bus_messages Messages.\nbus_messages_total{type=\"ping\"} 3\n"
+                + "# TYPE queue_depth gauge\nqueue_depth 2\n# EOF\n";
+        assertEquals(expected, OpenMetricsExporter.format(registry.getMetrics()));
+    }
+
+    @Test
+    public void testFamilies() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("cluster_link_bytes_sent", null, label("node", "b"), () -> 2L);
+        registry.gauge("cluster_link_bytes", null, label("node", "b"), () -> 4L);
+        registry.counter("cluster_link_bytes_sent", null, label("node", "a"), () -> 1L);
+        registry.gauge("cluster_link_bytes", null, () -> 5L);
+        registry.gauge("cluster_link_bytes", null, label("node", "a"), () -> 3L);
+        String expected = "# TYPE cluster_link_bytes gauge\ncluster_link_bytes 5\n"
+                + "cluster_link_bytes{node=\"a\"} 3\ncluster_link_bytes{node=\"b\"} 4\n"
+                + "# TYPE cluster_link_bytes_sent counter\n"
+                + "cluster_link_bytes_sent_total{node=\"a\"} 1\ncluster_link_bytes_sent_total{node=\"b\"} 2\n# EOF\n";
+        assertEquals(expected, OpenMetricsExporter.format(registry.getMetrics()));
+        // the series of a family share its type
+        try {
+            registry.counter("cluster_link_bytes", null, label("node", "c")); fail();
+        } catch (IllegalArgumentException e) {
+        }
+        registry.remove("cluster_link_bytes", null);
+        assertTrue(OpenMetricsExporter.format(registry.getMetrics()).startsWith("# TYPE cluster_link_bytes gauge\ncluster_link_bytes{node=\"a\"} 3\n"));
+    }
+
+    @Test
+    public void testHandle() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertEquals(200, OpenMetricsExporter.handle(new HttpRequest("GET", "/metrics", false), registry).status);
+        assertEquals(200, OpenMetricsExporter.handle(new HttpRequest("GET", "/metrics?name=x", false), registry).status);
+        assertEquals(404, OpenMetricsExporter.handle(new HttpRequest("GET", "/", false), registry).status);
+        assertFalse(OpenMetricsExporter.handle(new HttpRequest("GET", "/", false), registry).close);
+        assertEquals(405, OpenMetricsExporter.handle(new HttpRequest("POST", "/metrics", false), registry).status);
+        assertTrue(OpenMetricsExporter.handle(new HttpRequest("POST", "/metrics", false), registry).close);
+    }
+
+    @Test
+    public void testConnection() throws Exception {
+        int port; try (ServerSocket socket = new ServerSocket(0)) { port = socket.getLocalPort(); }
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.gauge("queue_depth", null, () -> 2L);
+        OpenMetricsExporter exporter = new OpenMetricsExporter("127.0.0.1", port);
+        exporter.start(registry);
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET / HTTP/1.1\r\n\r\nGET /metrics HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(US_ASCII));
+            // read to the end of the stream, the server closes after the second response
+            String responses = readFully(socket.getInputStream());
+            assertTrue(responses, responses.startsWith("HTTP/1.1 404 Not Found\r\n"));
+            int second = responses.indexOf("HTTP/1.1 200 OK\r\n");
+            assertTrue(responses, second > 0 && responses.indexOf("Connection: close\r\n", second) > 0);
+            assertTrue(responses, responses.endsWith("queue_depth 2\n# EOF\n"));
+        } finally {
+            exporter.stop(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        for (int n; (n = in.read(buf)) != -1; ) out.write(buf, 0, n);
+        return new String(out.toByteArray(), US_ASCII);
+    }
+}
@@ -220,7 +220,12 @@ public class RedisStorageEngine implements StorageEngine {
 
     @Override
     public boolean restore(byte[] key, byte[] serialized, long expire, boolean force) {
-        Replicator replicator = new RestoreReplicator(new ByteArrayInputStream(serialized), Configuration.defaultSetting());
+        return restore(key, new ByteArrayInputStream(serialized), expire, force);
+    }
+
+    @Override
+    public boolean restore(byte[] key, InputStream serialized, long expire, boolean force) {
+        Replicator replicator = new RestoreReplicator(serialized, Configuration.defaultSetting());
         AtomicBoolean rs = new AtomicBoolean(false);
         replicator.addRdbListener(new RdbListener.Adaptor() {
             @Override
@@ -233,11 +238,13 @@ public class RedisStorageEngine implements StorageEngine {
     }
 
     @Override
+    @Deprecated
     public boolean readonly() {
         return this.readonly;
     }
 
     @Override
+    @Deprecated
     public void readonly(boolean r) {
         this.readonly = r;
     }
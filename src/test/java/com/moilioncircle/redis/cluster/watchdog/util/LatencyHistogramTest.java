@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 16; v++) assertEquals(v, LatencyHistogram.upper(LatencyHistogram.index(v)));
+        for (long v = 16; v < 1L << 40; v = v * 3 / 2 + 1) {
+            long upper = LatencyHistogram.upper(LatencyHistogram.index(v));
+            assertTrue(v + " " + upper, upper >= v && upper <= v + v / 8);
+        }
+        assertEquals(LatencyHistogram.index(Long.MAX_VALUE), LatencyHistogram.index(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(50));
+        for (int i = 1; i <= 100; i++) histogram.record(i);
+        assertEquals(1, histogram.percentile(0));
+        long p50 = histogram.percentile(50), p99 = histogram.percentile(99);
+        assertTrue(p50 >= 50 && p50 <= 56);
+        assertTrue(p99 >= 99 && p99 <= 111);
+        histogram.record(-1);
+        assertEquals(0, histogram.percentile(0));
+        histogram.reset();
+        assertEquals(0, histogram.percentile(100));
+    }
+}
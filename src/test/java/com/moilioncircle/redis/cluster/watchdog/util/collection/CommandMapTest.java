@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2018 Leon Chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.cluster.watchdog.util.collection;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+/**
+ * @author Leon Chen
+ * @since 1.0.0
+ */
+public class CommandMapTest {
+
+    @Test
+    public void testGet() {
+        CommandMap<String> map = new CommandMap<>();
+        map.put("ping", "ping"); map.put("CLUSTER", "cluster");
+        assertEquals("ping", map.get("ping"));
+        assertEquals("ping", map.get("PiNg".getBytes()));
+        assertEquals("cluster", map.get("cluster".getBytes()));
+        assertEquals("cluster", map.get("CLUSTER"));
+        assertNull(map.get("pin".getBytes()));
+        assertNull(map.get("pings"));
+        assertNull(map.get(new byte[0]));
+        assertNull(map.get((byte[]) null));
+        assertNull(map.get((String) null));
+    }
+
+    @Test
+    public void testPut() {
+        CommandMap<Integer> map = new CommandMap<>();
+        assertNull(map.put("get", 1));
+        assertEquals(Integer.valueOf(1), map.put("GET", 2));
+        assertEquals(Integer.valueOf(2), map.get("get"));
+        // grows past the initial capacity, every entry stays reachable
+        for (int i = 0; i < 100; i++) map.put("cmd" + i, i);
+        for (int i = 0; i < 100; i++) assertEquals(Integer.valueOf(i), map.get(("CMD" + i).getBytes()));
+        assertEquals(Integer.valueOf(2), map.get("get"));
+    }
+
+    @Test
+    public void testNonLetters() {
+        CommandMap<String> map = new CommandMap<>();
+        map.put("a-b_1", "x");
+        assertEquals("x", map.get("A-B_1"));
+        // '@' and '`' sit next to 'A' and 'Z', they must not fold
+        map.put("`", "y");
+        assertNull(map.get("@"));
+        assertEquals("y", map.get("`"));
+    }
+}